@@ -1,14 +1,17 @@
 package com.healthcare.home;
 
+import com.healthcare.home.controllers.LoginHandler;
+import com.healthcare.home.core.FacilityRegistry;
+import com.healthcare.home.core.ReminderPlanner;
 import com.healthcare.home.core.ResidentHealthCareHome;
-import com.healthcare.home.core.SerializingHandlerService;
-import com.healthcare.home.scheduler.Scheduler;
+import com.healthcare.home.scheduler.NotificationEngine;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
-import lombok.Getter;
-import lombok.Setter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
 
 public class Main extends Application {
     /**
@@ -20,9 +23,12 @@ public class Main extends Application {
         launch(args);
     }
 
-    @Getter
-    @Setter
-    private static ResidentHealthCareHome home;
+    // -Dhealthcare.facility picks the facility, stored below -Dhealthcare.storage (default: working directory)
+    private final FacilityRegistry registry = new FacilityRegistry(Path.of(System.getProperty("healthcare.storage", ".")));
+    private ResidentHealthCareHome home;
+
+    private final NotificationEngine notificationEngine = new NotificationEngine();
+    private ReminderPlanner reminderPlanner;
 
     /**
      * start method tells the Java Compiler to start from here
@@ -32,12 +38,20 @@ public class Main extends Application {
      */
     @Override
     public void start(Stage stage) throws Exception {
-        home = SerializingHandlerService.readOrCreateFile();
-        Scheduler scheduler = new Scheduler();
-        scheduler.startComplianceScheduler(home);
+        String facilityId = System.getProperty("healthcare.facility");
+        home = facilityId == null
+                ? registry.opening("default", Path.of(System.getProperty("healthcare.storage", ".")))
+                : registry.opening(facilityId);
+        home.applyingRosterRetention();
+        home.getScheduler().startComplianceScheduler(home);
+
+        // reminders for the coming week, fired 15 minutes ahead of each event, kept current as the roster and prescriptions change and written to the audit trail
+        reminderPlanner = new ReminderPlanner(home, notificationEngine, Duration.ofDays(7), Duration.ofMinutes(15), LocalDateTime::now);
+        notificationEngine.subscribing(reminderPlanner::auditing);
+        reminderPlanner.start();
+        notificationEngine.start();
 
-        FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/healthcare/home/view/login.fxml"));
-        Scene scene = new Scene(loader.load());
+        Scene scene = new Scene(LoginHandler.loader(home).load());
         stage.setTitle("Resident Health-Care System");
         stage.setScene(scene);
         stage.setResizable(false);
@@ -49,7 +63,8 @@ public class Main extends Application {
      */
     @Override
     public void stop() {
-        SerializingHandlerService.saveRecordsInFile(home);
-        Scheduler.stopScheduler();
+        if (reminderPlanner != null) reminderPlanner.stop();
+        notificationEngine.stop();
+        registry.closingAll();
     }
 }
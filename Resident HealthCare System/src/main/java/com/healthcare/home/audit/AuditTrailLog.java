@@ -3,41 +3,73 @@ package com.healthcare.home.audit;
 import com.healthcare.home.auth.AuthAccess;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
- * AuditTrailLog class to trail every action to log file
+ * AuditTrailLog class to trail every action to the log file of one home
  */
 public final class AuditTrailLog implements Serializable {
+    private static final long serialVersionUID = -4009741878954663614L;
 
-    private static final String ACTIONS_LOG = "actions.log";
+    public static final String ACTIONS_LOG = "actions.log";
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private static final AuditTrailLog AUDIT_TRAIL_LOG = new AuditTrailLog();
 
     // Represents a single log entry
     public static record EntryRecord(LocalDateTime localDateTime, String staffId, String action,
                                      String message) implements Serializable {
     }
 
-    private static final List<EntryRecord> ENTRY_RECORD_LIST = new ArrayList<>();
+    private final String logFile;
+    // entries of the running session only, the file is the durable trail
+    private transient List<EntryRecord> entryRecordList = new ArrayList<>();
 
-    private AuditTrailLog() {
+    /**
+     * AuditTrailLog Constructor
+     *
+     * @param logFile
+     */
+    public AuditTrailLog(Path logFile) {
+        this.logFile = logFile.toString();
     }
 
-    public static AuditTrailLog get() {
-        return AUDIT_TRAIL_LOG;
+    /**
+     * inDirectory creates the log writing to actions.log in the given storage directory
+     *
+     * @param directory
+     * @return
+     */
+    public static AuditTrailLog inDirectory(Path directory) {
+        return new AuditTrailLog(directory.resolve(ACTIONS_LOG));
     }
 
     /**
      * Logs an event with text action
      */
-    public static synchronized void entryLog(String staffId, String action, String message) {
+    public synchronized void entryLog(String staffId, String action, String message) {
         LocalDateTime now = LocalDateTime.now();
         EntryRecord entryRecord = new EntryRecord(now, validate(staffId), validate(action), validate(message));
-        ENTRY_RECORD_LIST.add(entryRecord);
-        writeLogsToFile(entryRecord);
+        entries().add(entryRecord);
+        writeLogsToFile(List.of(entryRecord));
+    }
+
+    /**
+     * Logs a batch of events with a single open of the log file
+     *
+     * @param entryRecords
+     */
+    public synchronized void entryLogs(List<EntryRecord> entryRecords) {
+        if (entryRecords.isEmpty()) return;
+        List<EntryRecord> validated = new ArrayList<>(entryRecords.size());
+        for (EntryRecord entryRecord : entryRecords) {
+            LocalDateTime time = entryRecord.localDateTime == null ? LocalDateTime.now() : entryRecord.localDateTime;
+            validated.add(new EntryRecord(time, validate(entryRecord.staffId),
+                    validate(entryRecord.action), validate(entryRecord.message)));
+        }
+        entries().addAll(validated);
+        writeLogsToFile(validated);
     }
 
     /**
@@ -50,20 +82,46 @@ public final class AuditTrailLog implements Serializable {
     /**
      * Writing logs in an external file
      */
-    private static void writeLogsToFile(EntryRecord entryRecord) {
-        try (FileWriter fileWriter = new FileWriter(ACTIONS_LOG, true);
+    private void writeLogsToFile(List<EntryRecord> entryRecords) {
+        try (FileWriter fileWriter = new FileWriter(logFile, true);
              BufferedWriter bufferedWriter = new BufferedWriter(fileWriter);
              PrintWriter printWriter = new PrintWriter(bufferedWriter)) {
-            String time = entryRecord.localDateTime.format(DATE_TIME_FORMATTER);
-            printWriter.printf("%s | staff:%s | action:%s | %s%n",
-                    time, entryRecord.staffId, entryRecord.action, entryRecord.message);
+            for (EntryRecord entryRecord : entryRecords) {
+                String time = entryRecord.localDateTime.format(DATE_TIME_FORMATTER);
+                printWriter.printf("%s | staff:%s | action:%s | %s%n",
+                        time, entryRecord.staffId, entryRecord.action, entryRecord.message);
+            }
         } catch (Exception ex) {
             ex.printStackTrace();
         }
     }
 
-    public List<EntryRecord> getEntries() {
-        return List.copyOf(ENTRY_RECORD_LIST);
+    public synchronized List<EntryRecord> getEntries() {
+        return List.copyOf(entries());
+    }
+
+    public Path getLogFile() {
+        return Path.of(logFile);
+    }
+
+    /**
+     * entries, the list is transient and starts empty after loading a snapshot
+     *
+     * @return
+     */
+    private List<EntryRecord> entries() {
+        if (entryRecordList == null) entryRecordList = new ArrayList<>();
+        return entryRecordList;
+    }
+
+    /**
+     * readResolve gives logs of the first release, which kept no file of their own, the actions.log
+     * of the working directory they wrote to
+     *
+     * @return
+     */
+    private Object readResolve() {
+        return logFile == null ? inDirectory(Path.of(".")) : this;
     }
 
     /**
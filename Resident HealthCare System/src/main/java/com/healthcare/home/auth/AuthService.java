@@ -1,11 +1,8 @@
 package com.healthcare.home.auth;
 
+import com.healthcare.home.scheduler.Scheduler;
 import com.healthcare.home.staff.Staff;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.time.LocalDateTime;
-
 /**
  * AuthService class checks or verify the access to each authorized role
  */
@@ -14,7 +11,7 @@ public final class AuthService {
     }
 
     /**
-     * method to verify authorize access to the role
+     * method to verify authorize access to the role, without a roster to check against
      *
      * @param staff
      * @param access
@@ -22,10 +19,22 @@ public final class AuthService {
      */
     public static void authorizeOrThrow(Staff staff, AuthAccess access) throws SecurityException {
         if (staff == null) throw new SecurityException("No staff provided");
-        if (!staff.hasAccess(access)) {
+        if (!RolePermissions.allows(staff.getRole(), access)) {
             throw new SecurityException("Not authorized for action: " + access);
         }
-        if (!isRosteredNow(staff)) {
+    }
+
+    /**
+     * method to verify authorize access to the role and that rostered roles are on duty
+     *
+     * @param staff
+     * @param access
+     * @param scheduler
+     * @throws SecurityException
+     */
+    public static void authorizeOrThrow(Staff staff, AuthAccess access, Scheduler scheduler) throws SecurityException {
+        authorizeOrThrow(staff, access);
+        if (!isRosteredNow(staff, scheduler)) {
             throw new SecurityException("Staff not rostered for current day time");
         }
     }
@@ -34,19 +43,10 @@ public final class AuthService {
      * checks the staff is rostered or not
      *
      * @param staff
+     * @param scheduler
      * @return
      */
-    private static boolean isRosteredNow(Staff staff) {
-        try {
-            Method method1 = staff.getClass().getMethod("isRosteredAt", java.time.LocalDateTime.class);
-            return (boolean) method1.invoke(staff, LocalDateTime.now());
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ignored) {
-        }
-        try {
-            Method method2 = staff.getClass().getMethod("isRosteredNow");
-            return (boolean) method2.invoke(staff);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ignored) {
-        }
-        return true;
+    public static boolean isRosteredNow(Staff staff, Scheduler scheduler) {
+        return !RolePermissions.requiresRoster(staff.getRole()) || scheduler.getOnDutyRoster().isOnDuty(staff.getId());
     }
 }
@@ -0,0 +1,245 @@
+package com.healthcare.home.auth;
+
+import com.healthcare.home.audit.AuditTrailLog;
+import com.healthcare.home.exceptions.LoginLockedOutException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * LoginRateLimiter keeps a token bucket per username and per client in front of authenticate.
+ * Each bucket is a single AtomicLong holding the GCRA theoretical arrival time, so an attempt is one
+ * compare-and-set and never takes a lock. Buckets that have refilled completely carry no state and are
+ * swept once the map reaches its bound; while the map is full, new keys share one overflow bucket.
+ * Lockouts are queued and written to the audit trail as a batch, once enough are queued or the oldest is due.
+ */
+public class LoginRateLimiter {
+    public static final int DEFAULT_BURST = 5;
+    public static final Duration DEFAULT_REFILL = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_KEYS = 10_000;
+    private static final String OVERFLOW_KEY = "*overflow*";
+    private static final int AUDIT_BATCH_SIZE = 32;
+    public static final Duration AUDIT_FLUSH_INTERVAL = Duration.ofSeconds(5);
+    private static final long AUDIT_FLUSH_NANOS = AUDIT_FLUSH_INTERVAL.toNanos();
+
+    private final AuditTrailLog auditTrailLog;
+    private final long emissionNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger bucketCount = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final Queue<AuditTrailLog.EntryRecord> pendingLockouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong oldestPendingNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    /**
+     * Bucket, tat is the theoretical arrival time of the next attempt and reportedUntil
+     * stops one lockout from being audited once per rejected attempt
+     */
+    private static final class Bucket {
+        private final AtomicLong tat;
+        private final AtomicLong reportedUntil = new AtomicLong(Long.MIN_VALUE);
+
+        private Bucket(long now) {
+            this.tat = new AtomicLong(now);
+        }
+    }
+
+    /**
+     * LoginRateLimiter Constructor with the default burst, refill and bound
+     *
+     * @param auditTrailLog log the lockouts are reported to
+     */
+    public LoginRateLimiter(AuditTrailLog auditTrailLog) {
+        this(auditTrailLog, DEFAULT_BURST, DEFAULT_REFILL, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * LoginRateLimiter Constructor
+     *
+     * @param auditTrailLog
+     * @param burst         attempts allowed back to back
+     * @param refill        time for one attempt to be given back
+     * @param maxKeys       bound of tracked usernames and clients
+     */
+    public LoginRateLimiter(AuditTrailLog auditTrailLog, int burst, Duration refill, int maxKeys) {
+        this(auditTrailLog, burst, refill, maxKeys, System::nanoTime);
+    }
+
+    /**
+     * LoginRateLimiter Constructor
+     *
+     * @param auditTrailLog
+     * @param burst
+     * @param refill
+     * @param maxKeys
+     * @param nanoClock
+     */
+    public LoginRateLimiter(AuditTrailLog auditTrailLog, int burst, Duration refill, int maxKeys, LongSupplier nanoClock) {
+        if (burst < 1) throw new IllegalArgumentException("burst must be positive");
+        if (refill == null || refill.isNegative() || refill.isZero()) throw new IllegalArgumentException("refill must be positive");
+        if (maxKeys < 1) throw new IllegalArgumentException("maxKeys must be positive");
+        this.auditTrailLog = auditTrailLog;
+        this.emissionNanos = refill.toNanos();
+        this.toleranceNanos = emissionNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * acquiringOrThrow takes one attempt from the username bucket and the client bucket
+     *
+     * @param username
+     * @param clientId
+     */
+    public void acquiringOrThrow(String username, String clientId) {
+        long now = nanoClock.getAsLong();
+        try {
+            acquiring("user:" + username, now);
+            acquiring("client:" + (clientId == null ? "local" : clientId), now);
+        } finally {
+            if (pendingCount.get() >= AUDIT_BATCH_SIZE) flushingLockouts();
+            else flushingDueLockouts(now);
+        }
+    }
+
+    /**
+     * flushingDueLockouts writes the queued lockouts once the oldest has waited the flush interval,
+     * called by the home's timer so a lockout is audited even when no further login attempt comes
+     *
+     * @return number of lockouts written
+     */
+    public int flushingDueLockouts() {
+        return flushingDueLockouts(nanoClock.getAsLong());
+    }
+
+    /**
+     * flushingLockouts writes queued lockouts to the audit trail in one batch
+     *
+     * @return number of lockouts written
+     */
+    public int flushingLockouts() {
+        if (!flushing.compareAndSet(false, true)) return 0;
+        try {
+            oldestPendingNanos.set(Long.MAX_VALUE);
+            List<AuditTrailLog.EntryRecord> batch = new ArrayList<>();
+            for (AuditTrailLog.EntryRecord entry; (entry = pendingLockouts.poll()) != null; ) {
+                pendingCount.decrementAndGet();
+                batch.add(entry);
+            }
+            auditTrailLog.entryLogs(batch);
+            return batch.size();
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    /**
+     * flushingDueLockouts
+     *
+     * @param now
+     * @return
+     */
+    private int flushingDueLockouts(long now) {
+        if (pendingCount.get() == 0 || now - oldestPendingNanos.get() < AUDIT_FLUSH_NANOS) return 0;
+        return flushingLockouts();
+    }
+
+    /**
+     * trackedKeys
+     *
+     * @return
+     */
+    public int trackedKeys() {
+        return bucketCount.get();
+    }
+
+    /**
+     * acquiring one attempt from a bucket with the GCRA compare-and-set loop
+     *
+     * @param key
+     * @param now
+     */
+    private void acquiring(String key, long now) {
+        Bucket bucket = bucketFor(key, now);
+        while (true) {
+            long tat = bucket.tat.get();
+            long next = Math.max(tat, now) + emissionNanos;
+            long waitNanos = next - now - toleranceNanos - emissionNanos;
+            if (waitNanos > 0) {
+                reportingLockout(key, bucket, now, waitNanos);
+                throw new LoginLockedOutException("Too many login attempts, try again in "
+                        + Duration.ofNanos(waitNanos).toSeconds() + " seconds", Duration.ofNanos(waitNanos));
+            }
+            if (bucket.tat.compareAndSet(tat, next)) return;
+        }
+    }
+
+    /**
+     * bucketFor returns the bucket of a key, sweeping refilled buckets when the map is full
+     *
+     * @param key
+     * @param now
+     * @return
+     */
+    private Bucket bucketFor(String key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) return bucket;
+        if (bucketCount.get() >= maxKeys) {
+            sweeping(now);
+            if (bucketCount.get() >= maxKeys) key = OVERFLOW_KEY;
+        }
+        return buckets.computeIfAbsent(key, k -> {
+            bucketCount.incrementAndGet();
+            return new Bucket(now);
+        });
+    }
+
+    /**
+     * sweeping drops buckets whose arrival time has passed, they are indistinguishable from a new bucket
+     *
+     * @param now
+     */
+    private void sweeping(long now) {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            buckets.entrySet().removeIf(entry -> {
+                if (entry.getKey().equals(OVERFLOW_KEY) || entry.getValue().tat.get() > now) return false;
+                bucketCount.decrementAndGet();
+                return true;
+            });
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * reportingLockout queues one audit entry per lockout period of a bucket
+     *
+     * @param key
+     * @param bucket
+     * @param now
+     * @param waitNanos
+     */
+    private void reportingLockout(String key, Bucket bucket, long now, long waitNanos) {
+        long reported = bucket.reportedUntil.get();
+        if (reported > now || !bucket.reportedUntil.compareAndSet(reported, now + waitNanos)) return;
+        pendingLockouts.add(new AuditTrailLog.EntryRecord(LocalDateTime.now(), "System", "LOGIN_LOCKOUT",
+                "Login attempts for " + key + " locked out for " + Duration.ofNanos(waitNanos).toSeconds() + " seconds"));
+        pendingCount.incrementAndGet();
+        oldestPendingNanos.accumulateAndGet(now, Math::min);
+    }
+}
@@ -0,0 +1,110 @@
+package com.healthcare.home.auth;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PasswordHasher stores passwords as salted PBKDF2 hashes, encoded as pbkdf2$cost$salt$hash.
+ * The cost factor is the log2 of the iteration count and can be set with -Dhealthcare.password.cost.
+ */
+public final class PasswordHasher {
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int DEFAULT_COST = 14;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    /**
+     * hash a plaintext password with a fresh salt and the configured cost
+     *
+     * @param plain
+     * @return
+     */
+    public static String hash(String plain) {
+        return hash(plain, configuredCost());
+    }
+
+    /**
+     * hash a plaintext password with a fresh salt and the given cost
+     *
+     * @param plain
+     * @param cost
+     * @return
+     */
+    public static String hash(String plain, int cost) {
+        if (plain == null) return null;
+        if (cost < 1 || cost > 30) throw new IllegalArgumentException("Password cost must be between 1 and 30");
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(plain, salt, 1 << cost);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + cost + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * verify a plaintext password against a stored hash in constant time
+     *
+     * @param plain
+     * @param encoded
+     * @return
+     */
+    public static boolean verify(String plain, String encoded) {
+        if (plain == null || !isHashed(encoded)) return false;
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 4) return false;
+        try {
+            int cost = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, derive(plain, salt, 1 << cost));
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * isHashed tells a stored hash from a legacy plaintext password
+     *
+     * @param stored
+     * @return
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * configuredCost
+     *
+     * @return
+     */
+    public static int configuredCost() {
+        return Integer.getInteger("healthcare.password.cost", DEFAULT_COST);
+    }
+
+    /**
+     * derive
+     *
+     * @param plain
+     * @param salt
+     * @param iterations
+     * @return
+     */
+    private static byte[] derive(String plain, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(plain.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Password hashing unavailable", ex);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
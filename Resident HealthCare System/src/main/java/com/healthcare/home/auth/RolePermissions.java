@@ -0,0 +1,84 @@
+package com.healthcare.home.auth;
+
+import com.healthcare.home.entities.Role;
+
+import java.util.EnumSet;
+
+/**
+ * RolePermissions holds the precomputed permission table of every role.
+ * Each role maps to a bitmask indexed by AuthAccess ordinal, so a check is one array read and one bit test.
+ */
+public final class RolePermissions {
+    private static final long[] MASKS = new long[Role.values().length];
+    private static final boolean[] REQUIRES_ROSTER = new boolean[Role.values().length];
+
+    static {
+        granting(Role.MANAGER, false, EnumSet.of(
+                AuthAccess.ADD_STAFF,
+                AuthAccess.UPDATE_STAFF,
+                AuthAccess.VIEW_RESIDENT,
+                AuthAccess.ADD_RESIDENT,
+                AuthAccess.DISCHARGE_RESIDENT,
+                AuthAccess.SHIFT_ASSIGNMENT));
+        granting(Role.DOCTOR, true, EnumSet.of(
+                AuthAccess.VIEW_RESIDENT,
+                AuthAccess.WRITE_PRESCRIPTION));
+        granting(Role.NURSE, true, EnumSet.of(
+                AuthAccess.VIEW_RESIDENT,
+                AuthAccess.MOVE_RESIDENT,
+                AuthAccess.ADMINISTER_MEDICATION,
+                AuthAccess.UPDATE_PRESCRIPTION));
+    }
+
+    private RolePermissions() {
+    }
+
+    /**
+     * granting
+     *
+     * @param role
+     * @param requiresRoster
+     * @param accesses
+     */
+    private static void granting(Role role, boolean requiresRoster, EnumSet<AuthAccess> accesses) {
+        long mask = 0;
+        for (AuthAccess access : accesses) mask |= 1L << access.ordinal();
+        MASKS[role.ordinal()] = mask;
+        REQUIRES_ROSTER[role.ordinal()] = requiresRoster;
+    }
+
+    /**
+     * allows
+     *
+     * @param role
+     * @param access
+     * @return
+     */
+    public static boolean allows(Role role, AuthAccess access) {
+        return role != null && access != null && (MASKS[role.ordinal()] & (1L << access.ordinal())) != 0;
+    }
+
+    /**
+     * requiresRoster tells whether the role must be on duty to act, managers are not rostered
+     *
+     * @param role
+     * @return
+     */
+    public static boolean requiresRoster(Role role) {
+        return REQUIRES_ROSTER[role.ordinal()];
+    }
+
+    /**
+     * permissionsOf
+     *
+     * @param role
+     * @return a fresh EnumSet copy of the role permissions
+     */
+    public static EnumSet<AuthAccess> permissionsOf(Role role) {
+        EnumSet<AuthAccess> permissions = EnumSet.noneOf(AuthAccess.class);
+        for (AuthAccess access : AuthAccess.values()) {
+            if (allows(role, access)) permissions.add(access);
+        }
+        return permissions;
+    }
+}
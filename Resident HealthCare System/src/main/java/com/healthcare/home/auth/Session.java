@@ -0,0 +1,147 @@
+package com.healthcare.home.auth;
+
+import com.healthcare.home.exceptions.UnAuthorizationException;
+import com.healthcare.home.scheduler.Scheduler;
+import com.healthcare.home.staff.Staff;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Session is created at login and caches the permission set and the current duty window of a staff member.
+ * The duty window is derived again only when the roster version changes or the window has run out,
+ * so every check in between is O(1).
+ */
+public final class Session {
+    private final Staff staff;
+    private final Scheduler scheduler;
+    private final Set<AuthAccess> permissions;
+    private final boolean requiresRoster;
+    private volatile DutyWindow dutyWindow;
+    private volatile boolean closed;
+
+    /**
+     * DutyWindow, onDuty until the given epoch millis, derived from the given roster version
+     *
+     * @param onDuty
+     * @param untilMillis
+     * @param until
+     * @param rosterVersion
+     */
+    private record DutyWindow(boolean onDuty, long untilMillis, LocalDateTime until, long rosterVersion) {
+    }
+
+    /**
+     * Session Constructor
+     *
+     * @param staff
+     * @param scheduler
+     */
+    private Session(Staff staff, Scheduler scheduler) {
+        this.staff = staff;
+        this.scheduler = scheduler;
+        this.permissions = Collections.unmodifiableSet(RolePermissions.permissionsOf(staff.getRole()));
+        this.requiresRoster = RolePermissions.requiresRoster(staff.getRole());
+    }
+
+    /**
+     * opening a session for an authenticated staff member
+     *
+     * @param staff
+     * @param scheduler
+     * @return
+     */
+    public static Session opening(Staff staff, Scheduler scheduler) {
+        if (staff == null) throw new UnAuthorizationException("No staff provided");
+        Session session = new Session(staff, scheduler);
+        session.dutyWindow = session.derivingDutyWindow();
+        return session;
+    }
+
+    /**
+     * allows
+     *
+     * @param access
+     * @return
+     */
+    public boolean allows(AuthAccess access) {
+        return !closed && access != null && permissions.contains(access);
+    }
+
+    /**
+     * isOnDuty, managers are never rostered and always count as on duty
+     *
+     * @return
+     */
+    public boolean isOnDuty() {
+        if (closed) return false;
+        if (!requiresRoster) return true;
+        DutyWindow window = dutyWindow;
+        if (window.rosterVersion() != scheduler.getRosterVersion() || System.currentTimeMillis() >= window.untilMillis()) {
+            window = derivingDutyWindow();
+            dutyWindow = window;
+        }
+        return window.onDuty();
+    }
+
+    /**
+     * requireOrThrow checks permission and, for rostered roles, the duty window
+     *
+     * @param access
+     */
+    public void requireOrThrow(AuthAccess access) {
+        if (closed) throw new UnAuthorizationException("Session closed, please log in again");
+        if (!allows(access)) throw new UnAuthorizationException("Not authorized for action: " + access);
+        if (!isOnDuty()) throw new UnAuthorizationException("Staff not rostered at this time");
+    }
+
+    /**
+     * closing the session on logout
+     */
+    public void closing() {
+        closed = true;
+    }
+
+    public Staff getStaff() {
+        return staff;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public Set<AuthAccess> getPermissions() {
+        return closed ? EnumSet.noneOf(AuthAccess.class) : permissions;
+    }
+
+    /**
+     * getDutyUntil
+     *
+     * @return end of the current shift, null when off duty or not rostered
+     */
+    public LocalDateTime getDutyUntil() {
+        return requiresRoster && isOnDuty() ? dutyWindow.until() : null;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * derivingDutyWindow asks the scheduler once; when off duty the answer holds until the next roster boundary
+     *
+     * @return
+     */
+    private DutyWindow derivingDutyWindow() {
+        long version = scheduler.getRosterVersion();
+        if (!requiresRoster) return new DutyWindow(true, Long.MAX_VALUE, null, version);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = scheduler.dutyWindowEnd(staff, now);
+        // shift ends are inclusive, the window closes just after the end
+        LocalDateTime until = end != null ? end.plusNanos(1) : scheduler.getOnDutyRoster().nextBoundary();
+        return new DutyWindow(end != null, until.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), end, version);
+    }
+}
@@ -1,15 +1,13 @@
 package com.healthcare.home.controllers;
 
-import com.healthcare.home.audit.AuditTrailLog;
 import com.healthcare.home.auth.AuthAccess;
+import com.healthcare.home.auth.Session;
 import com.healthcare.home.core.ResidentHealthCareHome;
 import com.healthcare.home.entities.*;
 import com.healthcare.home.exceptions.UnAuthorizationException;
+import com.healthcare.home.exceptions.VersionConflictException;
 import com.healthcare.home.staff.*;
-import com.healthcare.home.auth.AuthService;
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
@@ -40,14 +38,16 @@ public class DoctorDashboard extends MainDashboard {
      * init
      *
      * @param home
-     * @param staff
+     * @param session
      */
-    public void init(ResidentHealthCareHome home, Staff staff) {
-        this.staff = staff;
+    public void init(ResidentHealthCareHome home, Session session) {
+        this.staff = session.getStaff();
+        setSession(session);
         setHome(home);
         setupTable();
+        followingBoard(Role.DOCTOR, this::replacingRows);
         refreshBeds();
-        prescribeButton.setVisible(staff.hasAccess(AuthAccess.WRITE_PRESCRIPTION));
+        prescribeButton.setVisible(session.allows(AuthAccess.WRITE_PRESCRIPTION));
     }
 
     /**
@@ -67,23 +67,10 @@ public class DoctorDashboard extends MainDashboard {
     }
 
     /**
-     * Refreshing the bed list
+     * Refreshing the bed list from the doctor board, later changes replace single rows
      */
     private void refreshBeds() {
-        ObservableList<BedRow> rows = FXCollections.observableArrayList();
-        for (Bed bed : getHome().getBedList().values()) {
-            String residentName = bed.isVacant() ? "" : bed.getResident().getName();
-            Gender gender = bed.isVacant() ? null : bed.getResident().getGender();
-            // include residentId to allow prescription lookup
-            BedRow bedRow = new BedRow(bed.getId(), residentName, gender);
-            // attach resident id on the row via a public field
-            try {
-                bedRow.residentId = bed.isVacant() ? "" : bed.getResident().getId();
-            } catch (Exception ignored) {
-            }
-            rows.add(bedRow);
-        }
-        bedTable.setItems(rows);
+        bedTable.setItems(showingBoard());
     }
 
     /**
@@ -92,10 +79,8 @@ public class DoctorDashboard extends MainDashboard {
     @FXML
     public void onPrescribe() {
         try {
-            AuthService.authorizeOrThrow(staff, AuthAccess.WRITE_PRESCRIPTION);
-            getHome().requireAuthorizeRole(staff, Role.DOCTOR);
-            getHome().requireOnDutyStaff(staff);
-        } catch (SecurityException | UnAuthorizationException ex) {
+            home.requireSession(session, AuthAccess.WRITE_PRESCRIPTION);
+        } catch (UnAuthorizationException ex) {
             popupAlert("Not allowed. " + ex.getMessage());
             return;
         }
@@ -172,7 +157,7 @@ public class DoctorDashboard extends MainDashboard {
                     }
                 }
 
-                Prescription prescription = new Prescription(staff.getId(), medicine, dose, timeList);
+                Prescription prescription = new Prescription(home.getIdAllocator(), staff.getId(), medicine, dose, timeList);
                 newPrescriptions.add(prescription);
 
                 // clear for next entry
@@ -188,13 +173,14 @@ public class DoctorDashboard extends MainDashboard {
 
         if (!newPrescriptions.isEmpty()) {
 
-            getHome().writingPrescription((Doctor) staff, selectedItem.bedId.get(), newPrescriptions);
-
-            for (Prescription newPrescription : newPrescriptions) {
-                AuditTrailLog.entryLog(staff.getId(), "WRITE_PRESCRIPTION",
-                        "Prescription " + newPrescription.getId() + " added for resident " + resident.getId());
+            try {
+                getHome().writingPrescription((Doctor) staff, selectedItem.bedId.get(), newPrescriptions, selectedItem.residentVersion);
+            } catch (VersionConflictException ex) {
+                refreshBeds();
+                popupAlert("The resident was changed by someone else, please check and prescribe again.");
+                return;
             }
-            refreshBeds();
+
             popupAlert("Added " + newPrescriptions.size() + " prescriptions successfully!");
 
         }
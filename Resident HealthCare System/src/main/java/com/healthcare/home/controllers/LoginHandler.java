@@ -1,13 +1,17 @@
 package com.healthcare.home.controllers;
 
-import com.healthcare.home.Main;
+import com.healthcare.home.auth.Session;
 import com.healthcare.home.core.ResidentHealthCareHome;
-import com.healthcare.home.staff.Staff;
+import com.healthcare.home.exceptions.LoginLockedOutException;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletionException;
+
 /**
  * LoginHandler Class responsible to authenticate and login the user
  */
@@ -19,7 +23,28 @@ public class LoginHandler {
     @FXML
     private Button loginButton;
 
-    private final ResidentHealthCareHome home = Main.getHome();
+    private final ResidentHealthCareHome home;
+
+    /**
+     * LoginHandler Constructor
+     *
+     * @param home the facility users log into
+     */
+    public LoginHandler(ResidentHealthCareHome home) {
+        this.home = home;
+    }
+
+    /**
+     * loader for the login view, its controller logs into the given home
+     *
+     * @param home
+     * @return
+     */
+    public static FXMLLoader loader(ResidentHealthCareHome home) {
+        FXMLLoader loader = new FXMLLoader(LoginHandler.class.getResource("/com/healthcare/home/view/login.fxml"));
+        loader.setControllerFactory(type -> type == LoginHandler.class ? new LoginHandler(home) : null);
+        return loader;
+    }
 
     /**
      * initialize user
@@ -48,9 +73,31 @@ public class LoginHandler {
             return;
         }
 
+        // hash verification is slow on purpose, keep it off the JavaFX thread
+        loginButton.setDisable(true);
+        home.loggingInAsync(username, password).whenComplete((session, error) -> Platform.runLater(() -> {
+            loginButton.setDisable(false);
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof LoginLockedOutException) {
+                popupAlert("Login Locked", cause.getMessage());
+                return;
+            }
+            if (cause != null) {
+                popupAlert("Error", "Something went wrong: " + cause.getMessage());
+                return;
+            }
+            onAuthenticated(session);
+        }));
+    }
+
+    /**
+     * onAuthenticated runs on the JavaFX thread once verification finished
+     *
+     * @param session
+     */
+    private void onAuthenticated(Session session) {
         try {
-            Staff staff = home.authenticate(username, password);
-            if (staff == null) {
+            if (session == null) {
                 popupAlert("Login Failed", "Invalid username or password.");
                 this.username.setStyle("-fx-border-color: red;");
                 this.password.setStyle("-fx-border-color: red;");
@@ -59,7 +106,7 @@ public class LoginHandler {
 
             // Login success
             Stage st = (Stage) this.username.getScene().getWindow();
-            DashboardRouter.showDashboard(staff, st);
+            DashboardRouter.showDashboard(home, session, st);
         } catch (Exception ex) {
             popupAlert("Error", "Something went wrong: " + ex.getMessage());
         }
@@ -1,9 +1,17 @@
 package com.healthcare.home.controllers;
 
+import com.healthcare.home.auth.Session;
 import com.healthcare.home.core.ResidentHealthCareHome;
 import com.healthcare.home.core.SerializingHandlerService;
 import com.healthcare.home.entities.*;
+import com.healthcare.home.facility.FacilityTopology;
+import com.healthcare.home.scheduler.MedicationRoundIndex;
+import com.healthcare.home.views.BedBoard;
+import com.healthcare.home.views.BedSummary;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -15,7 +23,12 @@ import javafx.scene.shape.Circle;
 import javafx.stage.Stage;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * MainDashboard
@@ -29,6 +42,91 @@ public abstract class MainDashboard {
     @Setter
     protected ResidentHealthCareHome home;
 
+    // session opened at login, closed again on logout
+    @Setter
+    protected Session session;
+
+    // the role's board and the rows shown from it; a changed bed replaces its row, found by bed id
+    protected BedBoard board;
+    private Consumer<List<BedSummary>> boardSubscriber;
+    private final ObservableList<BedRow> rows = FXCollections.observableArrayList();
+    private final Map<String, Integer> rowIndex = new HashMap<>();
+    private FacilityTopology shownTopology;
+
+    /**
+     * followingBoard of the role, the changed summaries of every later change are handed over on the JavaFX thread;
+     * the subscription ends on logout
+     *
+     * @param role
+     * @param changes
+     */
+    protected void followingBoard(Role role, Consumer<List<BedSummary>> changes) {
+        board = home.boardFor(role);
+        boardSubscriber = board.subscribing(changed -> Platform.runLater(() -> changes.accept(changed)));
+    }
+
+    /**
+     * showingBoard shows every row of the board; the layout is read first, so one that changes while
+     * the rows are read is caught by the next change
+     *
+     * @return the rows, for the table to show
+     */
+    protected ObservableList<BedRow> showingBoard() {
+        shownTopology = board.getTopology();
+        return showingRows(board.rows());
+    }
+
+    /**
+     * showingBeds shows the rows of the given beds only, such as those of a search; the layout is read first
+     * as for showingBoard
+     *
+     * @param bedIds
+     * @return the rows, for the table to show
+     */
+    protected ObservableList<BedRow> showingBeds(List<String> bedIds) {
+        shownTopology = board.getTopology();
+        List<BedSummary> summaries = new ArrayList<>(bedIds.size());
+        for (String bedId : bedIds) {
+            BedSummary summary = board.row(bedId);
+            if (summary != null) summaries.add(summary);
+        }
+        return showingRows(summaries);
+    }
+
+    /**
+     * showingRows replaces the rows of the table with those of the summaries
+     *
+     * @param summaries
+     * @return the rows, for the table to show
+     */
+    protected ObservableList<BedRow> showingRows(List<BedSummary> summaries) {
+        List<BedRow> shown = new ArrayList<>(summaries.size());
+        rowIndex.clear();
+        for (BedSummary summary : summaries) {
+            rowIndex.put(summary.bedId(), shown.size());
+            shown.add(new BedRow(summary));
+        }
+        rows.setAll(shown);
+        return rows;
+    }
+
+    /**
+     * replacingRows of the changed beds that are shown, every other row is left alone unless the layout changed
+     *
+     * @param changed
+     */
+    protected void replacingRows(List<BedSummary> changed) {
+        // a layout change adds and removes beds, the whole board is shown again
+        if (board.getTopology() != shownTopology) {
+            showingBoard();
+            return;
+        }
+        for (BedSummary summary : changed) {
+            Integer index = rowIndex.get(summary.bedId());
+            if (index != null) rows.set(index, new BedRow(summary));
+        }
+    }
+
     /**
      * Shared table column setup for all dashboards
      *
@@ -106,34 +204,37 @@ public abstract class MainDashboard {
                     return;
                 }
 
-                Bed bed = home.getBedList().get(row.bedId.get());
-                if (bed == null || bed.isVacant()) {
+                BedSummary summary = row.summary;
+                if (summary.isVacant()) {
                     setGraphic(new Label(""));
                     return;
                 }
 
-                Resident resident = bed.getResident();
-                if (resident == null || resident.getPrescriptionList() == null || resident.getPrescriptionList().isEmpty()) {
+                if (summary.prescriptions().isEmpty()) {
                     setGraphic(new Label("No prescription"));
                     return;
                 }
 
-                List<Prescription> prescriptions = resident.getPrescriptionList();
-
                 expandedBox = new VBox(4);
                 expandedBox.setVisible(false);
                 expandedBox.setAlignment(Pos.CENTER_LEFT);
                 expandedBox.setStyle("-fx-padding: 4 0 0 18;");
 
-                for (Prescription prescription : prescriptions) {
-                    String prescriptionInfo = prescription.getMedicine() + " (" + prescription.getDose() + ") at " +
-                            (prescription.getTimes() != null ? prescription.getTimes().toString() : "N/A");
+                for (String prescriptionInfo : summary.prescriptions()) {
                     Label label = new Label(prescriptionInfo);
                     label.setStyle("-fx-font-size: 12;");
                     expandedBox.getChildren().add(label);
                 }
 
                 VBox vBoxContainer = new VBox(5);
+                // nurse boards carry the next dose of the round
+                MedicationRoundIndex.DueDose nextDue = summary.nextDue();
+                if (nextDue != null) {
+                    Label dueLabel = new Label("Next: " + nextDue.medicine() + " (" + nextDue.dose() + ") at "
+                            + nextDue.dueAt().toLocalTime() + (nextDue.dueAt().isBefore(LocalDateTime.now()) ? " - overdue" : ""));
+                    dueLabel.setStyle("-fx-font-size: 12;");
+                    vBoxContainer.getChildren().add(dueLabel);
+                }
                 vBoxContainer.getChildren().addAll(expandButton, expandedBox);
                 vBoxContainer.setAlignment(Pos.CENTER_LEFT);
 
@@ -148,6 +249,8 @@ public abstract class MainDashboard {
      */
     @FXML
     public void onLogout() {
+        if (session != null) session.closing();
+        if (boardSubscriber != null) board.unsubscribing(boardSubscriber);
         try {
             // save all patient related records before logout
             try {
@@ -159,9 +262,7 @@ public abstract class MainDashboard {
             }
 
             Stage stage = (Stage) logoutButton.getScene().getWindow();
-            javafx.fxml.FXMLLoader loader = new javafx.fxml.FXMLLoader(
-                    getClass().getResource("/com/healthcare/home/view/login.fxml"));
-            stage.setScene(new Scene(loader.load()));
+            stage.setScene(new Scene(LoginHandler.loader(home).load()));
             stage.setTitle("Login");
         } catch (Exception ex) {
             ex.printStackTrace();
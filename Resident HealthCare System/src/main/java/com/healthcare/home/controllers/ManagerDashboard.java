@@ -1,25 +1,29 @@
 package com.healthcare.home.controllers;
 
-import com.healthcare.home.audit.AuditTrailLog;
 import com.healthcare.home.auth.AuthAccess;
+import com.healthcare.home.auth.Session;
 import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.exceptions.UnAuthorizationException;
+import com.healthcare.home.exceptions.VersionConflictException;
 import com.healthcare.home.entities.Bed;
 import com.healthcare.home.entities.BedRow;
 import com.healthcare.home.entities.Resident;
 import com.healthcare.home.entities.Gender;
+import com.healthcare.home.entities.Role;
+import com.healthcare.home.search.ResidentSearchIndex;
 import com.healthcare.home.staff.*;
-import com.healthcare.home.auth.AuthService;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * ManagerDashboard
  */
 public class ManagerDashboard extends MainDashboard {
+    private static final int SEARCH_LIMIT = 50;
     private Staff staff;
 
     @FXML
@@ -36,34 +40,45 @@ public class ManagerDashboard extends MainDashboard {
     private Button addStaffButton;
     @FXML
     private Button dischargeButton;
+    @FXML
+    private TextField searchField;
 
     /**
      * init
      *
      * @param home
-     * @param staff
+     * @param session
      */
-    public void init(ResidentHealthCareHome home, Staff staff) {
-        this.staff = staff;
+    public void init(ResidentHealthCareHome home, Session session) {
+        this.staff = session.getStaff();
+        setSession(session);
         setHome(home);
         setupTable();
+        // with a search the changed rows may enter or leave the result, so it is run again
+        followingBoard(Role.MANAGER, changed -> {
+            if (searchField == null || searchField.getText().isBlank()) replacingRows(changed);
+            else refreshBeds();
+        });
         refreshBeds();
-        addResidentButton.setVisible(staff.hasAccess(AuthAccess.ADD_RESIDENT));
-        addStaffButton.setVisible(staff.hasAccess(AuthAccess.ADD_STAFF));
-        dischargeButton.setVisible(staff.hasAccess(AuthAccess.DISCHARGE_RESIDENT));
+        // type-ahead: the table shows only the beds of the matching residents while the field is not empty
+        searchField.textProperty().addListener((observable, before, query) -> refreshBeds());
+        addResidentButton.setVisible(session.allows(AuthAccess.ADD_RESIDENT));
+        addStaffButton.setVisible(session.allows(AuthAccess.ADD_STAFF));
+        dischargeButton.setVisible(session.allows(AuthAccess.DISCHARGE_RESIDENT));
     }
 
     /**
      * refreshBeds method to refresh the bed list with updated items and values
      */
     private void refreshBeds() {
-        ObservableList<BedRow> bedRows = FXCollections.observableArrayList();
-        for (Bed bed : home.getBedList().values()) {
-            String residentName = bed.isVacant() ? "" : bed.getResident().getName();
-            Gender gender = bed.isVacant() ? null : bed.getResident().getGender();
-            bedRows.add(new BedRow(bed.getId(), residentName, gender));
+        String query = searchField == null ? "" : searchField.getText().trim();
+        if (query.isEmpty()) {
+            bedTable.setItems(showingBoard());
+            return;
         }
-        bedTable.setItems(bedRows);
+        List<String> matching = new ArrayList<>();
+        for (ResidentSearchIndex.Match match : home.searchResidents(query, SEARCH_LIMIT, false)) matching.add(match.bedId());
+        bedTable.setItems(showingBeds(matching));
     }
 
     /**
@@ -72,8 +87,8 @@ public class ManagerDashboard extends MainDashboard {
     @FXML
     public void onAddResident() {
         try {
-            AuthService.authorizeOrThrow(staff, AuthAccess.ADD_RESIDENT);
-        } catch (SecurityException ex) {
+            home.requireSession(session, AuthAccess.ADD_RESIDENT);
+        } catch (UnAuthorizationException ex) {
             popupAlert("Not allowed. " + ex.getMessage());
             return;
         }
@@ -123,13 +138,14 @@ public class ManagerDashboard extends MainDashboard {
                     popupAlert("All fields are required!");
                     return;
                 }
-                Resident resident = new Resident(name,
+                Resident resident = new Resident(home.getIdAllocator(), name,
                         "MALE".equalsIgnoreCase(gender) ? Gender.MALE : Gender.FEMALE,
                         "YES".equalsIgnoreCase(isolation), selectedItem.getBedId());
-                home.assigningResidentToBed(staff, String.valueOf(selectedItem.bedId.get()), resident);
-                AuditTrailLog.entryLog(staff.getId(), "ADD_RESIDENT", "Assigned resident " + resident.getId() + " to bed " + selectedItem.bedId.get());
-                refreshBeds();
+                home.assigningResidentToBed(staff, String.valueOf(selectedItem.bedId.get()), resident, selectedItem.bedVersion);
                 popupAlert("Resident added successfully!");
+            } catch (VersionConflictException ex) {
+                refreshBeds();
+                popupAlert("The bed was changed by someone else, please check it and try again.");
             } catch (Exception ex) {
                 popupAlert("Error: " + ex.getMessage());
             }
@@ -142,8 +158,8 @@ public class ManagerDashboard extends MainDashboard {
     @FXML
     public void onAddStaff() {
         try {
-            AuthService.authorizeOrThrow(staff, AuthAccess.ADD_STAFF);
-        } catch (SecurityException se) {
+            home.requireSession(session, AuthAccess.ADD_STAFF);
+        } catch (UnAuthorizationException se) {
             popupAlert("Not allowed. " + se.getMessage());
             return;
         }
@@ -193,14 +209,12 @@ public class ManagerDashboard extends MainDashboard {
                 }
 
                 Staff newStaff = switch (role) {
-                    case "MANAGER" -> new Manager(name, username, password);
-                    case "DOCTOR" -> new Doctor(name, username, password);
-                    case "NURSE" -> new Nurse(name, username, password);
+                    case "MANAGER" -> new Manager(home.getIdAllocator(), name, username, password);
+                    case "DOCTOR" -> new Doctor(home.getIdAllocator(), name, username, password);
+                    case "NURSE" -> new Nurse(home.getIdAllocator(), name, username, password);
                     default -> null;
                 };
                 home.addingNewStaff(staff, newStaff);
-                AuditTrailLog.entryLog(staff.getId(), "ADD_STAFF", "Added staff " + newStaff.getId() + " role " + role);
-                refreshBeds();
                 popupAlert("Staff added successfully!");
             } catch (Exception ex) {
                 popupAlert("Error: " + ex.getMessage());
@@ -214,8 +228,8 @@ public class ManagerDashboard extends MainDashboard {
     @FXML
     public void onDischarge() {
         try {
-            AuthService.authorizeOrThrow(staff, AuthAccess.DISCHARGE_RESIDENT);
-        } catch (SecurityException ex) {
+            home.requireSession(session, AuthAccess.DISCHARGE_RESIDENT);
+        } catch (UnAuthorizationException ex) {
             popupAlert("Not allowed. " + ex.getMessage());
             return;
         }
@@ -241,10 +255,11 @@ public class ManagerDashboard extends MainDashboard {
         Optional<ButtonType> result = confirmAlert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
-                home.dischargingResident(staff, resident.getBedId());
-                AuditTrailLog.entryLog(staff.getId(), "DISCHARGE_RESIDENT", "Discharged resident " + resident.getId());
-                refreshBeds();
+                home.dischargingResident(staff, selectedItem.getBedId(), selectedItem.bedVersion);
                 popupAlert("Resident " + resident.getName() + " has been discharged successfully.");
+            } catch (VersionConflictException ex) {
+                refreshBeds();
+                popupAlert("The bed was changed by someone else, please check it and try again.");
             } catch (Exception ex) {
                 popupAlert("Error discharging resident: " + ex.getMessage());
             }
@@ -267,7 +282,7 @@ public class ManagerDashboard extends MainDashboard {
             Alert alert = new Alert(Alert.AlertType.INFORMATION, "Resident: " + resident.getId() + " - " + resident.getName());
             alert.setHeaderText("Resident Details");
             alert.showAndWait();
-            AuditTrailLog.entryLog(staff.getId(), "VIEW_RESIDENT", "Viewed resident " + resident.getId() + " from bed " + bedId);
+            home.getAuditTrailLog().entryLog(staff.getId(), "VIEW_RESIDENT", "Viewed resident " + resident.getId() + " from bed " + bedId);
         } catch (Exception ex) {
             popupAlert(ex.getMessage());
         }
@@ -1,19 +1,23 @@
 package com.healthcare.home.controllers;
 
-import com.healthcare.home.audit.AuditTrailLog;
 import com.healthcare.home.auth.AuthAccess;
+import com.healthcare.home.auth.Session;
+import com.healthcare.home.core.DoseConfirmation;
 import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.core.RoundResult;
 import com.healthcare.home.entities.*;
 import com.healthcare.home.exceptions.UnAuthorizationException;
+import com.healthcare.home.exceptions.VersionConflictException;
 import com.healthcare.home.staff.Nurse;
 import com.healthcare.home.staff.Staff;
-import com.healthcare.home.auth.AuthService;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * NurseDashboard
@@ -38,15 +42,17 @@ public class NurseDashboard extends MainDashboard {
      * init
      *
      * @param home
-     * @param staff
+     * @param session
      */
-    public void init(ResidentHealthCareHome home, Staff staff) {
-        this.staff = staff;
+    public void init(ResidentHealthCareHome home, Session session) {
+        this.staff = session.getStaff();
+        setSession(session);
         setHome(home);
         setupTable();
+        followingBoard(Role.NURSE, this::replacingRows);
         refreshBeds();
-        moveButton.setVisible(staff.hasAccess(AuthAccess.MOVE_RESIDENT));
-        administerButton.setVisible(staff.hasAccess(AuthAccess.ADMINISTER_MEDICATION));
+        moveButton.setVisible(session.allows(AuthAccess.MOVE_RESIDENT));
+        administerButton.setVisible(session.allows(AuthAccess.ADMINISTER_MEDICATION));
     }
 
     /**
@@ -59,17 +65,10 @@ public class NurseDashboard extends MainDashboard {
     }
 
     /**
-     * refreshBeds
+     * refreshBeds shows every row of the nurse board, later changes replace single rows
      */
     private void refreshBeds() {
-        ObservableList<BedRow> rows = FXCollections.observableArrayList();
-        for (Bed bed : getHome().getBedList().values()) {
-            String residentName = bed.isVacant() ? "" : bed.getResident().getName();
-            BedRow row = new BedRow(bed.getId(), residentName, bed.isVacant() ? null : bed.getResident().getGender());
-            row.residentId = bed.isVacant() ? "" : bed.getResident().getId();
-            rows.add(row);
-        }
-        bedTable.setItems(rows);
+        bedTable.setItems(showingBoard());
     }
 
     /**
@@ -85,8 +84,8 @@ public class NurseDashboard extends MainDashboard {
     @FXML
     public void onMove() {
         try {
-            AuthService.authorizeOrThrow(staff, AuthAccess.MOVE_RESIDENT);
-        } catch (SecurityException ex) {
+            home.requireSession(session, AuthAccess.MOVE_RESIDENT);
+        } catch (UnAuthorizationException ex) {
             popupAlert("Not allowed. " + ex.getMessage());
             return;
         }
@@ -97,29 +96,33 @@ public class NurseDashboard extends MainDashboard {
             return;
         }
 
-        // Collect vacant beds
-        var vacantBeds = getHome().getBedList().values().stream()
-                .filter(Bed::isVacant)
-                .map(Bed::getId)
-                .toList();
+        Resident resident = getHome().getResidentInBed(selectedItem.bedId.get());
+        if (resident == null) {
+            popupAlert("No resident in the selected bed");
+            return;
+        }
 
+        // vacant beds matching the resident's gender and isolation needs, best match preselected
+        List<String> vacantBeds = getHome().getCompatibleBedIds(resident);
         if (vacantBeds.isEmpty()) {
-            popupAlert("No vacant beds available right now");
+            popupAlert("No compatible vacant beds available right now");
             return;
         }
+        Bed suggested = getHome().suggestBed(resident);
 
-        ChoiceDialog<String> dialog = new ChoiceDialog<>(vacantBeds.get(0), vacantBeds);
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(suggested != null ? suggested.getId() : vacantBeds.get(0), vacantBeds);
         dialog.setTitle("Move Resident");
         dialog.setHeaderText("Move resident from Bed " + selectedItem.bedId.get());
         dialog.setContentText("Select destination bed:");
 
         dialog.showAndWait().ifPresent(destination -> {
             try {
-                getHome().movingResidentToNewBed((Nurse) staff, String.valueOf(selectedItem.bedId.get()), destination);
-                AuditTrailLog.entryLog(staff.getId(), "MOVE_RESIDENT",
-                        "Moved resident from " + selectedItem.bedId.get() + " to " + destination);
-                refreshBeds();
+                getHome().movingResidentToNewBed((Nurse) staff, String.valueOf(selectedItem.bedId.get()), destination,
+                        selectedItem.bedVersion, ResidentHealthCareHome.ANY_VERSION);
                 popupAlert("Resident moved to bed " + destination + " successfully!");
+            } catch (VersionConflictException ex) {
+                refreshBeds();
+                popupAlert("The bed was changed by someone else, please check it and try again.");
             } catch (Exception ex) {
                 popupAlert("Error: " + ex.getMessage());
             }
@@ -132,10 +135,8 @@ public class NurseDashboard extends MainDashboard {
     @FXML
     public void onAdminister() {
         try {
-            AuthService.authorizeOrThrow(staff, AuthAccess.ADMINISTER_MEDICATION);
-            getHome().requireAuthorizeRole(staff, Role.NURSE);
-            getHome().requireOnDutyStaff(staff);
-        } catch (SecurityException | UnAuthorizationException ex) {
+            home.requireSession(session, AuthAccess.ADMINISTER_MEDICATION);
+        } catch (UnAuthorizationException ex) {
             popupAlert("Not allowed. " + ex.getMessage());
             return;
         } catch (Exception ex) {
@@ -160,11 +161,16 @@ public class NurseDashboard extends MainDashboard {
             return;
         }
 
-        // Create medicine selection dialog
-        List<String> medicineNames = resident.getPrescriptionList().stream()
-                .map(prescription -> prescription.getMedicine() + " (" + prescription.getDose() + ")")
-                .toList();
+        // versions as shown to the nurse, a dose recorded by someone else meanwhile is a conflict
+        Map<String, Prescription> choices = new LinkedHashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        for (Prescription prescription : resident.getPrescriptionList()) {
+            choices.put(prescription.getMedicine() + " (" + prescription.getDose() + ") " + prescription.getId(), prescription);
+            versions.put(prescription.getId(), prescription.getVersion());
+        }
 
+        // Create medicine selection dialog
+        List<String> medicineNames = List.copyOf(choices.keySet());
         ChoiceDialog<String> dialog = new ChoiceDialog<>(medicineNames.get(0), medicineNames);
         dialog.setTitle("Administer Medicine");
         dialog.setHeaderText("Select medicine to administer");
@@ -172,18 +178,11 @@ public class NurseDashboard extends MainDashboard {
 
         dialog.showAndWait().ifPresent(selectedMedicine -> {
             try {
-                String medicineName = selectedMedicine.split(" ")[0];
-                for (Prescription prescription : resident.getPrescriptionList()) {
-                    if (prescription.getMedicine().equalsIgnoreCase(medicineName)) {
-                        prescription.administer(staff.getId()); // mark as administered
-                        AuditTrailLog.entryLog(staff.getId(), "ADMINISTER_MEDICINE",
-                                "Administered " + medicineName + " to resident " + resident.getName());
-                        popupAlert("Dose administered for " + medicineName);
-                        break;
-                    }
-                }
-                getHome().saveAllStateToFile(null);
-                refreshBeds();
+                Prescription prescription = choices.get(selectedMedicine);
+                RoundResult result = getHome().administeringRound(staff, List.of(new DoseConfirmation(prescription.getId(),
+                        prescription.getDose(), LocalDateTime.now(), versions.get(prescription.getId()))));
+                if (result.isApplied()) popupAlert("Dose administered for " + prescription.getMedicine());
+                else popupAlert("Error: " + result.rejected().get(0).message());
             } catch (Exception ex) {
                 popupAlert("Error: " + ex.getMessage());
             }
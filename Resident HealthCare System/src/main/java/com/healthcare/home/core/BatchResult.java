@@ -0,0 +1,42 @@
+package com.healthcare.home.core;
+
+import java.util.List;
+
+/**
+ * BatchResult of ResidentHealthCareHome.applyingBatch, one item per operation in batch order.
+ * A batch is all or nothing: when any operation is rejected none is applied.
+ *
+ * @param items
+ */
+public record BatchResult(List<Item> items) {
+
+    public enum Status {APPLIED, REJECTED, NOT_APPLIED}
+
+    /**
+     * Item
+     *
+     * @param operation
+     * @param status
+     * @param message reason of a rejection, empty otherwise
+     */
+    public record Item(BedOperation operation, Status status, String message) {
+    }
+
+    /**
+     * isApplied
+     *
+     * @return true when every operation was applied
+     */
+    public boolean isApplied() {
+        return items.stream().allMatch(item -> item.status() == Status.APPLIED);
+    }
+
+    /**
+     * rejected
+     *
+     * @return the items that failed validation
+     */
+    public List<Item> rejected() {
+        return items.stream().filter(item -> item.status() == Status.REJECTED).toList();
+    }
+}
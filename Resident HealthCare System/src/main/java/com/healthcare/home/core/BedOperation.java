@@ -0,0 +1,59 @@
+package com.healthcare.home.core;
+
+import com.healthcare.home.entities.Resident;
+
+import java.util.stream.Stream;
+
+/**
+ * BedOperation is one admit, move or discharge of a batch applied by ResidentHealthCareHome.applyingBatch
+ *
+ * @param kind
+ * @param bedId   bed admitted to, moved from or discharged from
+ * @param toBedId destination of a move, null otherwise
+ * @param resident resident of an admit, null otherwise
+ */
+public record BedOperation(Kind kind, String bedId, String toBedId, Resident resident) {
+
+    public enum Kind {ADMIT, MOVE, DISCHARGE}
+
+    /**
+     * admitting
+     *
+     * @param bedId
+     * @param resident
+     * @return
+     */
+    public static BedOperation admitting(String bedId, Resident resident) {
+        return new BedOperation(Kind.ADMIT, bedId, null, resident);
+    }
+
+    /**
+     * moving
+     *
+     * @param fromBedId
+     * @param toBedId
+     * @return
+     */
+    public static BedOperation moving(String fromBedId, String toBedId) {
+        return new BedOperation(Kind.MOVE, fromBedId, toBedId, null);
+    }
+
+    /**
+     * discharging
+     *
+     * @param bedId
+     * @return
+     */
+    public static BedOperation discharging(String bedId) {
+        return new BedOperation(Kind.DISCHARGE, bedId, null, null);
+    }
+
+    /**
+     * bedIds touched by the operation
+     *
+     * @return
+     */
+    public Stream<String> bedIds() {
+        return toBedId == null ? Stream.of(bedId) : Stream.of(bedId, toBedId);
+    }
+}
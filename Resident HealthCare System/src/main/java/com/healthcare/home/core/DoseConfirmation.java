@@ -0,0 +1,27 @@
+package com.healthcare.home.core;
+
+import java.time.LocalDateTime;
+
+/**
+ * DoseConfirmation is one dose a nurse confirms giving during a ward round, applied by
+ * ResidentHealthCareHome.administeringRound
+ *
+ * @param prescriptionId
+ * @param dose            dose given, must be the prescribed one
+ * @param at              time the dose was given
+ * @param expectedVersion version of the prescription the nurse read, or ResidentHealthCareHome.ANY_VERSION
+ */
+public record DoseConfirmation(String prescriptionId, String dose, LocalDateTime at, long expectedVersion) {
+
+    /**
+     * confirming without a version check
+     *
+     * @param prescriptionId
+     * @param dose
+     * @param at
+     * @return
+     */
+    public static DoseConfirmation confirming(String prescriptionId, String dose, LocalDateTime at) {
+        return new DoseConfirmation(prescriptionId, dose, at, ResidentHealthCareHome.ANY_VERSION);
+    }
+}
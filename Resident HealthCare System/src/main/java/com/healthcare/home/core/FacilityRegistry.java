@@ -0,0 +1,133 @@
+package com.healthcare.home.core;
+
+import com.healthcare.home.exceptions.ValidationFailedException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * FacilityRegistry hosts several homes in one process. Each facility is a ResidentHealthCareHome with its own
+ * storage directory below the registry root, holding its snapshot, audit log, archives and roster history,
+ * and its own id allocator and scheduler, so facilities never share state.
+ */
+public class FacilityRegistry {
+    private static final Pattern FACILITY_ID = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final Duration CLOSING_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Path root;
+    private final Map<String, ResidentHealthCareHome> homes = new ConcurrentHashMap<>();
+
+    /**
+     * FacilityRegistry Constructor
+     *
+     * @param root directory holding one sub directory per facility
+     */
+    public FacilityRegistry(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * opening the facility stored in root/facilityId, loading or creating it on first use
+     *
+     * @param facilityId
+     * @return
+     */
+    public ResidentHealthCareHome opening(String facilityId) {
+        return opening(facilityId, root.resolve(validating(facilityId)));
+    }
+
+    /**
+     * opening the facility stored in the given directory, loading or creating it on first use
+     *
+     * @param facilityId
+     * @param storageDirectory
+     * @return
+     */
+    public ResidentHealthCareHome opening(String facilityId, Path storageDirectory) {
+        return homes.computeIfAbsent(validating(facilityId), id -> {
+            try {
+                Files.createDirectories(storageDirectory);
+            } catch (IOException ex) {
+                throw new ValidationFailedException("Cannot create storage directory " + storageDirectory + ": " + ex.getMessage());
+            }
+            ResidentHealthCareHome home = SerializingHandlerService.readOrCreateFile(storageDirectory);
+            home.persistingChanges();
+            return home;
+        });
+    }
+
+    /**
+     * getHome
+     *
+     * @param facilityId
+     * @return the open home, or null
+     */
+    public ResidentHealthCareHome getHome(String facilityId) {
+        return homes.get(facilityId);
+    }
+
+    /**
+     * facilityIds of the open facilities
+     *
+     * @return
+     */
+    public Set<String> facilityIds() {
+        return Collections.unmodifiableSet(new TreeSet<>(homes.keySet()));
+    }
+
+    /**
+     * saving one open facility to its storage directory
+     *
+     * @param facilityId
+     */
+    public void saving(String facilityId) {
+        ResidentHealthCareHome home = homes.get(facilityId);
+        if (home != null) SerializingHandlerService.saveRecordsInFile(home);
+    }
+
+    /**
+     * savingAll open facilities
+     */
+    public void savingAll() {
+        homes.values().forEach(SerializingHandlerService::saveRecordsInFile);
+    }
+
+    /**
+     * closing delivers the facility's pending events, saves it, stops its scheduler and flushes its pending lockouts
+     *
+     * @param facilityId
+     */
+    public void closing(String facilityId) {
+        ResidentHealthCareHome home = homes.remove(facilityId);
+        if (home == null) return;
+        home.getEventBus().closing(CLOSING_TIMEOUT);
+        SerializingHandlerService.saveRecordsInFile(home);
+        home.getScheduler().stoppingScheduler();
+        home.loginRateLimiter().flushingLockouts();
+    }
+
+    /**
+     * closingAll open facilities
+     */
+    public void closingAll() {
+        for (String facilityId : new ArrayList<>(homes.keySet())) closing(facilityId);
+    }
+
+    /**
+     * validating the facility id, it becomes a directory name
+     *
+     * @param facilityId
+     * @return
+     */
+    private static String validating(String facilityId) {
+        if (facilityId == null || !FACILITY_ID.matcher(facilityId).matches()) {
+            throw new ValidationFailedException("Invalid facility id: " + facilityId);
+        }
+        return facilityId;
+    }
+}
@@ -0,0 +1,50 @@
+package com.healthcare.home.core;
+
+import com.healthcare.home.exceptions.VersionConflictException;
+
+import java.util.function.Supplier;
+
+/**
+ * OptimisticRetry reruns an action that failed with a VersionConflictException. The action must read the
+ * versions it passes to the home afresh on every attempt, otherwise it only repeats the same conflict.
+ */
+public final class OptimisticRetry {
+    public static final int DEFAULT_ATTEMPTS = 3;
+
+    private OptimisticRetry() {
+    }
+
+    /**
+     * retrying the action until it succeeds or the attempts are used up
+     *
+     * @param attempts
+     * @param action
+     * @return
+     * @param <T>
+     * @throws VersionConflictException of the last attempt
+     */
+    public static <T> T retrying(int attempts, Supplier<T> action) {
+        if (attempts < 1) throw new IllegalArgumentException("attempts must be positive");
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (VersionConflictException ex) {
+                if (attempt >= attempts) throw ex;
+                // another client just won, back off briefly before reading again
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * retrying the action with the default number of attempts
+     *
+     * @param action
+     */
+    public static void retrying(Runnable action) {
+        retrying(DEFAULT_ATTEMPTS, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,311 @@
+package com.healthcare.home.core;
+
+import com.healthcare.home.audit.AuditTrailLog;
+import com.healthcare.home.entities.Prescription;
+import com.healthcare.home.entities.Resident;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.events.DomainEvent;
+import com.healthcare.home.scheduler.NotificationEngine;
+import com.healthcare.home.scheduler.Reminder;
+import com.healthcare.home.scheduler.RosterCompliance;
+import com.healthcare.home.scheduler.TimingWheel;
+import com.healthcare.home.staff.Staff;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * ReminderPlanner keeps the NotificationEngine loaded with the shift, dose and compliance reminders of a rolling
+ * window. The timer handles are kept per subject (the shifts of a staff member, one prescription, the compliance
+ * deadlines); a domain event re-plans only the subjects it changed, cancelling their old timers in O(1), and the
+ * whole window is planned again every REPLANNING_INTERVAL so it keeps reaching window ahead.
+ * A reminder that already fired is remembered until its event passed and is not scheduled again.
+ */
+public class ReminderPlanner {
+    public static final Duration REPLANNING_INTERVAL = Duration.ofHours(1);
+    private static final String SHIFTS = "SHIFT:";
+    private static final String DOSES = "DOSE:";
+    private static final String COMPLIANCE = "COMPLIANCE";
+
+    private final ResidentHealthCareHome home;
+    private final NotificationEngine engine;
+    private final Duration window;
+    private final Duration lead;
+    private final Supplier<LocalDateTime> clock;
+    // subject key -> timers of its reminders, fired ones included until their event passed
+    private final Map<String, List<TimingWheel.Timer<Reminder>>> timers = new HashMap<>();
+    private final Map<String, Set<String>> prescriptionsOfResident = new HashMap<>();
+    private Consumer<List<DomainEvent>> subscriber;
+    private ScheduledExecutorService executor;
+
+    /**
+     * ReminderPlanner Constructor
+     *
+     * @param home
+     * @param engine
+     * @param window how far ahead reminders are scheduled
+     * @param lead   how long before its event a reminder fires
+     * @param clock
+     */
+    public ReminderPlanner(ResidentHealthCareHome home, NotificationEngine engine, Duration window, Duration lead, Supplier<LocalDateTime> clock) {
+        this.home = home;
+        this.engine = engine;
+        this.window = window;
+        this.lead = lead;
+        this.clock = clock;
+    }
+
+    /**
+     * planning every subject for the window from now
+     *
+     * @return number of reminders pending
+     */
+    public synchronized int planning() {
+        LocalDateTime now = clock.get();
+        planningShifts(now);
+        Set<String> planned = new HashSet<>();
+        for (Resident resident : home.getAllResidents().values()) {
+            if (resident.getPrescriptionList() == null) continue;
+            for (Prescription prescription : resident.getPrescriptionList()) {
+                planningDoses(resident, prescription, now);
+                planned.add(DOSES + prescription.getId());
+            }
+        }
+        // prescriptions of residents no longer in the home
+        for (String key : new ArrayList<>(timers.keySet())) {
+            if (key.startsWith(DOSES) && !planned.contains(key)) replacing(key, Map.of());
+        }
+        prescriptionsOfResident.keySet().retainAll(home.getAllResidents().keySet());
+        return pendingCount();
+    }
+
+    /**
+     * following the home's events, only the subjects an event changed are planned again
+     */
+    public synchronized void following() {
+        if (subscriber == null) subscriber = home.getEventBus().subscribing(this::applying);
+    }
+
+    /**
+     * start following the events and planning the window again every REPLANNING_INTERVAL, on a daemon thread
+     */
+    public synchronized void start() {
+        following();
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminder-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = REPLANNING_INTERVAL.toMillis();
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                planning();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop following and planning, reminders already scheduled stay on the engine
+     */
+    public synchronized void stop() {
+        if (subscriber != null) home.getEventBus().unsubscribing(subscriber);
+        subscriber = null;
+        if (executor != null) executor.shutdownNow();
+        executor = null;
+    }
+
+    /**
+     * auditing delivered reminders to the home's audit trail as one batch, subscribed to the engine
+     *
+     * @param reminders
+     */
+    public void auditing(List<Reminder> reminders) {
+        List<AuditTrailLog.EntryRecord> entries = new ArrayList<>(reminders.size());
+        for (Reminder reminder : reminders) {
+            entries.add(new AuditTrailLog.EntryRecord(clock.get(), "System", "REMINDER_" + reminder.type(), reminder.message()));
+        }
+        home.getAuditTrailLog().entryLogs(entries);
+    }
+
+    /**
+     * pendingCount
+     *
+     * @return reminders scheduled and not yet fired
+     */
+    public synchronized int pendingCount() {
+        int pending = 0;
+        for (List<TimingWheel.Timer<Reminder>> handles : timers.values()) {
+            for (TimingWheel.Timer<Reminder> timer : handles) if (timer.isPending()) pending++;
+        }
+        return pending;
+    }
+
+    /**
+     * pendingFor
+     *
+     * @param subjectId staff id, prescription id or, for compliance deadlines, the date
+     * @return the reminders about the subject that are scheduled and not yet fired
+     */
+    public synchronized List<Reminder> pendingFor(String subjectId) {
+        List<Reminder> pending = new ArrayList<>();
+        for (List<TimingWheel.Timer<Reminder>> handles : timers.values()) {
+            for (TimingWheel.Timer<Reminder> timer : handles) {
+                if (timer.isPending() && timer.getPayload().subjectId().equals(subjectId)) pending.add(timer.getPayload());
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * applying a batch of events to the subjects they changed
+     *
+     * @param events
+     */
+    private synchronized void applying(List<DomainEvent> events) {
+        LocalDateTime now = clock.get();
+        boolean rosterChanged = false;
+        for (DomainEvent event : events) {
+            if (event instanceof DomainEvent.ShiftAssigned) {
+                rosterChanged = true;
+            } else if (event instanceof DomainEvent.ResidentAdmitted admitted) {
+                Resident resident = home.getAllResidents().get(admitted.residentId());
+                if (resident != null && resident.getPrescriptionList() != null) {
+                    for (Prescription prescription : resident.getPrescriptionList()) planningDoses(resident, prescription, now);
+                }
+            } else if (event instanceof DomainEvent.PrescriptionWritten written) {
+                Resident resident = home.getAllResidents().get(written.residentId());
+                Prescription prescription = home.getPrescriptionList().get(written.prescriptionId());
+                if (resident != null && prescription != null) planningDoses(resident, prescription, now);
+            } else if (event instanceof DomainEvent.ResidentDischarged discharged) {
+                Set<String> prescriptionIds = prescriptionsOfResident.remove(discharged.residentId());
+                if (prescriptionIds != null) prescriptionIds.forEach(id -> replacing(DOSES + id, Map.of()));
+            }
+        }
+        // end of shift reminders name the cover of the same role, so every staff member's are planned again
+        if (rosterChanged) planningShifts(now);
+    }
+
+    /**
+     * planningShifts plans the shift start and end reminders of every rostered staff member, and the
+     * compliance deadlines
+     *
+     * @param now
+     */
+    private void planningShifts(LocalDateTime now) {
+        LocalDateTime until = now.plus(window);
+        LocalDate fromDate = now.toLocalDate();
+        LocalDate toDate = until.toLocalDate();
+        Map<Staff, List<Shift>> upcoming = new HashMap<>();
+        for (Staff staff : home.getScheduler().getRosteredStaff()) {
+            upcoming.put(staff, home.getScheduler().shiftsBetween(staff.getId(), fromDate, toDate));
+        }
+        Set<String> planned = new HashSet<>();
+        for (Map.Entry<Staff, List<Shift>> entry : upcoming.entrySet()) {
+            Staff staff = entry.getKey();
+            Map<Reminder, LocalDateTime> reminders = new LinkedHashMap<>();
+            for (Shift shift : entry.getValue()) {
+                if (!shift.start().isBefore(now) && !shift.start().isAfter(until)) {
+                    reminders.put(new Reminder(Reminder.Type.SHIFT_START, staff.getId(), shift.start(),
+                            "Shift of " + staff.getName() + " starts at " + shift.start()), shift.start().minus(lead));
+                }
+                if (!shift.end().isBefore(now) && !shift.end().isAfter(until)) {
+                    boolean covered = isCoveredAfter(upcoming, staff, shift.end());
+                    reminders.put(new Reminder(Reminder.Type.SHIFT_END, staff.getId(), shift.end(),
+                            "Shift of " + staff.getName() + " ends at " + shift.end() + (covered ? "" : ", no " + staff.getRole() + " rostered after it")),
+                            shift.end().minus(lead));
+                }
+            }
+            replacing(SHIFTS + staff.getId(), reminders);
+            planned.add(SHIFTS + staff.getId());
+        }
+        for (String key : new ArrayList<>(timers.keySet())) {
+            if (key.startsWith(SHIFTS) && !planned.contains(key)) replacing(key, Map.of());
+        }
+
+        Map<Reminder, LocalDateTime> deadlines = new LinkedHashMap<>();
+        RosterCompliance.ComplianceReport report = RosterCompliance.evaluate(home.getScheduler(), home.getStaffList());
+        for (LocalDate date = fromDate; !date.isAfter(toDate); date = date.plusDays(1)) {
+            RosterCompliance.DayCoverage coverage = report.coverage().get(date.getDayOfWeek());
+            LocalDateTime deadline = date.atTime(8, 0);
+            if (deadline.isBefore(now) || deadline.isAfter(until)) continue;
+            if (coverage.morningNurses() == 0 || coverage.eveningNurses() == 0 || coverage.doctorOneHourShifts() == 0) {
+                deadlines.put(new Reminder(Reminder.Type.COMPLIANCE_DEADLINE, date.toString(), deadline,
+                        "Roster for " + date.getDayOfWeek() + " is not compliant"), deadline.minus(lead));
+            }
+        }
+        replacing(COMPLIANCE, deadlines);
+    }
+
+    /**
+     * planningDoses of one prescription of the resident
+     *
+     * @param resident
+     * @param prescription
+     * @param now
+     */
+    private void planningDoses(Resident resident, Prescription prescription, LocalDateTime now) {
+        LocalDateTime until = now.plus(window);
+        Map<Reminder, LocalDateTime> reminders = new LinkedHashMap<>();
+        for (LocalDate date = now.toLocalDate(); !date.isAfter(until.toLocalDate()); date = date.plusDays(1)) {
+            for (LocalTime dueTime : prescription.dueTimesOfDay()) {
+                LocalDateTime dueAt = date.atTime(dueTime);
+                if (dueAt.isBefore(now) || dueAt.isAfter(until)) continue;
+                reminders.put(new Reminder(Reminder.Type.DOSE_DUE, prescription.getId(), dueAt,
+                        prescription.getMedicine() + " (" + prescription.getDose() + ") due for " + resident.getName()), dueAt.minus(lead));
+            }
+        }
+        prescriptionsOfResident.computeIfAbsent(resident.getId(), r -> new HashSet<>()).add(prescription.getId());
+        replacing(DOSES + prescription.getId(), reminders);
+    }
+
+    /**
+     * replacing the timers of a subject: pending ones are cancelled, fired ones are kept while their reminder
+     * is still planned so it does not fire twice
+     *
+     * @param key
+     * @param reminders reminder -> time to fire it
+     */
+    private void replacing(String key, Map<Reminder, LocalDateTime> reminders) {
+        Map<Reminder, TimingWheel.Timer<Reminder>> fired = new HashMap<>();
+        for (TimingWheel.Timer<Reminder> timer : timers.getOrDefault(key, List.of())) {
+            if (!timer.cancel()) fired.put(timer.getPayload(), timer);
+        }
+        List<TimingWheel.Timer<Reminder>> handles = new ArrayList<>(reminders.size());
+        reminders.forEach((reminder, fireAt) -> {
+            TimingWheel.Timer<Reminder> done = fired.get(reminder);
+            handles.add(done != null ? done : engine.scheduling(reminder, fireAt));
+        });
+        if (handles.isEmpty()) timers.remove(key);
+        else timers.put(key, handles);
+    }
+
+    /**
+     * isCoveredAfter checks another staff of the same role is rostered just after the given time
+     *
+     * @param upcoming
+     * @param staff
+     * @param time
+     * @return
+     */
+    private static boolean isCoveredAfter(Map<Staff, List<Shift>> upcoming, Staff staff, LocalDateTime time) {
+        LocalDateTime justAfter = time.plusMinutes(1);
+        for (Map.Entry<Staff, List<Shift>> entry : upcoming.entrySet()) {
+            if (entry.getKey() == staff || entry.getKey().getRole() != staff.getRole()) continue;
+            for (Shift shift : entry.getValue()) {
+                if (!justAfter.isBefore(shift.start()) && !justAfter.isAfter(shift.end())) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,16 +2,33 @@ package com.healthcare.home.core;
 
 import com.healthcare.home.audit.AuditTrailLog;
 import com.healthcare.home.exceptions.*;
+import com.healthcare.home.facility.FacilityLayout;
+import com.healthcare.home.facility.FacilityTopology;
+import com.healthcare.home.facility.VacancyIndex;
 import com.healthcare.home.entities.*;
+import com.healthcare.home.events.DomainEvent;
+import com.healthcare.home.events.DomainEventBus;
 import com.healthcare.home.auth.AuthAccess;
-import com.healthcare.home.scheduler.Scheduler;
+import com.healthcare.home.auth.LoginRateLimiter;
+import com.healthcare.home.auth.Session;
+import com.healthcare.home.scheduler.*;
+import com.healthcare.home.search.ResidentSearchIndex;
 import com.healthcare.home.entities.Shift;
 import com.healthcare.home.staff.*;
+import com.healthcare.home.views.BedBoard;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * ResidentHealthCareHome
@@ -19,35 +36,333 @@ import java.util.*;
 @Data
 public class ResidentHealthCareHome implements Serializable {
     private static final long serialVersionUID = 1L;
+    // expected version of the versioned mutations that skips the check, last writer wins
+    public static final long ANY_VERSION = -1;
+    // how far back a round looks for doses that were due and not given
+    public static final Duration OVERDUE_WINDOW = Duration.ofHours(12);
+    // a second dose of the same prescription within this interval is refused as a double dose
+    public static final Duration MINIMUM_DOSE_INTERVAL = Duration.ofMinutes(30);
+    private static final String ROSTER_HISTORY_FILE = "roster_history.dat";
 
-    private final Map<String, Bed> bedList = new HashMap<>();
-    private final Map<String, Staff> staffList = new HashMap<>();
-    private final Map<String, Resident> residentList = new HashMap<>();
-    private final Map<String, Prescription> prescriptionList = new HashMap<>();
+    // concurrent maps, bed and resident changes are additionally serialised per ward by wardLocks;
+    // not final so readObject can upgrade the HashMaps of older snapshots
+    @Setter(AccessLevel.NONE)
+    private Map<String, Bed> bedList = new ConcurrentHashMap<>();
+    // ward / room / bed structure, replaced as a whole when beds are registered
+    @Setter(AccessLevel.NONE)
+    private volatile FacilityTopology topology;
+    @Setter(AccessLevel.NONE)
+    private Map<String, Staff> staffList = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<String, Resident> residentList = new ConcurrentHashMap<>();
+    @Setter(AccessLevel.NONE)
+    private Map<String, Prescription> prescriptionList = new ConcurrentHashMap<>();
     private final Scheduler scheduler = new Scheduler();
-    private final AuditTrailLog auditTrailLog = AuditTrailLog.get();
+    // every home keeps its audit log, id allocator and files in its own storage directory
+    @Setter(AccessLevel.NONE)
+    private String storageDirectory;
+    @Setter(AccessLevel.NONE)
+    private AuditTrailLog auditTrailLog;
+    // restored from the snapshot header rather than serialized with the home
+    @Setter(AccessLevel.NONE)
+    private transient IdAllocator idAllocator = new IdAllocator();
+    private RosterRetentionPolicy rosterRetentionPolicy = RosterRetentionPolicy.DEFAULT;
+    @Getter(AccessLevel.NONE)
+    private transient Map<String, List<Staff>> usernameIndex;
+    @Getter(AccessLevel.NONE)
+    private transient ExecutorService authExecutor;
+    @Getter(AccessLevel.NONE)
+    private transient LoginRateLimiter loginRateLimiter;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient WardLocks wardLocks = new WardLocks();
+    // read-only live views handed out by the accessors, built once instead of copying per call
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<String, Bed> bedView;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<String, Staff> staffView;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<String, Resident> residentView;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<String, Prescription> prescriptionView;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient volatile VacancyIndex vacancyIndex;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient ResidentSearchIndex residentSearchIndex;
+    // resident id -> bed id, changed under the ward lock together with the bed
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<String, String> residentBeds = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient MedicationRoundIndex medicationRoundIndex;
+    // audit, persistence and dashboards subscribe to the changes instead of being called inline
+    @Setter(AccessLevel.NONE)
+    private transient DomainEventBus eventBus;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Consumer<List<DomainEvent>> persister;
+    // dashboard read models, one per role, built on first use and kept current from the events
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Map<Role, BedBoard> boards;
+    private RosterHistoryStore rosterHistoryStore;
 
     /**
-     * ResidentHealthCareHome Constructor
+     * ResidentHealthCareHome Constructor with the configured facility layout
      */
     public ResidentHealthCareHome() {
-        bedList.put("W1-R101-B1", new Bed("W1-R101-B1"));
-        bedList.put("W1-R101-B2", new Bed("W1-R101-B2"));
-        bedList.put("W1-R101-B3", new Bed("W1-R101-B3"));
-        bedList.put("W1-R101-B4", new Bed("W1-R101-B4"));
-        bedList.put("W1-R102-B1", new Bed("W1-R102-B1"));
-        bedList.put("W1-R102-B2", new Bed("W1-R102-B2"));
-        bedList.put("W1-R103-B1", new Bed("W1-R103-B1"));
-        bedList.put("W2-R201-B1", new Bed("W2-R201-B1"));
-        bedList.put("W2-R201-B2", new Bed("W2-R201-B2"));
-        bedList.put("W2-R201-B3", new Bed("W2-R201-B3"));
-        bedList.put("W2-R201-B4", new Bed("W2-R201-B4"));
-        bedList.put("W2-R202-B1", new Bed("W2-R202-B1"));
-        bedList.put("W2-R202-B2", new Bed("W2-R202-B2"));
-        bedList.put("W2-R203-B1", new Bed("W2-R203-B1"));
-
-        Manager manager = new Manager("Manager", "admin", "MANAGER-PASSWORD");
+        this(FacilityLayout.configured());
+    }
+
+    /**
+     * ResidentHealthCareHome Constructor storing its files in the working directory
+     *
+     * @param layout
+     */
+    public ResidentHealthCareHome(List<FacilityLayout.BedSpec> layout) {
+        this(java.nio.file.Path.of("."), layout);
+    }
+
+    /**
+     * ResidentHealthCareHome Constructor
+     *
+     * @param storageDirectory directory of the audit log, archives and snapshot of this home
+     * @param layout
+     */
+    public ResidentHealthCareHome(java.nio.file.Path storageDirectory, List<FacilityLayout.BedSpec> layout) {
+        this.storageDirectory = storageDirectory.toString();
+        this.auditTrailLog = AuditTrailLog.inDirectory(storageDirectory);
+        this.rosterHistoryStore = new RosterHistoryStore(storageDirectory.resolve(ROSTER_HISTORY_FILE));
+        List<String> bedIds = new ArrayList<>(layout.size());
+        for (FacilityLayout.BedSpec spec : layout) bedIds.add(spec.bedId());
+        topology = FacilityTopology.fromBedIds(bedIds);
+        for (FacilityLayout.BedSpec spec : layout) bedList.put(spec.bedId(), creatingBed(spec));
+
+        Manager manager = new Manager(idAllocator, "Manager", "admin", "MANAGER-PASSWORD");
         staffList.put(manager.getId(), manager);
+        indexingStaff(manager);
+        creatingViews();
+        vacancyIndex = new VacancyIndex(topology, bedList);
+        residentSearchIndex = new ResidentSearchIndex();
+        medicationRoundIndex = new MedicationRoundIndex();
+        creatingEventBus();
+    }
+
+    /**
+     * registeringBed
+     *
+     * @param bed
+     */
+    public void registeringBed(Bed bed) {
+        registeringBeds(List.of(bed));
+    }
+
+    /**
+     * registeringBeds adds beds to the topology in one renumbering and then to the bed map
+     *
+     * @param beds
+     */
+    public synchronized void registeringBeds(Collection<Bed> beds) {
+        List<String> bedIds = new ArrayList<>(beds.size());
+        for (Bed bed : beds) bedIds.add(bed.getId());
+        rebuildingVacancyIndex(bedIds, () -> {
+            topology = topology.withBeds(bedIds);
+            for (Bed bed : beds) bedList.put(bed.getId(), bed);
+        });
+    }
+
+    /**
+     * rebuildingVacancyIndex applies the change and swaps in an index read from the beds while every ward
+     * is locked, so no admission, move or discharge updates the index being replaced
+     *
+     * @param newBedIds beds the change adds, their wards are locked too
+     * @param change
+     */
+    private void rebuildingVacancyIndex(Collection<String> newBedIds, Runnable change) {
+        Set<String> bedIds = new HashSet<>(bedList.keySet());
+        bedIds.addAll(newBedIds);
+        wardLocks.inAllWards(bedIds, () -> {
+            change.run();
+            vacancyIndex = new VacancyIndex(topology, bedList);
+            return null;
+        });
+    }
+
+    /**
+     * LayoutDiff is the outcome of applying a layout to a running home
+     *
+     * @param added
+     * @param updated
+     * @param removed
+     * @param keptOccupied beds missing from the layout that stay because a resident is in them
+     */
+    public record LayoutDiff(List<String> added, List<String> updated, List<String> removed, List<String> keptOccupied) {
+        public boolean isUnchanged() {
+            return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    /**
+     * reloadingLayout applies the configured layout file
+     *
+     * @return
+     */
+    public LayoutDiff reloadingLayout() {
+        return applyingLayout(FacilityLayout.configured());
+    }
+
+    /**
+     * applyingLayout diffs the layout against the current beds: new beds are added, changed policies
+     * are updated in place and vacant beds missing from the layout are removed. Occupied beds are never
+     * removed, and the topology and vacancy index are rebuilt once for the whole diff.
+     *
+     * @param layout
+     * @return
+     */
+    public synchronized LayoutDiff applyingLayout(List<FacilityLayout.BedSpec> layout) {
+        List<String> added = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> keptOccupied = new ArrayList<>();
+        Set<String> wanted = new HashSet<>();
+
+        for (FacilityLayout.BedSpec spec : layout) {
+            if (!wanted.add(spec.bedId())) throw new ValidationFailedException("Duplicate bed id in layout: " + spec.bedId());
+            Bed bed = bedList.get(spec.bedId());
+            if (bed == null) {
+                added.add(spec.bedId());
+            } else if (bed.isIsolated() != spec.isolated() || bed.getGender() != spec.gender()) {
+                wardLocks.inWard(spec.bedId(), () -> {
+                    bed.setIsolated(spec.isolated());
+                    bed.setGender(spec.gender());
+                    bed.advancingVersion();
+                    return null;
+                });
+                updated.add(spec.bedId());
+            }
+        }
+        for (String bedId : bedList.keySet()) {
+            if (wanted.contains(bedId)) continue;
+            boolean vacant = wardLocks.inWard(bedId, () -> {
+                Bed bed = bedList.get(bedId);
+                if (!bed.isVacant()) return false;
+                // an admit or move that looked the bed up before the removal fails its version check
+                bedList.remove(bedId);
+                bed.advancingVersion();
+                return true;
+            });
+            (vacant ? removed : keptOccupied).add(bedId);
+        }
+
+        // policy-only changes keep the numbering, only the vacancy classes are rebuilt
+        if (!added.isEmpty() || !removed.isEmpty() || !updated.isEmpty()) {
+            rebuildingVacancyIndex(added, () -> {
+                if (added.isEmpty() && removed.isEmpty()) return;
+                List<String> bedIds = new ArrayList<>(bedList.keySet());
+                bedIds.addAll(added);
+                topology = FacilityTopology.fromBedIds(bedIds);
+                for (FacilityLayout.BedSpec spec : layout) {
+                    if (!bedList.containsKey(spec.bedId())) bedList.put(spec.bedId(), creatingBed(spec));
+                }
+            });
+        }
+
+        LayoutDiff diff = new LayoutDiff(List.copyOf(added), List.copyOf(updated), List.copyOf(removed), List.copyOf(keptOccupied));
+        if (!diff.isUnchanged() || !keptOccupied.isEmpty()) {
+            auditTrailLog.entryLog("System", "RELOAD_LAYOUT", "Layout applied: " + added.size() + " added, " + updated.size()
+                    + " updated, " + removed.size() + " removed, " + keptOccupied.size() + " occupied beds kept");
+        }
+        return diff;
+    }
+
+    /**
+     * creatingBed
+     *
+     * @param spec
+     * @return
+     */
+    private static Bed creatingBed(FacilityLayout.BedSpec spec) {
+        Bed bed = new Bed(spec.bedId());
+        bed.setIsolated(spec.isolated());
+        bed.setGender(spec.gender());
+        return bed;
+    }
+
+    /**
+     * settingBedIsolation changes whether a bed can take isolation residents
+     *
+     * @param bedId
+     * @param isolated
+     */
+    public synchronized void settingBedIsolation(String bedId, boolean isolated) {
+        Bed bed = findBed(bedId);
+        rebuildingVacancyIndex(List.of(), () -> {
+            bed.setIsolated(isolated);
+            bed.advancingVersion();
+        });
+    }
+
+    /**
+     * suggestBed returns the best compatible vacant bed from the vacancy index,
+     * searching the resident's current ward first
+     *
+     * @param resident
+     * @return bed, or null when no compatible bed is vacant
+     */
+    public Bed suggestBed(Resident resident) {
+        String preferredWard = resident.getBedId() == null ? null : FacilityTopology.wardOf(resident.getBedId());
+        String bedId = vacancyIndex.suggestBed(resident, preferredWard);
+        return bedId == null ? null : bedList.get(bedId);
+    }
+
+    /**
+     * getCompatibleBedIds lists the vacant beds the resident may be placed in
+     *
+     * @param resident
+     * @return
+     */
+    public List<String> getCompatibleBedIds(Resident resident) {
+        return vacancyIndex.compatibleBedIds(resident);
+    }
+
+    /**
+     * getBedsInWard reads the ward's slice of the topology
+     *
+     * @param wardId
+     * @return
+     */
+    public List<Bed> getBedsInWard(String wardId) {
+        return bedsOf(topology.bedIdsInWard(wardId));
+    }
+
+    /**
+     * getBedsInRoom reads the room's slice of the topology
+     *
+     * @param roomId
+     * @return
+     */
+    public List<Bed> getBedsInRoom(String roomId) {
+        return bedsOf(topology.bedIdsInRoom(roomId));
+    }
+
+    /**
+     * bedsOf
+     *
+     * @param bedIds
+     * @return
+     */
+    private List<Bed> bedsOf(List<String> bedIds) {
+        List<Bed> beds = new ArrayList<>(bedIds.size());
+        for (String bedId : bedIds) beds.add(bedList.get(bedId));
+        return beds;
     }
 
     /**
@@ -56,7 +371,9 @@ public class ResidentHealthCareHome implements Serializable {
      * @param staff
      */
     public void registeringNewStaff(Staff staff) {
+        idAllocator.observing(staff.getId());
         staffList.put(staff.getId(), staff);
+        indexingStaff(staff);
         auditTrailLog.entryLog("SystemGenerated", AuthAccess.ADD_STAFF, "Registered staff with id: " + staff.getId());
     }
 
@@ -68,264 +385,878 @@ public class ResidentHealthCareHome implements Serializable {
      */
     public void addingNewStaff(Staff manager, Staff staff) {
         requireAuthorizeManager(manager);
+        idAllocator.observing(staff.getId());
         staffList.put(staff.getId(), staff);
+        indexingStaff(staff);
         auditTrailLog.entryLog(manager.getId(), AuthAccess.ADD_STAFF, "Added staff with id: " + staff.getId());
         assigningDefaultShifts(staff);
     }
 
     /**
-     * assigningDefaultShifts
+     * assigningDefaultShifts
+     *
+     * @param staff
+     */
+    private void assigningDefaultShifts(Staff staff) {
+        LocalDate weekStart = LocalDate.now().with(DayOfWeek.MONDAY);
+        if (staff instanceof Nurse) {
+            List<Nurse> nurses = new ArrayList<>();
+            for (Staff stf : staffList.values()) if (stf instanceof Nurse) nurses.add((Nurse) stf);
+
+            int nurseIndex = nurses.indexOf(staff);
+            boolean isMorningShift = nurseIndex % 2 == 0;
+
+            LocalTime startTime = isMorningShift ? LocalTime.of(8, 0) : LocalTime.of(14, 0);
+            LocalTime endTime = isMorningShift ? LocalTime.of(16, 0) : LocalTime.of(22, 0);
+            scheduler.assigningRecurringShiftToStaff(staff, RecurringShift.everyDay(startTime, endTime, weekStart));
+
+        } else if (staff instanceof Doctor) {
+            scheduler.assigningRecurringShiftToStaff(staff, RecurringShift.everyDay(LocalTime.of(10, 0), LocalTime.of(11, 0), weekStart));
+        }
+    }
+
+    /**
+     * checkingCompliance
+     */
+    public void checkingCompliance() {
+        RosterCompliance.ComplianceReport report = RosterCompliance.evaluate(scheduler, this.getStaffList());
+        if (!report.isCompliant()) {
+            throw new RosterUnfollowedException(report.violations().get(0));
+        }
+    }
+
+    /**
+     * simulatingRosterChanges evaluates proposed changes on an overlay, the live roster is never mutated
+     *
+     * @param manager
+     * @param changes
+     * @return
+     */
+    public RosterSimulationResult simulatingRosterChanges(Staff manager, List<RosterChange> changes) {
+        return simulatingRosterAlternatives(manager, List.of(changes)).get(0);
+    }
+
+    /**
+     * simulatingRosterAlternatives compares many alternatives against one baseline evaluation
+     *
+     * @param manager
+     * @param alternatives
+     * @return
+     */
+    public List<RosterSimulationResult> simulatingRosterAlternatives(Staff manager, List<List<RosterChange>> alternatives) {
+        requireAuthorizeManager(manager);
+        Map<String, Staff> staffMap = this.getStaffList();
+        RosterCompliance.ComplianceReport before = RosterCompliance.evaluate(scheduler, staffMap);
+
+        List<RosterSimulationResult> results = new ArrayList<>(alternatives.size());
+        for (List<RosterChange> changes : alternatives) {
+            RosterOverlay overlay = new RosterOverlay(scheduler);
+            for (RosterChange change : changes) overlay.applying(change);
+            RosterCompliance.ComplianceReport after = RosterCompliance.evaluate(overlay, staffMap);
+            results.add(RosterSimulationResult.comparing(changes, overlay, before, after));
+        }
+        return results;
+    }
+
+    /**
+     * assigningShift
+     *
+     * @param manager
+     * @param staff
+     * @param shift
+     */
+    public void assigningShift(Staff manager, Staff staff, Shift shift) {
+        requireAuthorizeManager(manager);
+        scheduler.assigningShiftToStaff(staff, shift);
+        eventBus.publishing(new DomainEvent.ShiftAssigned(manager.getId(), LocalDateTime.now(), staff.getId(),
+                "shift " + shift.start() + " - " + shift.end()));
+    }
+
+    /**
+     * assigningRecurringShift
+     *
+     * @param manager
+     * @param staff
+     * @param rule
+     */
+    public void assigningRecurringShift(Staff manager, Staff staff, RecurringShift rule) {
+        requireAuthorizeManager(manager);
+        scheduler.assigningRecurringShiftToStaff(staff, rule);
+        eventBus.publishing(new DomainEvent.ShiftAssigned(manager.getId(), LocalDateTime.now(), staff.getId(),
+                "recurring shift " + rule.days() + " " + rule.startTime() + "-" + rule.endTime()));
+    }
+
+    /**
+     * applyingRosterRetention archives shifts older than the retention horizon, keeping only the active window in memory
+     *
+     * @return number of archived shifts
+     */
+    public int applyingRosterRetention() {
+        LocalDateTime cutoff = rosterRetentionPolicy.cutoff(LocalDateTime.now());
+        try {
+            int archived = scheduler.archivingShiftsBefore(cutoff, rosterHistoryStore);
+            if (archived > 0) {
+                auditTrailLog.entryLog("System", AuthAccess.SHIFT_ASSIGNMENT, "Archived " + archived + " shifts ended before " + cutoff);
+            }
+            return archived;
+        } catch (IOException ex) {
+            auditTrailLog.entryLog("System", AuthAccess.SHIFT_ASSIGNMENT, "Roster archive failed " + ex.getMessage());
+            ex.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * readingRosterHistory returns archived shifts for payroll and audit, staffId null matches everyone
+     *
+     * @param staffId
+     * @param from
+     * @param to
+     * @return
+     */
+    public List<RosterHistoryStore.ArchivedShift> readingRosterHistory(String staffId, LocalDateTime from, LocalDateTime to) {
+        try {
+            return rosterHistoryStore.readingShifts(staffId, from, to);
+        } catch (IOException ex) {
+            throw new ValidationFailedException("Roster history unavailable: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * assigningResidentToBed
+     *
+     * @param staff
+     * @param bedId
+     * @param resident
+     */
+    public void assigningResidentToBed(Staff staff, String bedId, Resident resident) {
+        assigningResidentToBed(staff, bedId, resident, ANY_VERSION);
+    }
+
+    /**
+     * assigningResidentToBed unless the bed changed since the caller read its version
+     *
+     * @param staff
+     * @param bedId
+     * @param resident
+     * @param expectedBedVersion version of the bed the caller read, or ANY_VERSION
+     */
+    public void assigningResidentToBed(Staff staff, String bedId, Resident resident, long expectedBedVersion) {
+        Bed bed = findBed(bedId);
+        wardLocks.inWard(bedId, () -> {
+            long bedVersion = requireVersion(bed, expectedBedVersion);
+            if (!bed.isVacant()) throw new BedNotAvailableException("Bed occupied with bed id: " + bedId);
+
+            requireAuthorizeRole(staff, Role.MANAGER);
+
+            placingResident(bedId, bed, resident, bedVersion);
+            eventBus.publishing(new DomainEvent.ResidentAdmitted(staff.getId(), LocalDateTime.now(), resident.getId(), bedId));
+            return null;
+        });
+    }
+
+    /**
+     * movingResidentToNewBed
+     *
+     * @param staff
+     * @param fromBedId
+     * @param toBedId
+     */
+    public void movingResidentToNewBed(Staff staff, String fromBedId, String toBedId) {
+        movingResidentToNewBed(staff, fromBedId, toBedId, ANY_VERSION, ANY_VERSION);
+    }
+
+    /**
+     * movingResidentToNewBed unless either bed changed since the caller read its version
+     *
+     * @param staff
+     * @param fromBedId
+     * @param toBedId
+     * @param expectedFromVersion version of the source bed the caller read, or ANY_VERSION
+     * @param expectedToVersion   version of the destination bed the caller read, or ANY_VERSION
+     */
+    public void movingResidentToNewBed(Staff staff, String fromBedId, String toBedId, long expectedFromVersion, long expectedToVersion) {
+        requireAuthorizeRole(staff, Role.NURSE);
+        requireOnDutyStaff(staff);
+
+        Bed fromBed = findBed(fromBedId);
+        Bed toBed = findBed(toBedId);
+
+        // both wards are locked in a fixed order, the move is atomic to every other bed operation
+        wardLocks.inWards(fromBedId, toBedId, () -> {
+            long fromVersion = requireVersion(fromBed, expectedFromVersion);
+            long toVersion = requireVersion(toBed, expectedToVersion);
+            if (fromBed.getResident() == null)
+                throw new ResidentNotFoundException("No resident in source bed: " + fromBedId);
+            if (!toBed.isVacant()) throw new BedNotAvailableException("Destination already occupied: " + toBedId);
+
+            Resident moved = transferringResident(fromBedId, fromBed, fromVersion, toBedId, toBed, toVersion);
+            eventBus.publishing(new DomainEvent.ResidentMoved(staff.getId(), LocalDateTime.now(), moved.getId(), fromBedId, toBedId));
+            return moved;
+        });
+    }
+
+    /**
+     * searchResidents by prefix of a name word, the resident id or the bed id, with similar names as fallback
+     *
+     * @param query
+     * @param limit
+     * @param includeArchived also search residents discharged since startup or loaded by indexingArchive
+     * @return
+     */
+    public List<ResidentSearchIndex.Match> searchResidents(String query, int limit, boolean includeArchived) {
+        return residentSearchIndex.searching(query, limit, includeArchived);
+    }
+
+    /**
+     * indexingArchive adds the residents of the archive files in the storage directory to the search index
+     *
+     * @return number of archived residents indexed
+     */
+    public int indexingArchive() {
+        int indexed = 0;
+        try (DirectoryStream<java.nio.file.Path> archives = Files.newDirectoryStream(getStorageDirectory(), "archive_*.dat")) {
+            for (java.nio.file.Path archive : archives) {
+                try (ObjectInputStream objectInputStream = new ObjectInputStream(Files.newInputStream(archive))) {
+                    Resident resident = (Resident) objectInputStream.readObject();
+                    residentSearchIndex.indexingArchived(resident.getId(), resident.getName());
+                    indexed++;
+                } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+                    auditTrailLog.entryLog("System", "INDEX_ARCHIVE", "Skipped unreadable archive " + archive.getFileName() + " " + ex.getMessage());
+                }
+            }
+        } catch (IOException ex) {
+            auditTrailLog.entryLog("System", "INDEX_ARCHIVE", "Failed to list archives " + ex.getMessage());
+        }
+        return indexed;
+    }
+
+    /**
+     * findBedOfResident
+     *
+     * @param residentId
+     * @return the bed the resident currently occupies, or null when the resident is not in the home
+     */
+    public Bed findBedOfResident(String residentId) {
+        String bedId = residentId == null ? null : residentBeds.get(residentId);
+        return bedId == null ? null : bedList.get(bedId);
+    }
+
+    /**
+     * movingResidentById moves the resident from wherever it currently is, a move racing with this one
+     * is retried against the resident's new bed
+     *
+     * @param staff
+     * @param residentId
+     * @param toBedId
+     */
+    public void movingResidentById(Staff staff, String residentId, String toBedId) {
+        OptimisticRetry.retrying(OptimisticRetry.DEFAULT_ATTEMPTS, () -> {
+            Bed fromBed = requireBedOfResident(residentId);
+            movingResidentToNewBed(staff, fromBed.getId(), toBedId, versionHoldingResident(fromBed, residentId), ANY_VERSION);
+            return null;
+        });
+    }
+
+    /**
+     * dischargingResidentById discharges the resident from wherever it currently is
+     *
+     * @param staffMember
+     * @param residentId
+     */
+    public void dischargingResidentById(Staff staffMember, String residentId) {
+        OptimisticRetry.retrying(OptimisticRetry.DEFAULT_ATTEMPTS, () -> {
+            Bed bed = requireBedOfResident(residentId);
+            dischargingResident(staffMember, bed.getId(), versionHoldingResident(bed, residentId));
+            return null;
+        });
+    }
+
+    /**
+     * requireBedOfResident
+     *
+     * @param residentId
+     * @return
+     */
+    private Bed requireBedOfResident(String residentId) {
+        Bed bed = findBedOfResident(residentId);
+        if (bed == null) throw new ResidentNotFoundException("Resident not in any bed: " + residentId);
+        return bed;
+    }
+
+    /**
+     * versionHoldingResident reads the bed version, then checks the resident is still in it; the ward lock
+     * later accepts that version only if the bed did not change in between
+     *
+     * @param bed
+     * @param residentId
+     * @return
+     */
+    private static long versionHoldingResident(Bed bed, String residentId) {
+        long version = bed.getVersion();
+        Resident resident = bed.getResident();
+        if (resident == null || !residentId.equals(resident.getId()))
+            throw new VersionConflictException("Resident left the bed", bed.getId(), version, bed.getVersion());
+        return version;
+    }
+
+    /**
+     * getResidentInBed
+     *
+     * @param bedId
+     * @return
+     */
+    public Resident getResidentInBed(String bedId) {
+        Bed bed = bedList.get(bedId);
+        if (bed == null) return null;
+        return bed.getResident();
+    }
+
+    /**
+     * planningMedicationRound lists the doses of the ward due in the coming window and those overdue
+     *
+     * @param wardId
+     * @param ahead
+     * @return ordered by room, then due time
+     */
+    public List<MedicationRoundIndex.DueDose> planningMedicationRound(String wardId, Duration ahead) {
+        return planningMedicationRound(wardId, LocalDateTime.now(), OVERDUE_WINDOW, ahead);
+    }
+
+    /**
+     * planningMedicationRound
+     *
+     * @param wardId
+     * @param now
+     * @param overdueWindow how far back doses not given are reported as overdue
+     * @param ahead
+     * @return ordered by room, then due time
+     */
+    public List<MedicationRoundIndex.DueDose> planningMedicationRound(String wardId, LocalDateTime now, Duration overdueWindow, Duration ahead) {
+        FacilityTopology current = topology;
+        return medicationRoundIndex.planning(wardId, now, overdueWindow, ahead, current::bedIndexOf);
+    }
+
+    /**
+     * nextDueDose of the resident, overdue doses are looked for as far back as OVERDUE_WINDOW
+     *
+     * @param residentId
+     * @param now
+     * @return the earliest outstanding dose, or null when the resident has no scheduled prescription
+     */
+    public MedicationRoundIndex.DueDose nextDueDose(String residentId, LocalDateTime now) {
+        return medicationRoundIndex.nextDue(residentId, now, OVERDUE_WINDOW);
+    }
+
+    /**
+     * boardFor the dashboards of the role, shared by every dashboard of that role
+     *
+     * @param role
+     * @return
+     */
+    public synchronized BedBoard boardFor(Role role) {
+        if (boards == null) boards = new EnumMap<>(Role.class);
+        return boards.computeIfAbsent(role, r -> new BedBoard(this, r));
+    }
+
+    /**
+     * administeringDose records a dose of the prescription given by the nurse
+     *
+     * @param nurse
+     * @param prescriptionId
+     * @param expectedVersion version of the prescription the nurse read, or ANY_VERSION
+     * @return the recorded administration
+     */
+    public Medication administeringDose(Staff nurse, String prescriptionId, long expectedVersion) {
+        requireAuthorizeRole(nurse, Role.NURSE);
+        requireOnDutyStaff(nurse);
+        Prescription prescription = prescriptionId == null ? null : prescriptionList.get(prescriptionId);
+        if (prescription == null) throw new ValidationFailedException("Unknown prescription: " + prescriptionId);
+
+        // scheduled doses are recorded under the ward lock so they cannot interleave with a round; the bed is read
+        // again under the lock, and a resident moved in between is followed to the new ward
+        for (int attempt = 1; attempt <= OptimisticRetry.DEFAULT_ATTEMPTS; attempt++) {
+            String bedId = medicationRoundIndex.bedOf(prescriptionId);
+            Supplier<Medication> recording = () -> Objects.equals(bedId, medicationRoundIndex.bedOf(prescriptionId))
+                    ? recordingDose(nurse, prescription, expectedVersion, bedId) : null;
+            Medication recorded = bedId == null ? recording.get() : wardLocks.inWard(bedId, recording);
+            if (recorded != null) return recorded;
+            Thread.onSpinWait();
+        }
+        throw new ValidationFailedException("Resident of prescription " + prescriptionId + " moved while the dose was recorded");
+    }
+
+    /**
+     * recordingDose, the caller holds the lock of the ward the resident is in
+     *
+     * @param nurse
+     * @param prescription
+     * @param expectedVersion
+     * @param bedId
+     * @return the recorded administration
+     */
+    private Medication recordingDose(Staff nurse, Prescription prescription, long expectedVersion, String bedId) {
+        synchronized (prescription) {
+            LocalDateTime now = LocalDateTime.now();
+            requireDoseInterval(prescription, now);
+            Medication recorded = prescription.administer(nurse.getId(),
+                    expectedVersion == ANY_VERSION ? prescription.getVersion() : expectedVersion, now);
+            LocalDateTime dueAt = medicationRoundIndex.outstandingDue(prescription.getId(), now);
+            medicationRoundIndex.administered(prescription.getId(), now);
+            eventBus.publishing(new DomainEvent.DoseAdministered(nurse.getId(), now, prescription.getId(), bedId,
+                    prescription.getMedicine(), recorded.getDose(), dueAt));
+            return recorded;
+        }
+    }
+
+    /**
+     * administeringRound validates every dose confirmed on a ward round against the medication schedule, then
+     * records all of them or none. The wards of the residents stay locked throughout, and the DoseAdministered
+     * events are published as one batch in round order for audit and persistence.
+     *
+     * @param nurse
+     * @param confirmations
+     * @return one result item per confirmation, in round order
+     */
+    public RoundResult administeringRound(Staff nurse, List<DoseConfirmation> confirmations) {
+        requireAuthorizeRole(nurse, Role.NURSE);
+        requireOnDutyStaff(nurse);
+        List<String> bedIds = confirmations.stream().map(c -> medicationRoundIndex.bedOf(c.prescriptionId())).filter(Objects::nonNull).toList();
+        return wardLocks.inAllWards(bedIds, () -> {
+            Set<String> lockedWards = new HashSet<>();
+            bedIds.forEach(bedId -> lockedWards.add(WardLocks.wardOf(bedId)));
+            LocalDateTime now = LocalDateTime.now();
+            Set<String> confirmed = new HashSet<>();
+            Map<String, List<LocalDateTime>> givenInRound = new HashMap<>();
+            List<LocalDateTime> dueTimes = new ArrayList<>(confirmations.size());
+            List<String> rejections = new ArrayList<>(confirmations.size());
+            for (DoseConfirmation confirmation : confirmations) {
+                try {
+                    dueTimes.add(validatingDose(confirmation, lockedWards, now, confirmed, givenInRound));
+                    rejections.add(null);
+                } catch (RuntimeException ex) {
+                    dueTimes.add(null);
+                    rejections.add(ex.getMessage());
+                }
+            }
+            boolean rejected = rejections.stream().anyMatch(Objects::nonNull);
+
+            List<RoundResult.Item> items = new ArrayList<>(confirmations.size());
+            List<DomainEvent> events = new ArrayList<>(confirmations.size());
+            for (int i = 0; i < confirmations.size(); i++) {
+                DoseConfirmation confirmation = confirmations.get(i);
+                if (rejected) {
+                    String rejection = rejections.get(i);
+                    items.add(rejection == null
+                            ? new RoundResult.Item(confirmation, BatchResult.Status.NOT_APPLIED, null, "")
+                            : new RoundResult.Item(confirmation, BatchResult.Status.REJECTED, null, rejection));
+                    continue;
+                }
+                Prescription prescription = prescriptionList.get(confirmation.prescriptionId());
+                prescription.administer(nurse.getId(), prescription.getVersion(), confirmation.at());
+                medicationRoundIndex.administered(prescription.getId(), confirmation.at());
+                events.add(new DomainEvent.DoseAdministered(nurse.getId(), confirmation.at(), prescription.getId(),
+                        medicationRoundIndex.bedOf(prescription.getId()), prescription.getMedicine(), prescription.getDose(), dueTimes.get(i)));
+                items.add(new RoundResult.Item(confirmation, BatchResult.Status.APPLIED, dueTimes.get(i), ""));
+            }
+            eventBus.publishingAll(events);
+            return new RoundResult(items);
+        });
+    }
+
+    /**
+     * validatingDose of a round, the caller holds the locks of the wards
+     *
+     * @param confirmation
+     * @param lockedWards
+     * @param now
+     * @param confirmed    prescription and due time of the doses validated so far
+     * @param givenInRound prescription id -> times of its doses validated so far
+     * @return the due time the dose is given for
+     */
+    private LocalDateTime validatingDose(DoseConfirmation confirmation, Set<String> lockedWards, LocalDateTime now, Set<String> confirmed,
+                                         Map<String, List<LocalDateTime>> givenInRound) {
+        Prescription prescription = confirmation.prescriptionId() == null ? null : prescriptionList.get(confirmation.prescriptionId());
+        if (prescription == null) throw new ValidationFailedException("Unknown prescription: " + confirmation.prescriptionId());
+        String bedId = medicationRoundIndex.bedOf(prescription.getId());
+        if (bedId == null) throw new ValidationFailedException("Prescription " + prescription.getId() + " has no scheduled doses");
+        if (!lockedWards.contains(WardLocks.wardOf(bedId)))
+            throw new ValidationFailedException("Resident of prescription " + prescription.getId() + " moved during the round");
+        if (confirmation.dose() == null || !confirmation.dose().trim().equalsIgnoreCase(String.valueOf(prescription.getDose()).trim()))
+            throw new ValidationFailedException("Dose " + confirmation.dose() + " does not match prescribed " + prescription.getDose());
+        if (confirmation.at() == null || confirmation.at().isAfter(now))
+            throw new ValidationFailedException("Dose time is missing or in the future: " + confirmation.at());
+        long version = prescription.getVersion();
+        if (confirmation.expectedVersion() != ANY_VERSION && confirmation.expectedVersion() != version)
+            throw new VersionConflictException("Prescription changed since it was read", prescription.getId(), confirmation.expectedVersion(), version);
+        requireDoseInterval(prescription, confirmation.at());
+        // doses earlier in the round are not recorded yet, they count against the interval all the same
+        List<LocalDateTime> given = givenInRound.computeIfAbsent(prescription.getId(), id -> new ArrayList<>());
+        for (LocalDateTime at : given) {
+            if (Duration.between(at, confirmation.at()).abs().compareTo(MINIMUM_DOSE_INTERVAL) < 0)
+                throw new ValidationFailedException("Double dose of " + prescription.getMedicine() + ", also confirmed at " + at + " in this round");
+        }
+        LocalDateTime dueAt = medicationRoundIndex.outstandingDue(prescription.getId(), confirmation.at());
+        if (dueAt == null) throw new ValidationFailedException("No dose of " + prescription.getMedicine() + " outstanding at " + confirmation.at());
+        if (!confirmed.add(prescription.getId() + "@" + dueAt))
+            throw new ValidationFailedException("Dose of " + prescription.getMedicine() + " due " + dueAt + " confirmed twice");
+        given.add(confirmation.at());
+        return dueAt;
+    }
+
+    /**
+     * requireDoseInterval refuses a dose given within MINIMUM_DOSE_INTERVAL of the last one
+     *
+     * @param prescription
+     * @param at
+     */
+    private static void requireDoseInterval(Prescription prescription, LocalDateTime at) {
+        LocalDateTime last = prescription.lastAdministeredAt();
+        if (last != null && Duration.between(last, at).abs().compareTo(MINIMUM_DOSE_INTERVAL) < 0)
+            throw new ValidationFailedException("Double dose of " + prescription.getMedicine() + ", last given at " + last);
+    }
+
+    /**
+     * schedulingPrescriptions of the resident in the medication round index
+     *
+     * @param resident
+     * @param bedId
+     * @param since doses due before it are not owed, null when every dose is owed
+     */
+    private void schedulingPrescriptions(Resident resident, String bedId, LocalDateTime since) {
+        List<Prescription> prescriptions = resident.getPrescriptionList();
+        if (prescriptions == null) return;
+        for (Prescription prescription : prescriptions) medicationRoundIndex.scheduling(prescription, resident.getId(), bedId, since);
+    }
+
+    /**
+     * writingPrescription
+     *
+     * @param doctor
+     * @param bedId
+     * @param newPrescriptions
+     */
+    public void writingPrescription(Staff doctor, String bedId, List<Prescription> newPrescriptions) {
+        writingPrescription(doctor, bedId, newPrescriptions, ANY_VERSION);
+    }
+
+    /**
+     * writingPrescription unless the resident changed since the caller read its version
+     *
+     * @param doctor
+     * @param bedId
+     * @param newPrescriptions
+     * @param expectedResidentVersion version of the resident the caller read, or ANY_VERSION
+     */
+    public void writingPrescription(Staff doctor, String bedId, List<Prescription> newPrescriptions, long expectedResidentVersion) {
+        requireAuthorizeRole(doctor, Role.DOCTOR);
+        requireOnDutyStaff(doctor);
+
+        Bed bed = findBed(bedId);
+        wardLocks.inWard(bedId, () -> {
+            Resident current = bed.getResident();
+            if (current == null) throw new ResidentNotFoundException("No resident in bed: " + bedId);
+            long residentVersion = requireVersion(current, expectedResidentVersion);
+
+            // copy on write, readers outside the ward lock always see a complete list
+            List<Prescription> updated = new ArrayList<>();
+            if (current.getPrescriptionList() != null) updated.addAll(current.getPrescriptionList());
+            updated.addAll(newPrescriptions);
+            current.setPrescriptionList(updated);
+            current.advancingVersion(residentVersion);
+            bed.advancingVersion();
+            LocalDateTime written = LocalDateTime.now();
+            for (Prescription newPrescription : newPrescriptions) {
+                idAllocator.observing(newPrescription.getId());
+                if (newPrescription.getId() != null) prescriptionList.put(newPrescription.getId(), newPrescription);
+                medicationRoundIndex.scheduling(newPrescription, current.getId(), bedId, written);
+                eventBus.publishing(new DomainEvent.PrescriptionWritten(doctor.getId(), written, current.getId(), bedId, newPrescription.getId()));
+            }
+            return current;
+        });
+    }
+
+    /**
+     * dischargingResident
+     *
+     * @param staffMember
+     * @param bedId
+     */
+    public void dischargingResident(Staff staffMember, String bedId) {
+        dischargingResident(staffMember, bedId, ANY_VERSION);
+    }
+
+    /**
+     * dischargingResident unless the bed changed since the caller read its version
+     *
+     * @param staffMember
+     * @param bedId
+     * @param expectedBedVersion version of the bed the caller read, or ANY_VERSION
+     */
+    public void dischargingResident(Staff staffMember, String bedId, long expectedBedVersion) {
+        if (!(staffMember instanceof Manager)) {
+            // nurses may be allowed if rostered
+            requireAuthorizeRole(staffMember, Role.MANAGER);
+            requireOnDutyStaff(staffMember);
+        }
+
+        Bed bed = findBed(bedId);
+        wardLocks.inWard(bedId, () -> {
+            long bedVersion = requireVersion(bed, expectedBedVersion);
+            Resident current = bed.getResident();
+            if (current == null) throw new ResidentNotFoundException("No resident: " + bedId);
+
+            removingResident(staffMember, bedId, bed, bedVersion);
+            eventBus.publishing(new DomainEvent.ResidentDischarged(staffMember.getId(), LocalDateTime.now(), current.getId(), bedId));
+            return current;
+        });
+    }
+
+    /**
+     * applyingBatch validates every admit, move and discharge against the state the earlier operations
+     * of the batch leave behind, then applies all of them or none. The wards of all beds involved stay
+     * locked throughout and the events of the applied operations are published as one batch, in batch order.
      *
      * @param staff
+     * @param operations
+     * @return one result item per operation, in batch order
      */
-    private void assigningDefaultShifts(Staff staff) {
-        if (staff instanceof Nurse) {
-            List<Nurse> nurses = new ArrayList<>();
-            for (Staff stf : staffList.values()) if (stf instanceof Nurse) nurses.add((Nurse) stf);
-
-            int nurseIndex = nurses.indexOf(staff);
-            boolean isMorningShift = nurseIndex % 2 == 0;
-
-            for (DayOfWeek day : DayOfWeek.values()) {
-                LocalDate date = LocalDate.now().with(day);
-
-                LocalDateTime startTime = isMorningShift ? date.atTime(8, 0) : date.atTime(14, 0);
-                LocalDateTime endTime = isMorningShift ? date.atTime(16, 0) : date.atTime(22, 0);
-
-                scheduler.assigningShiftToStaff(staff, new Shift(startTime, endTime));
-            }
-
-        } else if (staff instanceof Doctor) {
-            for (DayOfWeek day : DayOfWeek.values()) {
-                LocalDate date = LocalDate.now().with(day);
-                LocalDateTime startTime = date.atTime(10, 0);
-                LocalDateTime endTime = startTime.plusHours(1);
-                scheduler.assigningShiftToStaff(staff, new Shift(startTime, endTime));
+    public BatchResult applyingBatch(Staff staff, List<BedOperation> operations) {
+        List<String> bedIds = operations.stream().flatMap(BedOperation::bedIds).filter(Objects::nonNull).toList();
+        return wardLocks.inAllWards(bedIds, () -> {
+            List<String> rejections = validatingBatch(staff, operations);
+            boolean rejected = rejections.stream().anyMatch(Objects::nonNull);
+            List<BatchResult.Item> items = new ArrayList<>(operations.size());
+            List<DomainEvent> events = new ArrayList<>(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                BedOperation operation = operations.get(i);
+                if (rejected) {
+                    String rejection = rejections.get(i);
+                    items.add(rejection == null
+                            ? new BatchResult.Item(operation, BatchResult.Status.NOT_APPLIED, "")
+                            : new BatchResult.Item(operation, BatchResult.Status.REJECTED, rejection));
+                    continue;
+                }
+                events.add(applyingOperation(staff, operation));
+                items.add(new BatchResult.Item(operation, BatchResult.Status.APPLIED, ""));
             }
-        }
+            eventBus.publishingAll(events);
+            return new BatchResult(items);
+        });
     }
 
     /**
-     * checkingCompliance
+     * validatingBatch checks the operations in order against an overlay of the bed occupancy
+     *
+     * @param staff
+     * @param operations
+     * @return the rejection message of each operation, null when it is valid
      */
-    public void checkingCompliance() {
-        // copy of roster for inspection
-        Map<String, List<Shift>> roster = scheduler.getDailyRoster();
-
-        // Build mapping staffId -> Staff (for role checks)
-        // staffList is a map in HealthCareHome
-        // For safety use unmodifiable copy
-        Map<String, Staff> staffMap = this.getStaffList();
-
-        // For each day of week, it checks coverage
-        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
-            boolean morningCovered = false;   // 08:00-16:00
-            boolean eveningCovered = false;   // 14:00-22:00
-            boolean doctorOneHourPresent = false;
-
-            // now, iterate through roster entries for each staff
-            for (Map.Entry<String, List<Shift>> entry : roster.entrySet()) {
-                String staffId = entry.getKey();
-                Staff staff = staffMap.get(staffId);
-                if (staff == null) continue;
-                List<Shift> shifts = entry.getValue();
-
-                for (Shift shift : shifts) {
-                    LocalDateTime startTime = (LocalDateTime) shift.start();
-                    LocalDateTime endTime = (LocalDateTime) shift.end();
-
-                    if (!startTime.getDayOfWeek().equals(dayOfWeek)) continue;
-
-                    LocalDate dayDate = startTime.toLocalDate();
-                    LocalDateTime morningStart = LocalDateTime.of(dayDate, LocalTime.of(8, 0));
-                    LocalDateTime morningEnd = LocalDateTime.of(dayDate, LocalTime.of(16, 0));
-                    if (!startTime.isAfter(morningStart) && !endTime.isBefore(morningEnd)) {
-                        if (staff instanceof Nurse) morningCovered = true;
+    private List<String> validatingBatch(Staff staff, List<BedOperation> operations) {
+        // bed id -> occupant after the operations validated so far, beds absent here are unchanged
+        Map<String, Resident> occupancy = new HashMap<>();
+        Set<String> admitted = new HashSet<>();
+        List<String> rejections = new ArrayList<>(operations.size());
+        for (BedOperation operation : operations) {
+            try {
+                switch (operation.kind()) {
+                    case ADMIT -> {
+                        requireAuthorizeRole(staff, Role.MANAGER);
+                        Resident resident = operation.resident();
+                        if (resident == null) throw new ValidationFailedException("No resident to admit");
+                        if (occupant(occupancy, operation.bedId()) != null)
+                            throw new BedNotAvailableException("Bed occupied with bed id: " + operation.bedId());
+                        if (resident.getId() != null && (residentList.containsKey(resident.getId()) || !admitted.add(resident.getId())))
+                            throw new ValidationFailedException("Resident already admitted: " + resident.getId());
+                        occupancy.put(operation.bedId(), resident);
                     }
-
-                    // evening coverage if shift fully contains 14:00-22:00 on that day
-                    LocalDateTime eveningStart = LocalDateTime.of(dayDate, LocalTime.of(14, 0));
-                    LocalDateTime eveningEnd = LocalDateTime.of(dayDate, LocalTime.of(22, 0));
-                    if (!startTime.isAfter(eveningStart) && !endTime.isBefore(eveningEnd)) {
-                        if (staff instanceof Nurse) eveningCovered = true;
+                    case MOVE -> {
+                        requireAuthorizeRole(staff, Role.NURSE);
+                        requireOnDutyStaff(staff);
+                        Resident resident = occupant(occupancy, operation.bedId());
+                        if (resident == null) throw new ResidentNotFoundException("No resident in source bed: " + operation.bedId());
+                        if (occupant(occupancy, operation.toBedId()) != null)
+                            throw new BedNotAvailableException("Destination already occupied: " + operation.toBedId());
+                        occupancy.put(operation.bedId(), null);
+                        occupancy.put(operation.toBedId(), resident);
                     }
-
-                    // doctor 1-hour check - if staff is doctor and shift duration == 1 hour
-                    if (staff instanceof Doctor) {
-                        long hours = Duration.between(startTime, endTime).toHours();
-                        if (hours == 1) doctorOneHourPresent = true;
+                    case DISCHARGE -> {
+                        requireAuthorizeManager(staff);
+                        if (occupant(occupancy, operation.bedId()) == null)
+                            throw new ResidentNotFoundException("No resident: " + operation.bedId());
+                        occupancy.put(operation.bedId(), null);
                     }
                 }
-            }
-
-            if (!morningCovered) {
-                throw new RosterUnfollowedException("Compliance failure: no nurse assigned for morning (08:00-16:00) on " + dayOfWeek);
-            }
-            if (!eveningCovered) {
-                throw new RosterUnfollowedException("Compliance failure: no nurse assigned for evening (14:00-22:00) on " + dayOfWeek);
-            }
-            if (!doctorOneHourPresent) {
-                throw new RosterUnfollowedException("Compliance failure: no doctor 1-hour shift on " + dayOfWeek);
-            }
-        }
-
-        for (Map.Entry<String, List<Shift>> roasterEntry : roster.entrySet()) {
-            String staffId = roasterEntry.getKey();
-            Staff staff = staffMap.get(staffId);
-            if (!(staff instanceof Nurse)) continue;
-
-            Map<LocalDate, Long> hoursPerDay = new HashMap<>();
-            for (Shift shift : roasterEntry.getValue()) {
-                LocalDateTime shiftStart = (LocalDateTime) shift.start();
-                LocalDateTime shiftEnd = (LocalDateTime) shift.end();
-                // assuming shifts do not span more than 24 hours and belong to a single calendar day
-                LocalDate localDate = shiftStart.toLocalDate();
-                long hours = Duration.between(shiftStart, shiftEnd).toHours();
-                hoursPerDay.merge(localDate, hours, Long::sum);
-            }
-
-            for (Map.Entry<LocalDate, Long> entry : hoursPerDay.entrySet()) {
-                if (entry.getValue() > 8) {
-                    throw new RosterUnfollowedException("Compliance failure: nurse " + staffId +
-                            " assigned " + entry.getValue() + " hours on " + entry.getKey() + " (max 8)");
-                }
+                rejections.add(null);
+            } catch (RuntimeException ex) {
+                rejections.add(ex.getMessage());
             }
         }
+        return rejections;
     }
 
     /**
-     * assigningShift
-     *
-     * @param manager
-     * @param staff
-     * @param shift
-     */
-    public void assigningShift(Staff manager, Staff staff, Shift shift) {
-        requireAuthorizeManager(manager);
-        scheduler.assigningShiftToStaff(staff, shift);
-        auditTrailLog.entryLog(manager.getId(), AuthAccess.SHIFT_ASSIGNMENT, "Assigned shift to " + staff.getId());
-    }
-
-    /**
-     * assigningResidentToBed
+     * occupant of the bed as left by the operations validated so far
      *
-     * @param staff
+     * @param occupancy
      * @param bedId
-     * @param resident
+     * @return
      */
-    public void assigningResidentToBed(Staff staff, String bedId, Resident resident) {
+    private Resident occupant(Map<String, Resident> occupancy, String bedId) {
         Bed bed = findBed(bedId);
-        if (!bed.isVacant()) throw new BedNotAvailableException("Bed occupied with bed id: " + bedId);
-
-        requireAuthorizeRole(staff, Role.MANAGER);
-
-        bed.setResident(resident);
-        if (resident.getId() != null) residentList.put(resident.getId(), resident);
-        auditTrailLog.entryLog(staff.getId(), AuthAccess.ADD_RESIDENT, "Assigned resident " + resident.getId() + " to " + bedId);
+        return occupancy.containsKey(bedId) ? occupancy.get(bedId) : bed.getResident();
     }
 
     /**
-     * movingResidentToNewBed
+     * applyingOperation of a validated batch, the caller holds the ward locks
      *
      * @param staff
-     * @param fromBedId
-     * @param toBedId
+     * @param operation
+     * @return the event of the operation
      */
-    public void movingResidentToNewBed(Staff staff, String fromBedId, String toBedId) {
-        requireAuthorizeRole(staff, Role.NURSE);
-        requireOnDutyStaff(staff);
-
-        Bed fromBed = findBed(fromBedId);
-        Bed toBed = findBed(toBedId);
-
-        if (fromBed.getResident() == null)
-            throw new ResidentNotFoundException("No resident in source bed: " + fromBedId);
-        if (!toBed.isVacant()) throw new BedNotAvailableException("Destination already occupied: " + toBedId);
-
-        Resident resident = fromBed.getResident();
-        fromBed.setResident(null);
-        toBed.setResident(resident);
-        auditTrailLog.entryLog(staff.getId(), AuthAccess.MOVE_RESIDENT, "Moved resident " + resident.getId() + " from " + fromBedId + " to " + toBedId);
+    private DomainEvent applyingOperation(Staff staff, BedOperation operation) {
+        String bedId = operation.bedId();
+        return switch (operation.kind()) {
+            case ADMIT -> {
+                Bed bed = findBed(bedId);
+                placingResident(bedId, bed, operation.resident(), bed.getVersion());
+                yield new DomainEvent.ResidentAdmitted(staff.getId(), LocalDateTime.now(), operation.resident().getId(), bedId);
+            }
+            case MOVE -> {
+                Bed fromBed = findBed(bedId);
+                Bed toBed = findBed(operation.toBedId());
+                Resident moved = transferringResident(bedId, fromBed, fromBed.getVersion(), operation.toBedId(), toBed, toBed.getVersion());
+                yield new DomainEvent.ResidentMoved(staff.getId(), LocalDateTime.now(), moved.getId(), bedId, operation.toBedId());
+            }
+            case DISCHARGE -> {
+                Bed bed = findBed(bedId);
+                Resident discharged = removingResident(staff, bedId, bed, bed.getVersion());
+                yield new DomainEvent.ResidentDischarged(staff.getId(), LocalDateTime.now(), discharged.getId(), bedId);
+            }
+        };
     }
 
     /**
-     * getResidentInBed
+     * placingResident in a vacant bed, the caller holds the ward lock
      *
      * @param bedId
-     * @return
+     * @param bed
+     * @param resident
+     * @param bedVersion
      */
-    public Resident getResidentInBed(String bedId) {
-        Bed bed = bedList.get(bedId);
-        if (bed == null) return null;
-        return bed.getResident();
+    private void placingResident(String bedId, Bed bed, Resident resident, long bedVersion) {
+        bed.advancingVersion(bedVersion);
+        resident.advancingVersion();
+        resident.setBedId(bedId);
+        bed.setResident(resident);
+        vacancyIndex.occupying(bedId, resident);
+        idAllocator.observing(resident.getId());
+        if (resident.getId() != null) {
+            residentList.put(resident.getId(), resident);
+            residentBeds.put(resident.getId(), bedId);
+        }
+        residentSearchIndex.indexing(resident.getId(), resident.getName(), bedId);
+        schedulingPrescriptions(resident, bedId, LocalDateTime.now());
     }
 
     /**
-     * writingPrescription
+     * transferringResident between two beds, the caller holds both ward locks
      *
-     * @param doctor
-     * @param bedId
-     * @param newPrescriptions
+     * @param fromBedId
+     * @param fromBed
+     * @param fromVersion
+     * @param toBedId
+     * @param toBed
+     * @param toVersion
+     * @return the moved resident
      */
-    public void writingPrescription(Staff doctor, String bedId, List<Prescription> newPrescriptions) {
-        requireAuthorizeRole(doctor, Role.DOCTOR);
-        requireOnDutyStaff(doctor);
-
-        Bed bed = findBed(bedId);
-        Resident resident = bed.getResident();
-        if (resident == null) throw new ResidentNotFoundException("No resident in bed: " + bedId);
-
-        List<Prescription> existing = resident.getPrescriptionList();
-        if (existing == null) existing = new ArrayList<>();
-
-        existing.addAll(newPrescriptions);
-        resident.setPrescriptionList(existing);
-
-        for (Prescription newPrescription : newPrescriptions) {
-            if (newPrescription.getId() != null) prescriptionList.put(newPrescription.getId(), newPrescription);
-            auditTrailLog.entryLog(doctor.getId(), AuthAccess.WRITE_PRESCRIPTION, "Prescription " + newPrescription.getId() + " added for resident " + resident.getId());
-        }
+    private Resident transferringResident(String fromBedId, Bed fromBed, long fromVersion, String toBedId, Bed toBed, long toVersion) {
+        fromBed.advancingVersion(fromVersion);
+        toBed.advancingVersion(toVersion);
+        Resident moved = fromBed.getResident();
+        moved.advancingVersion();
+        fromBed.setResident(null);
+        toBed.setResident(moved);
+        moved.setBedId(toBedId);
+        if (moved.getId() != null) residentBeds.put(moved.getId(), toBedId);
+        vacancyIndex.vacating(fromBedId, moved);
+        vacancyIndex.occupying(toBedId, moved);
+        residentSearchIndex.moving(moved.getId(), toBedId);
+        medicationRoundIndex.moving(moved.getId(), toBedId);
+        return moved;
     }
 
     /**
-     * dischargingResident
+     * removingResident archives the resident and clears the bed, the caller holds the ward lock
      *
      * @param staffMember
      * @param bedId
+     * @param bed
+     * @param bedVersion
+     * @return the discharged resident
      */
-    public void dischargingResident(Staff staffMember, String bedId) {
-        if (!(staffMember instanceof Manager)) {
-            // nurses may be allowed if rostered
-            requireAuthorizeRole(staffMember, Role.MANAGER);
-            requireOnDutyStaff(staffMember);
-        }
-
-        Bed bed = findBed(bedId);
-        Resident resident = bed.getResident();
-        if (resident == null) throw new ResidentNotFoundException("No resident: " + bedId);
+    private Resident removingResident(Staff staffMember, String bedId, Bed bed, long bedVersion) {
+        bed.advancingVersion(bedVersion);
+        Resident current = bed.getResident();
+        current.advancingVersion();
 
         // archive resident to a per resident file (archive_{id}.dat)
         try {
-            archivingResident(resident);
+            archivingResident(current);
         } catch (Exception ex) {
-            auditTrailLog.entryLog(staffMember.getId(), AuthAccess.DISCHARGE_RESIDENT, "Archive failed for " + resident.getId() + " error " + ex.getMessage());
+            auditTrailLog.entryLog(staffMember.getId(), AuthAccess.DISCHARGE_RESIDENT, "Archive failed for " + current.getId() + " error " + ex.getMessage());
             ex.printStackTrace();
         }
 
         // clear bed and maps
         bed.setResident(null);
-        if (resident.getId() != null) residentList.remove(resident.getId());
+        vacancyIndex.vacating(bedId, current);
+        if (current.getId() != null) {
+            residentList.remove(current.getId());
+            residentBeds.remove(current.getId());
+        }
+        residentSearchIndex.archiving(current.getId());
+        medicationRoundIndex.removing(current.getId());
 
         // also remove associated prescriptions from system map
-        List<Prescription> prescriptionList = resident.getPrescriptionList();
+        List<Prescription> prescriptionList = current.getPrescriptionList();
         if (prescriptionList != null) {
             for (Prescription prescription : prescriptionList) {
                 if (prescription != null && prescription.getId() != null)
                     this.prescriptionList.remove(prescription.getId());
             }
         }
+        return current;
+    }
+
+    /**
+     * requireVersion of a bed still in the home, the caller holds the ward lock
+     *
+     * @param bed
+     * @param expectedVersion
+     * @return the current version of the bed
+     */
+    private long requireVersion(Bed bed, long expectedVersion) {
+        long version = bed.getVersion();
+        if (bedList.get(bed.getId()) != bed)
+            throw new VersionConflictException("Bed was removed by a layout change", bed.getId(), expectedVersion, version);
+        if (expectedVersion != ANY_VERSION && expectedVersion != version)
+            throw new VersionConflictException("Bed changed since it was read", bed.getId(), expectedVersion, version);
+        return version;
+    }
 
-        auditTrailLog.entryLog(staffMember.getId(), AuthAccess.DISCHARGE_RESIDENT, "Discharged " + resident.getId() + " from bed " + bedId);
+    /**
+     * requireVersion
+     *
+     * @param resident
+     * @param expectedVersion
+     * @return the current version of the resident
+     */
+    private static long requireVersion(Resident resident, long expectedVersion) {
+        long version = resident.getVersion();
+        if (expectedVersion != ANY_VERSION && expectedVersion != version)
+            throw new VersionConflictException("Resident changed since it was read", resident.getId(), expectedVersion, version);
+        return version;
     }
 
     /**
@@ -335,8 +1266,8 @@ public class ResidentHealthCareHome implements Serializable {
      * @throws IOException
      */
     private void archivingResident(Resident resident) throws IOException {
-        String filename = "archive_" + resident.getId() + ".dat";
-        try (FileOutputStream fileOutputStream = new FileOutputStream(filename);
+        java.nio.file.Path file = getStorageDirectory().resolve("archive_" + resident.getId() + ".dat");
+        try (FileOutputStream fileOutputStream = new FileOutputStream(file.toFile());
              ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream)) {
             objectOutputStream.writeObject(resident);
             List<Prescription> prescriptionList = resident.getPrescriptionList();
@@ -351,11 +1282,9 @@ public class ResidentHealthCareHome implements Serializable {
      * @param path
      */
     public void saveAllStateToFile(String path) {
-        if (path == null || path.trim().isEmpty()) path = "healthcarehome_state.dat";
-        try (FileOutputStream fileOutputStream = new FileOutputStream(path);
-             ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream)) {
-            objectOutputStream.writeObject(this);
-            objectOutputStream.flush();
+        if (path == null || path.trim().isEmpty()) path = getStorageDirectory().resolve("healthcarehome_state.dat").toString();
+        try {
+            SerializingHandlerService.writingSnapshot(this, java.nio.file.Path.of(path));
             auditTrailLog.entryLog("System", AuthAccess.ADD_RESIDENT, "Saved system state to " + path);
         } catch (Exception ex) {
             auditTrailLog.entryLog("System", AuthAccess.UPDATE_STAFF, "Failed to save system state " + ex.getMessage());
@@ -363,6 +1292,153 @@ public class ResidentHealthCareHome implements Serializable {
         }
     }
 
+    /**
+     * creatingEventBus with the audit log as its first subscriber
+     */
+    private void creatingEventBus() {
+        eventBus = new DomainEventBus();
+        eventBus.subscribing(this::auditing);
+    }
+
+    /**
+     * auditing a batch of events as one batch of audit lines
+     *
+     * @param events
+     */
+    private void auditing(List<DomainEvent> events) {
+        List<AuditTrailLog.EntryRecord> entries = new ArrayList<>(events.size());
+        for (DomainEvent event : events) {
+            entries.add(new AuditTrailLog.EntryRecord(event.at(), event.staffId(), event.access().name(), event.description()));
+        }
+        auditTrailLog.entryLogs(entries);
+    }
+
+    /**
+     * persistingChanges saves the home to its storage directory after each batch of events, homes opened
+     * through a FacilityRegistry persist this way
+     */
+    public synchronized void persistingChanges() {
+        if (persister != null) return;
+        // lanes deliver in parallel, their saves take turns
+        Object saving = new Object();
+        persister = eventBus.subscribing(events -> {
+            synchronized (saving) {
+                SerializingHandlerService.saveRecordsInFile(this);
+            }
+        });
+    }
+
+    /**
+     * restoringIdAllocator continues numbering after the high-water marks of the snapshot header
+     *
+     * @param highWaterMarks marks of the header, null for snapshots without one whose stored ids are scanned
+     */
+    void restoringIdAllocator(Map<String, Long> highWaterMarks) {
+        if (highWaterMarks != null) {
+            idAllocator.restoring(highWaterMarks);
+            return;
+        }
+        staffList.keySet().forEach(idAllocator::observing);
+        residentList.keySet().forEach(idAllocator::observing);
+        prescriptionList.keySet().forEach(idAllocator::observing);
+        for (Bed bed : bedList.values()) {
+            Resident resident = bed.getResident();
+            if (resident == null) continue;
+            idAllocator.observing(resident.getId());
+            if (resident.getPrescriptionList() != null) resident.getPrescriptionList().forEach(p -> idAllocator.observing(p.getId()));
+        }
+    }
+
+    /**
+     * writeObject holds every ward so the snapshot has no admission, move or discharge half applied
+     *
+     * @param out
+     * @throws IOException
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        try {
+            wardLocks.inAllWards(bedList.keySet(), () -> {
+                try {
+                    out.defaultWriteObject();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * readObject upgrades the maps of snapshots written before the home became concurrent
+     *
+     * @param in
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        bedList = new ConcurrentHashMap<>(bedList);
+        staffList = new ConcurrentHashMap<>(staffList);
+        residentList = new ConcurrentHashMap<>(residentList);
+        prescriptionList = new ConcurrentHashMap<>(prescriptionList);
+        if (topology == null) topology = FacilityTopology.fromBedIds(bedList.keySet());
+        if (rosterRetentionPolicy == null) rosterRetentionPolicy = RosterRetentionPolicy.DEFAULT;
+        if (rosterHistoryStore == null) rosterHistoryStore = new RosterHistoryStore(getStorageDirectory().resolve(ROSTER_HISTORY_FILE));
+        idAllocator = new IdAllocator();
+        wardLocks = new WardLocks();
+        creatingViews();
+        vacancyIndex = new VacancyIndex(topology, bedList);
+        residentSearchIndex = new ResidentSearchIndex();
+        residentBeds = new ConcurrentHashMap<>();
+        medicationRoundIndex = new MedicationRoundIndex();
+        creatingEventBus();
+        for (Bed bed : bedList.values()) {
+            Resident resident = bed.getResident();
+            if (resident == null) continue;
+            residentSearchIndex.indexing(resident.getId(), resident.getName(), bed.getId());
+            if (resident.getId() != null) residentBeds.put(resident.getId(), bed.getId());
+            // every dose not covered by a recorded administration is owed
+            schedulingPrescriptions(resident, bed.getId(), null);
+            // snapshots written before moves kept the bed id current
+            resident.setBedId(bed.getId());
+        }
+    }
+
+    /**
+     * relocating the home's files to the directory its snapshot was opened from, a snapshot keeps the
+     * directory, audit log and roster history paths of wherever it was saved
+     *
+     * @param directory
+     */
+    synchronized void relocating(java.nio.file.Path directory) {
+        storageDirectory = directory.toString();
+        auditTrailLog = AuditTrailLog.inDirectory(directory);
+        rosterHistoryStore = new RosterHistoryStore(directory.resolve(ROSTER_HISTORY_FILE));
+        loginRateLimiter = null;
+    }
+
+    /**
+     * getStorageDirectory
+     *
+     * @return
+     */
+    public java.nio.file.Path getStorageDirectory() {
+        // snapshots written before homes had their own directory live in the working directory
+        return java.nio.file.Path.of(storageDirectory == null ? "." : storageDirectory);
+    }
+
+    /**
+     * creatingViews wraps the concurrent maps once, the views follow every later change
+     */
+    private void creatingViews() {
+        bedView = Collections.unmodifiableMap(bedList);
+        staffView = Collections.unmodifiableMap(staffList);
+        residentView = Collections.unmodifiableMap(residentList);
+        prescriptionView = Collections.unmodifiableMap(prescriptionList);
+    }
+
     /**
      * findBed
      *
@@ -376,32 +1452,46 @@ public class ResidentHealthCareHome implements Serializable {
     }
 
     public Map<String, Bed> getBedList() {
-        return Map.copyOf(bedList);
+        return bedView;
     }
 
     public Map<String, Staff> getStaffList() {
-        return Map.copyOf(staffList);
+        return staffView;
     }
 
     public Map<String, Resident> getAllResidents() {
-        return Map.copyOf(residentList);
+        return residentView;
     }
 
     public Map<String, Prescription> getPrescriptionList() {
-        return Map.copyOf(prescriptionList);
+        return prescriptionView;
     }
 
     /**
-     * authenticate
+     * authenticate from the local terminal
      *
      * @param username
      * @param password
      * @return
      */
     public Staff authenticate(String username, String password) {
-        Collection<Staff> staffList = getStaffList().values();
-        for (Staff staff : staffList) {
-            if (staff.getUsername().equals(username) && staff.getPassword().equals(password)) {
+        return authenticate(username, password, null);
+    }
+
+    /**
+     * authenticate looks the username up in the index and verifies the salted hash,
+     * after the rate limiter accepted the attempt for both the username and the client
+     *
+     * @param username
+     * @param password
+     * @param clientId
+     * @return
+     */
+    public Staff authenticate(String username, String password, String clientId) {
+        if (username == null || password == null) return null;
+        loginRateLimiter().acquiringOrThrow(username, clientId);
+        for (Staff staff : usernameIndex().getOrDefault(username, List.of())) {
+            if (staff.checkingPassword(password)) {
                 auditTrailLog.entryLog(staff.getId(), AuthAccess.VIEW_RESIDENT, "Authenticated");
                 return staff;
             }
@@ -409,6 +1499,120 @@ public class ResidentHealthCareHome implements Serializable {
         return null;
     }
 
+    /**
+     * authenticateAsync runs the deliberately slow hash verification off the calling (UI) thread
+     *
+     * @param username
+     * @param password
+     * @return
+     */
+    public CompletableFuture<Staff> authenticateAsync(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> authenticate(username, password), authExecutor());
+    }
+
+    /**
+     * loggingInAsync authenticates off the calling thread and opens a session for the staff member
+     *
+     * @param username
+     * @param password
+     * @return future completing with the session, or null when the credentials are wrong
+     */
+    public CompletableFuture<Session> loggingInAsync(String username, String password) {
+        return authenticateAsync(username, password).thenApply(staff -> staff == null ? null : openingSession(staff));
+    }
+
+    /**
+     * openingSession
+     *
+     * @param staff
+     * @return
+     */
+    public Session openingSession(Staff staff) {
+        return Session.opening(staff, scheduler);
+    }
+
+    /**
+     * requireSession checks a session in O(1) against its cached permissions and duty window
+     *
+     * @param session
+     * @param access
+     */
+    public void requireSession(Session session, AuthAccess access) {
+        if (session == null) throw new UnAuthorizationException("No session provided");
+        if (session.getScheduler() != scheduler) throw new UnAuthorizationException("Session belongs to another home");
+        session.requireOrThrow(access);
+    }
+
+    /**
+     * migratingPlaintextPasswords hashes passwords of staff loaded from older snapshots
+     *
+     * @return number of migrated passwords
+     */
+    public int migratingPlaintextPasswords() {
+        int migrated = 0;
+        for (Staff staff : staffList.values()) {
+            if (staff.migratingPlaintextPassword()) migrated++;
+        }
+        if (migrated > 0) {
+            auditTrailLog.entryLog("System", AuthAccess.UPDATE_STAFF, "Migrated " + migrated + " plaintext passwords to salted hashes");
+        }
+        return migrated;
+    }
+
+    /**
+     * indexingStaff
+     *
+     * @param staff
+     */
+    private void indexingStaff(Staff staff) {
+        if (staff.getUsername() == null) return;
+        usernameIndex().merge(staff.getUsername(), List.of(staff), (existing, added) -> {
+            List<Staff> merged = new ArrayList<>(existing);
+            merged.removeIf(other -> other.getId().equals(staff.getId()));
+            merged.add(staff);
+            return List.copyOf(merged);
+        });
+    }
+
+    /**
+     * usernameIndex is transient and rebuilt from the staff directory after loading a snapshot
+     *
+     * @return
+     */
+    private synchronized Map<String, List<Staff>> usernameIndex() {
+        if (usernameIndex == null) {
+            usernameIndex = new ConcurrentHashMap<>();
+            for (Staff staff : staffList.values()) indexingStaff(staff);
+        }
+        return usernameIndex;
+    }
+
+    /**
+     * loginRateLimiter
+     *
+     * @return
+     */
+    public synchronized LoginRateLimiter loginRateLimiter() {
+        if (loginRateLimiter == null) loginRateLimiter = new LoginRateLimiter(auditTrailLog);
+        return loginRateLimiter;
+    }
+
+    /**
+     * authExecutor
+     *
+     * @return
+     */
+    private synchronized ExecutorService authExecutor() {
+        if (authExecutor == null) {
+            authExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "auth-verifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return authExecutor;
+    }
+
     /**
      * requireAuthorizeManager
      *
@@ -429,13 +1633,33 @@ public class ResidentHealthCareHome implements Serializable {
         if (!staff.getRole().equals(role)) throw new UnAuthorizationException("Requires authorized role " + role);
     }
 
+    /**
+     * getOnDutyStaff
+     *
+     * @param role
+     * @return
+     */
+    public Set<Staff> getOnDutyStaff(Role role) {
+        return scheduler.getOnDutyRoster().onDutyByRole(role);
+    }
+
+    /**
+     * getOnDutyStaffInWard
+     *
+     * @param ward
+     * @return
+     */
+    public Set<Staff> getOnDutyStaffInWard(String ward) {
+        return scheduler.getOnDutyRoster().onDutyInWard(ward);
+    }
+
     /**
      * requireOnDutyStaff
      *
      * @param staff
      */
     public void requireOnDutyStaff(Staff staff) {
-        if (!scheduler.isAvailableOnDuty(staff, LocalDateTime.now()))
+        if (!scheduler.getOnDutyRoster().isOnDuty(staff.getId()))
             throw new UnAuthorizationException("Staff not rostered at this time");
     }
 }
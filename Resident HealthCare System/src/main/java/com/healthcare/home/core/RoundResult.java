@@ -0,0 +1,42 @@
+package com.healthcare.home.core;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * RoundResult of ResidentHealthCareHome.administeringRound, one item per confirmation in round order.
+ * A round is all or nothing like a bed batch: when any confirmation is rejected none is recorded.
+ *
+ * @param items
+ */
+public record RoundResult(List<Item> items) {
+
+    /**
+     * Item
+     *
+     * @param confirmation
+     * @param status
+     * @param dueAt   due time the dose was given for, null when it was rejected
+     * @param message reason of a rejection, empty otherwise
+     */
+    public record Item(DoseConfirmation confirmation, BatchResult.Status status, LocalDateTime dueAt, String message) {
+    }
+
+    /**
+     * isApplied
+     *
+     * @return true when every dose was recorded
+     */
+    public boolean isApplied() {
+        return items.stream().allMatch(item -> item.status() == BatchResult.Status.APPLIED);
+    }
+
+    /**
+     * rejected
+     *
+     * @return the items that failed validation
+     */
+    public List<Item> rejected() {
+        return items.stream().filter(item -> item.status() == BatchResult.Status.REJECTED).toList();
+    }
+}
@@ -1,66 +1,139 @@
 package com.healthcare.home.core;
 
-import com.healthcare.home.entities.Prescription;
-import com.healthcare.home.entities.Resident;
-import com.healthcare.home.entities.Bed;
-import com.healthcare.home.entities.Shift;
+import com.healthcare.home.entities.IdAllocator;
+import com.healthcare.home.entities.RecurringShift;
+import com.healthcare.home.facility.FacilityLayout;
 import com.healthcare.home.staff.Doctor;
 import com.healthcare.home.staff.Manager;
 import com.healthcare.home.staff.Nurse;
-import com.healthcare.home.staff.Staff;
 
 import java.io.*;
 import java.nio.file.*;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * SerializingHandlerService
  */
 public class SerializingHandlerService {
 
-    private static final Path HEALTH_CARE_SYSTEM_FILE = Paths.get("healthCareSystem.dat");
+    private static final String HEALTH_CARE_SYSTEM_FILE = "healthCareSystem.dat";
 
     /**
-     * saveRecordsInFile method to serialization to the file
+     * saveRecordsInFile method to serialization to the file in the home's storage directory
      *
      * @param home
      */
     public static void saveRecordsInFile(ResidentHealthCareHome home) {
         try {
-            Path parent = HEALTH_CARE_SYSTEM_FILE.getParent();
-            Files.createDirectories(parent == null ? Path.of(".") : parent);
-            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(Files.newOutputStream(HEALTH_CARE_SYSTEM_FILE))) {
-                objectOutputStream.writeObject(home);
-            }
-            System.out.println("Records saved to file: " + HEALTH_CARE_SYSTEM_FILE);
+            Path file = home.getStorageDirectory().resolve(HEALTH_CARE_SYSTEM_FILE);
+            Files.createDirectories(home.getStorageDirectory());
+            writingSnapshot(home, file);
+            System.out.println("Records saved to file: " + file);
         } catch (Exception ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * readOrCreateFile method to deserialization the object from the serialized file
+     * writingSnapshot streams the header, the serialized home and then the id high-water marks into a temporary
+     * file next to the snapshot, and moves it over the snapshot only once it is complete
+     *
+     * @param home
+     * @param file
+     * @throws IOException
+     */
+    public static void writingSnapshot(ResidentHealthCareHome home, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                objectOutputStream.writeObject(new SnapshotHeader(SnapshotHeader.FORMAT, LocalDateTime.now(), null));
+                objectOutputStream.writeObject(home);
+                // marks read after the home so ids created while it was written are covered too
+                objectOutputStream.writeObject(home.getIdAllocator().highWaterMarks());
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * readingSnapshot reads a snapshot and restores the home's id allocator from its high-water marks; snapshots
+     * written before the header existed hold only the home and have their stored ids scanned once
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    public static ResidentHealthCareHome readingSnapshot(Path file) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Object first = objectInputStream.readObject();
+            if (first instanceof ResidentHealthCareHome legacy) {
+                legacy.restoringIdAllocator(null);
+                return legacy;
+            }
+            SnapshotHeader header = (SnapshotHeader) first;
+            if (header.format() > SnapshotHeader.FORMAT) throw new InvalidClassException("Snapshot format " + header.format() + " is newer than " + SnapshotHeader.FORMAT);
+            if (header.format() >= SnapshotHeader.TRAILING_MARKS) {
+                ResidentHealthCareHome home = (ResidentHealthCareHome) objectInputStream.readObject();
+                @SuppressWarnings("unchecked")
+                Map<String, Long> highWaterMarks = (Map<String, Long>) objectInputStream.readObject();
+                home.restoringIdAllocator(highWaterMarks);
+                return home;
+            }
+            // the first format kept the home as a byte array behind the marks
+            byte[] body = (byte[]) objectInputStream.readObject();
+            try (ObjectInputStream homeStream = new ObjectInputStream(new ByteArrayInputStream(body))) {
+                ResidentHealthCareHome home = (ResidentHealthCareHome) homeStream.readObject();
+                home.restoringIdAllocator(header.highWaterMarks());
+                return home;
+            }
+        }
+    }
+
+    /**
+     * readOrCreateFile method to deserialization the object from the serialized file in the working directory
      *
      * @return
      */
     public static ResidentHealthCareHome readOrCreateFile() {
-        if (!Files.exists(HEALTH_CARE_SYSTEM_FILE)) {
+        return readOrCreateFile(Path.of("."));
+    }
+
+    /**
+     * readOrCreateFile method to deserialization the object from the serialized file in the storage directory
+     *
+     * @param storageDirectory
+     * @return
+     */
+    public static ResidentHealthCareHome readOrCreateFile(Path storageDirectory) {
+        Path file = storageDirectory.resolve(HEALTH_CARE_SYSTEM_FILE);
+        if (!Files.exists(file)) {
             // create new system with default staff
-            ResidentHealthCareHome home = new ResidentHealthCareHome();
-
-            Manager manager = new Manager("Manager", "admin", "admin123");
-            Doctor doctor1 = new Doctor("Doctor1", "doctor1", "doctor1");
-            Nurse nurse1 = new Nurse("Nurse1", "nurse1", "nurse1");
-            Nurse nurse2 = new Nurse("Nurse2", "nurse2", "nurse2");
-            Nurse nurse3 = new Nurse("Nurse3", "nurse3", "nurse3");
-            Nurse nurse4 = new Nurse("Nurse4", "nurse4", "nurse4");
-            Nurse nurse5 = new Nurse("Nurse5", "nurse5", "nurse5");
-            Nurse nurse6 = new Nurse("Nurse6", "nurse6", "nurse6");
-            Nurse nurse7 = new Nurse("Nurse7", "nurse7", "nurse7");
-            Nurse nurse8 = new Nurse("Nurse8", "nurse8", "nurse8");
+            ResidentHealthCareHome home = new ResidentHealthCareHome(storageDirectory, FacilityLayout.configured());
+            IdAllocator ids = home.getIdAllocator();
+
+            Manager manager = new Manager(ids, "Manager", "admin", "admin123");
+            Doctor doctor1 = new Doctor(ids, "Doctor1", "doctor1", "doctor1");
+            Nurse nurse1 = new Nurse(ids, "Nurse1", "nurse1", "nurse1");
+            Nurse nurse2 = new Nurse(ids, "Nurse2", "nurse2", "nurse2");
+            Nurse nurse3 = new Nurse(ids, "Nurse3", "nurse3", "nurse3");
+            Nurse nurse4 = new Nurse(ids, "Nurse4", "nurse4", "nurse4");
+            Nurse nurse5 = new Nurse(ids, "Nurse5", "nurse5", "nurse5");
+            Nurse nurse6 = new Nurse(ids, "Nurse6", "nurse6", "nurse6");
+            Nurse nurse7 = new Nurse(ids, "Nurse7", "nurse7", "nurse7");
+            Nurse nurse8 = new Nurse(ids, "Nurse8", "nurse8", "nurse8");
 
             home.registeringNewStaff(manager);
             home.registeringNewStaff(doctor1);
@@ -73,101 +146,47 @@ public class SerializingHandlerService {
             home.registeringNewStaff(nurse7);
             home.registeringNewStaff(nurse8);
 
-            LocalDate today = LocalDate.now();
+            LocalDate weekStart = LocalDate.now().with(DayOfWeek.MONDAY);
+            LocalTime morningStart = LocalTime.of(8, 0);
+            LocalTime morningEnd = LocalTime.of(16, 0);
+            LocalTime eveningStart = LocalTime.of(14, 0);
+            LocalTime eveningEnd = LocalTime.of(22, 0);
 
             // Assign Doctor shift: 1 hour every day of the week
-            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
-                LocalDate date = today.with(dayOfWeek);
-                LocalDateTime startTime = date.atTime(10, 0);
-                LocalDateTime endTime = startTime.plusHours(1);
-                home.assigningShift(manager, doctor1, new Shift(startTime, endTime));
-            }
+            home.assigningRecurringShift(manager, doctor1, RecurringShift.everyDay(LocalTime.of(10, 0), LocalTime.of(11, 0), weekStart));
 
             // Assign Nurse shifts: 8am-4pm and 2pm-10pm every day
-            for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
-                LocalDate date = today.with(dayOfWeek);
-                LocalDateTime morningStart = date.atTime(8, 0);
-                LocalDateTime morningEnd = date.atTime(16, 0);
-                LocalDateTime eveningStart = date.atTime(14, 0);
-                LocalDateTime eveningEnd = date.atTime(22, 0);
-
-                // Morning
-                home.assigningShift(manager, nurse1, new Shift(morningStart, morningEnd));
-                home.assigningShift(manager, nurse2, new Shift(morningStart, morningEnd));
-                home.assigningShift(manager, nurse3, new Shift(morningStart, morningEnd));
-                home.assigningShift(manager, nurse4, new Shift(morningStart, morningEnd));
-                // Evening
-                home.assigningShift(manager, nurse5, new Shift(eveningStart, eveningEnd));
-                home.assigningShift(manager, nurse6, new Shift(eveningStart, eveningEnd));
-                home.assigningShift(manager, nurse7, new Shift(eveningStart, eveningEnd));
-                home.assigningShift(manager, nurse8, new Shift(eveningStart, eveningEnd));
+            // Morning
+            for (Nurse nurse : List.of(nurse1, nurse2, nurse3, nurse4)) {
+                home.assigningRecurringShift(manager, nurse, RecurringShift.everyDay(morningStart, morningEnd, weekStart));
+            }
+            // Evening
+            for (Nurse nurse : List.of(nurse5, nurse6, nurse7, nurse8)) {
+                home.assigningRecurringShift(manager, nurse, RecurringShift.everyDay(eveningStart, eveningEnd, weekStart));
             }
             home.checkingCompliance();
 
             return home;
         }
 
-        try (ObjectInputStream objectInputStream = new ObjectInputStream(Files.newInputStream(HEALTH_CARE_SYSTEM_FILE))) {
-            ResidentHealthCareHome home = (ResidentHealthCareHome) objectInputStream.readObject();
-
-            // Restore staff id counter
-            int maxStaff = 0;
-            for (Staff staff : home.getStaffList().values()) {
-                String staffId = staff.getId();
-                if (staffId != null && staffId.startsWith("STF")) {
-                    try {
-                        int num = Integer.parseInt(staffId.substring(5));
-                        if (num > maxStaff) maxStaff = num;
-                    } catch (Exception ignored) {
-                    }
-                }
-            }
-            Staff.setIdCounter(maxStaff);
-
-            // Restore resident and prescription counters
-            int maxResidents = 0;
-            long maxPrescriptions = 0;
-
-            for (Bed bed : home.getBedList().values()) {
-                Resident resident = bed.getResident();
-                if (resident == null) continue;
-
-                // Resident ID counter
-                String residentId = resident.getId();
-                if (residentId != null && residentId.startsWith("RES")) {
-                    try {
-                        int num = Integer.parseInt(residentId.substring(3));
-                        if (num > maxResidents) maxResidents = num;
-                    } catch (Exception ignored) {
-                    }
-                }
-
-                // Prescription ID counter
-                List<Prescription> prescriptionList = resident.getPrescriptionList();
-                if (prescriptionList != null) {
-                    for (Prescription prescription : prescriptionList) {
-                        if (prescription == null || prescription.getId() == null) continue;
-                        String prescriptionId = prescription.getId();
-                        if (prescriptionId.startsWith("PRE")) {
-                            try {
-                                long num = Long.parseLong(prescriptionId.substring(3));
-                                if (num > maxPrescriptions) maxPrescriptions = num;
-                            } catch (Exception ignored) {
-                            }
-                        }
-                    }
-                }
-            }
-
-            Resident.setIdCounter(maxResidents);
-            Prescription.setIdCounter(maxPrescriptions);
-
-            System.out.println("Loaded data. Counters restored -> Staff: " + maxStaff + " Resident: " + maxResidents + " Prescription: " + maxPrescriptions);
+        try {
+            ResidentHealthCareHome home = readingSnapshot(file);
+            // the snapshot may have been saved in another directory, its files follow the one opened
+            home.relocating(storageDirectory);
+            home.migratingPlaintextPasswords();
+            // pick up layout changes made since the snapshot, occupied beds are kept
+            home.reloadingLayout();
+
+            // the id counters come from the snapshot header
+            IdAllocator ids = home.getIdAllocator();
+            System.out.println("Loaded data. Counters restored -> Staff: " + ids.highWaterMark(IdAllocator.STAFF)
+                    + " Resident: " + ids.highWaterMark(IdAllocator.RESIDENT)
+                    + " Prescription: " + ids.highWaterMark(IdAllocator.PRESCRIPTION));
             return home;
 
         } catch (Exception ex) {
-            System.err.println("Loading existing records failed, creating new one: " + ex.getMessage());
-            return new ResidentHealthCareHome();
+            // an empty home would be saved over the records, so the file is left for someone to look at
+            throw new IllegalStateException("Loading existing records from " + file + " failed, the file is left unchanged", ex);
         }
     }
 }
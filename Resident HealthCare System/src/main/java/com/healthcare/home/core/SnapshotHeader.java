@@ -0,0 +1,20 @@
+package com.healthcare.home.core;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * SnapshotHeader is written ahead of the home in a snapshot file. The id high-water marks are taken after the
+ * home was serialized so they cover every id in it, and restore the home's IdAllocator without scanning the
+ * stored ids. Format 1 carried them in the header with the home as a byte array behind it; from
+ * TRAILING_MARKS the home is streamed straight after the header and the marks follow it.
+ *
+ * @param format         FORMAT of the writer
+ * @param savedAt
+ * @param highWaterMarks id prefix -> highest number handed out, null from TRAILING_MARKS
+ */
+public record SnapshotHeader(int format, LocalDateTime savedAt, Map<String, Long> highWaterMarks) implements Serializable {
+    public static final int TRAILING_MARKS = 2;
+    public static final int FORMAT = TRAILING_MARKS;
+}
@@ -0,0 +1,106 @@
+package com.healthcare.home.core;
+
+import com.healthcare.home.facility.FacilityTopology;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * WardLocks stripes the bed operations of the home by ward, the ward being the prefix of the bed id
+ * (W1 for W1-R101-B1). Operations in different wards never contend, and operations spanning two
+ * wards take both locks in ward name order so they cannot deadlock.
+ */
+public final class WardLocks {
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * wardOf
+     *
+     * @param bedId
+     * @return
+     */
+    public static String wardOf(String bedId) {
+        return bedId == null ? "" : FacilityTopology.wardOf(bedId);
+    }
+
+    /**
+     * lockFor
+     *
+     * @param ward
+     * @return
+     */
+    public ReentrantLock lockFor(String ward) {
+        return locks.computeIfAbsent(ward, w -> new ReentrantLock());
+    }
+
+    /**
+     * inWard runs the action holding the lock of the bed's ward
+     *
+     * @param bedId
+     * @param action
+     * @return
+     * @param <T>
+     */
+    public <T> T inWard(String bedId, Supplier<T> action) {
+        ReentrantLock lock = lockFor(wardOf(bedId));
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * inWards runs the action holding the locks of both beds' wards, taken in ward name order
+     *
+     * @param firstBedId
+     * @param secondBedId
+     * @param action
+     * @return
+     * @param <T>
+     */
+    public <T> T inWards(String firstBedId, String secondBedId, Supplier<T> action) {
+        String firstWard = wardOf(firstBedId);
+        String secondWard = wardOf(secondBedId);
+        if (firstWard.equals(secondWard)) return inWard(firstBedId, action);
+
+        ReentrantLock outer = lockFor(firstWard.compareTo(secondWard) < 0 ? firstWard : secondWard);
+        ReentrantLock inner = lockFor(firstWard.compareTo(secondWard) < 0 ? secondWard : firstWard);
+        outer.lock();
+        try {
+            inner.lock();
+            try {
+                return action.get();
+            } finally {
+                inner.unlock();
+            }
+        } finally {
+            outer.unlock();
+        }
+    }
+
+    /**
+     * inAllWards runs the action holding the locks of every bed's ward, taken in ward name order
+     *
+     * @param bedIds
+     * @param action
+     * @return
+     * @param <T>
+     */
+    public <T> T inAllWards(Collection<String> bedIds, Supplier<T> action) {
+        List<ReentrantLock> held = new ArrayList<>();
+        try {
+            for (String ward : new TreeSet<>(bedIds.stream().map(WardLocks::wardOf).toList())) {
+                ReentrantLock lock = lockFor(ward);
+                lock.lock();
+                held.add(lock);
+            }
+            return action.get();
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) held.get(i).unlock();
+        }
+    }
+}
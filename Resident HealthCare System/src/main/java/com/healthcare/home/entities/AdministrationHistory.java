@@ -0,0 +1,182 @@
+package com.healthcare.home.entities;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AdministrationHistory keeps the doses given for one prescription as columns in time order: the time as
+ * nanoseconds in a long, and the nurse and the dose as codes into small dictionaries of interned strings.
+ * An entry costs 16 bytes instead of a Medication object with its own strings and LocalDateTime, the last
+ * administration is read in O(1) and a time range is found by binary search. Not thread safe, the owning
+ * Prescription synchronizes.
+ */
+public class AdministrationHistory implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private transient long[] times = new long[INITIAL_CAPACITY];
+    private transient int[] nurseCodes = new int[INITIAL_CAPACITY];
+    private transient int[] doseCodes = new int[INITIAL_CAPACITY];
+    private transient int size;
+    private final List<String> nurseIds = new ArrayList<>();
+    private final List<String> doses = new ArrayList<>();
+
+    /**
+     * recording a dose, entries stay ordered by time when a dose is recorded late
+     *
+     * @param nurseId
+     * @param at
+     * @param dose
+     */
+    public void recording(String nurseId, LocalDateTime at, String dose) {
+        if (size == times.length) growing();
+        long time = encoding(at);
+        int position = size;
+        while (position > 0 && times[position - 1] > time) position--;
+        System.arraycopy(times, position, times, position + 1, size - position);
+        System.arraycopy(nurseCodes, position, nurseCodes, position + 1, size - position);
+        System.arraycopy(doseCodes, position, doseCodes, position + 1, size - position);
+        times[position] = time;
+        nurseCodes[position] = coding(nurseIds, nurseId);
+        doseCodes[position] = coding(doses, dose);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * lastAt
+     *
+     * @return time of the latest dose, or null when none was given
+     */
+    public LocalDateTime lastAt() {
+        return size == 0 ? null : decoding(times[size - 1]);
+    }
+
+    /**
+     * between
+     *
+     * @param prescriptionId
+     * @param from inclusive
+     * @param to   exclusive
+     * @return the doses given in the range, in time order
+     */
+    public List<Medication> between(String prescriptionId, LocalDateTime from, LocalDateTime to) {
+        int first = searching(encoding(from));
+        int end = searching(encoding(to));
+        List<Medication> medications = new ArrayList<>(Math.max(0, end - first));
+        for (int i = first; i < end; i++) medications.add(medication(prescriptionId, i));
+        return medications;
+    }
+
+    /**
+     * toList
+     *
+     * @param prescriptionId
+     * @return every dose given, in time order
+     */
+    public List<Medication> toList(String prescriptionId) {
+        List<Medication> medications = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) medications.add(medication(prescriptionId, i));
+        return medications;
+    }
+
+    private Medication medication(String prescriptionId, int i) {
+        return new Medication(prescriptionId, nurseIds.get(nurseCodes[i]), decoding(times[i]), doses.get(doseCodes[i]));
+    }
+
+    /**
+     * searching
+     *
+     * @param time
+     * @return index of the first entry at or after the time
+     */
+    private int searching(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < time) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private void growing() {
+        int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        nurseCodes = Arrays.copyOf(nurseCodes, capacity);
+        doseCodes = Arrays.copyOf(doseCodes, capacity);
+    }
+
+    /**
+     * coding the value through the dictionary, adding it when new
+     *
+     * @param dictionary
+     * @param value
+     * @return
+     */
+    private static int coding(List<String> dictionary, String value) {
+        int code = dictionary.indexOf(value);
+        if (code >= 0) return code;
+        dictionary.add(value == null ? null : value.intern());
+        return dictionary.size() - 1;
+    }
+
+    /**
+     * encoding the time as nanoseconds since the epoch, times before 1678 or after 2262 are clamped
+     *
+     * @param time
+     * @return
+     */
+    private static long encoding(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        if (seconds >= Long.MAX_VALUE / 1_000_000_000L) return Long.MAX_VALUE;
+        if (seconds <= Long.MIN_VALUE / 1_000_000_000L) return Long.MIN_VALUE;
+        return seconds * 1_000_000_000L + time.getNano();
+    }
+
+    private static LocalDateTime decoding(long time) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(time, 1_000_000_000L), (int) Math.floorMod(time, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * writeObject stores only the used part of the columns
+     *
+     * @param out
+     * @throws IOException
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(times[i]);
+            out.writeInt(nurseCodes[i]);
+            out.writeInt(doseCodes[i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        size = in.readInt();
+        int capacity = Math.max(INITIAL_CAPACITY, size);
+        times = new long[capacity];
+        nurseCodes = new int[capacity];
+        doseCodes = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            times[i] = in.readLong();
+            nurseCodes[i] = in.readInt();
+            doseCodes[i] = in.readInt();
+        }
+        nurseIds.replaceAll(id -> id == null ? null : id.intern());
+    }
+}
@@ -1,16 +1,27 @@
 package com.healthcare.home.entities;
 
+import com.healthcare.home.exceptions.VersionConflictException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Setter;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 @Data
 public class Bed implements Serializable {
+    private static final long serialVersionUID = -3852685023786221936L;
+    private static final AtomicLongFieldUpdater<Bed> VERSION = AtomicLongFieldUpdater.newUpdater(Bed.class, "version");
 
     private final String id;
     private boolean isolated;
     private Gender gender;
-    private Resident resident;
+    private volatile Resident resident;
+    // bumped on every change, callers holding an older version get a VersionConflictException
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile long version;
 
     /**
      * isVacant
@@ -20,4 +31,24 @@ public class Bed implements Serializable {
         return resident == null;
     }
 
+    /**
+     * advancingVersion compare-and-set from the version the caller read
+     *
+     * @param expectedVersion
+     * @throws VersionConflictException when the bed changed in between
+     */
+    public void advancingVersion(long expectedVersion) {
+        if (!VERSION.compareAndSet(this, expectedVersion, expectedVersion + 1)) {
+            throw new VersionConflictException("Bed changed concurrently", id, expectedVersion, version);
+        }
+    }
+
+    /**
+     * advancingVersion unconditionally, for changes that do not depend on what the caller read
+     *
+     * @return the new version
+     */
+    public long advancingVersion() {
+        return VERSION.incrementAndGet(this);
+    }
 }
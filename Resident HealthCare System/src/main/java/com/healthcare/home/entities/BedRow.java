@@ -1,5 +1,6 @@
 package com.healthcare.home.entities;
 
+import com.healthcare.home.views.BedSummary;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
@@ -7,19 +8,26 @@ public class BedRow {
     public final StringProperty bedId;
     public final StringProperty residentName;
     public String residentId;
+    // versions read when the row was built, passed back so stale rows fail with a VersionConflictException
+    public long bedVersion;
+    public long residentVersion;
     public final Gender gender;
+    // the board row this table row shows, replaced as a whole when the bed changes
+    public final BedSummary summary;
 
     /**
      * BedRow Constructor
      *
-     * @param bedId
-     * @param residentName
-     * @param gender
+     * @param summary
      */
-    public BedRow(String bedId, String residentName, Gender gender) {
-        this.bedId = new SimpleStringProperty(bedId);
-        this.residentName = new SimpleStringProperty(residentName);
-        this.gender = gender;
+    public BedRow(BedSummary summary) {
+        this.bedId = new SimpleStringProperty(summary.bedId());
+        this.residentName = new SimpleStringProperty(summary.residentName());
+        this.residentId = summary.isVacant() ? "" : summary.residentId();
+        this.bedVersion = summary.bedVersion();
+        this.residentVersion = summary.residentVersion();
+        this.gender = summary.gender();
+        this.summary = summary;
     }
 
     public String getBedId() {
@@ -0,0 +1,165 @@
+package com.healthcare.home.entities;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IdAllocator hands out the STF-, RES- and PRE- ids of one home. Every home owns its allocator, so
+ * several homes in one process number their staff, residents and prescriptions independently.
+ * Objects created outside a home (tests, tools) draw from the standalone allocator.
+ * Each prefix counts on its own AtomicLong, so concurrent creation never blocks; bulk imports reserve
+ * a block of numbers with one atomic add. The high-water marks are saved in the snapshot header and
+ * restored from it, no stored id has to be parsed on startup.
+ */
+public class IdAllocator implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final String STAFF = "STF";
+    public static final String RESIDENT = "RES";
+    public static final String PRESCRIPTION = "PRE";
+    private static final IdAllocator STANDALONE = new IdAllocator();
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * standalone allocator for objects that do not belong to a home
+     *
+     * @return
+     */
+    public static IdAllocator standalone() {
+        return STANDALONE;
+    }
+
+    /**
+     * nextId
+     *
+     * @param prefix
+     * @return
+     */
+    public String nextId(String prefix) {
+        return formatting(prefix, counter(prefix).incrementAndGet());
+    }
+
+    /**
+     * reservingBlock takes count numbers of the prefix at once, for bulk imports
+     *
+     * @param prefix
+     * @param count
+     * @return an allocator handing out the reserved ids of the prefix, other prefixes come from this allocator
+     */
+    public IdAllocator reservingBlock(String prefix, int count) {
+        if (count < 0) throw new IllegalArgumentException("Negative block size: " + count);
+        long first = counter(prefix).getAndAdd(count) + 1;
+        return new Block(this, prefix, first, first + count);
+    }
+
+    /**
+     * observing an id issued elsewhere, so this allocator never hands it out again
+     *
+     * @param id
+     */
+    public void observing(String id) {
+        if (id == null) return;
+        int dash = id.lastIndexOf('-');
+        if (dash <= 0 || dash == id.length() - 1) return;
+        long number = 0;
+        for (int i = dash + 1; i < id.length(); i++) {
+            char digit = id.charAt(i);
+            if (digit < '0' || digit > '9' || number > (Long.MAX_VALUE - 9) / 10) return;
+            number = number * 10 + (digit - '0');
+        }
+        long observed = number;
+        counter(id.substring(0, dash)).accumulateAndGet(observed, Math::max);
+    }
+
+    /**
+     * highWaterMark
+     *
+     * @param prefix
+     * @return the highest number issued, reserved or observed for the prefix
+     */
+    public long highWaterMark(String prefix) {
+        AtomicLong counter = counters.get(prefix);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * highWaterMarks of every prefix, as saved in the snapshot header
+     *
+     * @return
+     */
+    public Map<String, Long> highWaterMarks() {
+        Map<String, Long> marks = new TreeMap<>();
+        counters.forEach((prefix, counter) -> marks.put(prefix, counter.get()));
+        return marks;
+    }
+
+    /**
+     * restoring the high-water marks read from a snapshot header, counters never go back
+     *
+     * @param marks
+     */
+    public void restoring(Map<String, Long> marks) {
+        marks.forEach((prefix, mark) -> counter(prefix).accumulateAndGet(mark, Math::max));
+    }
+
+    private AtomicLong counter(String prefix) {
+        return counters.computeIfAbsent(prefix, p -> new AtomicLong());
+    }
+
+    private static String formatting(String prefix, long number) {
+        return String.format("%s-%03d", prefix, number);
+    }
+
+    /**
+     * Block of reserved numbers of one prefix
+     */
+    private static final class Block extends IdAllocator {
+        private final IdAllocator parent;
+        private final String prefix;
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(IdAllocator parent, String prefix, long first, long end) {
+            this.parent = parent;
+            this.prefix = prefix;
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+
+        @Override
+        public String nextId(String prefix) {
+            if (!this.prefix.equals(prefix)) return parent.nextId(prefix);
+            long number = next.getAndIncrement();
+            if (number >= end) throw new IllegalStateException("Reserved block of " + prefix + " ids is used up");
+            return formatting(prefix, number);
+        }
+
+        @Override
+        public IdAllocator reservingBlock(String prefix, int count) {
+            return parent.reservingBlock(prefix, count);
+        }
+
+        @Override
+        public void observing(String id) {
+            parent.observing(id);
+        }
+
+        @Override
+        public long highWaterMark(String prefix) {
+            return parent.highWaterMark(prefix);
+        }
+
+        @Override
+        public Map<String, Long> highWaterMarks() {
+            return parent.highWaterMarks();
+        }
+
+        @Override
+        public void restoring(Map<String, Long> marks) {
+            parent.restoring(marks);
+        }
+    }
+}
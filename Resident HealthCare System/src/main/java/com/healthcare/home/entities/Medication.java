@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 @Data
 @AllArgsConstructor
 public class Medication implements Serializable {
+    private static final long serialVersionUID = 4674136349861158106L;
     private String prescriptionId;
     private String nurseId;
     private LocalDateTime at;
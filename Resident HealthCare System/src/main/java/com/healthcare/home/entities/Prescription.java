@@ -1,23 +1,49 @@
 package com.healthcare.home.entities;
 
+import com.healthcare.home.exceptions.VersionConflictException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.Setter;
+import lombok.ToString;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 
 @Data
 public class Prescription implements Serializable {
-    @Setter
-    private static long idCounter = 0;
+    private static final long serialVersionUID = 11234564680351373L;
+    private static final AtomicLongFieldUpdater<Prescription> VERSION = AtomicLongFieldUpdater.newUpdater(Prescription.class, "version");
     private final String id;
     private final String doctorId;
     private String medicine;
     private String dose;
     private final List<String> times = new ArrayList<>();
-    private final List<Medication> administrations = new ArrayList<>();
+    // doses given, kept as columns rather than Medication objects and left out of equality
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private AdministrationHistory history = new AdministrationHistory();
+    // the doses as snapshots before the history wrote them, a List<Medication>; only set while reading one
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Object administrations;
+    // bumped on every change, callers holding an older version get a VersionConflictException
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile long version;
 
     /**
      * Prescription Constructor
@@ -28,7 +54,20 @@ public class Prescription implements Serializable {
      * @param times
      */
     public Prescription(String doctorId, String medicine, String dose, List<String> times) {
-        this.id = generateId();
+        this(IdAllocator.standalone(), doctorId, medicine, dose, times);
+    }
+
+    /**
+     * Prescription Constructor
+     *
+     * @param ids
+     * @param doctorId
+     * @param medicine
+     * @param dose
+     * @param times
+     */
+    public Prescription(IdAllocator ids, String doctorId, String medicine, String dose, List<String> times) {
+        this.id = ids.nextId(IdAllocator.PRESCRIPTION);
         this.doctorId = doctorId;
         this.medicine = medicine;
         this.dose = dose;
@@ -38,13 +77,50 @@ public class Prescription implements Serializable {
     }
 
     /**
-     * generateId
+     * dueTimesOfDay parses the free form times ("08:00", "Morning", "Evening") into times of day,
+     * entries that cannot be understood are skipped
      *
      * @return
      */
-    private synchronized String generateId() {
-        idCounter++;
-        return String.format("PRE-%03d", idCounter);
+    public List<LocalTime> dueTimesOfDay() {
+        List<LocalTime> dueTimes = new ArrayList<>();
+        for (String time : times) {
+            LocalTime parsed = parseTimeOfDay(time);
+            if (parsed != null && !dueTimes.contains(parsed)) dueTimes.add(parsed);
+        }
+        dueTimes.sort(null);
+        return dueTimes;
+    }
+
+    /**
+     * parseTimeOfDay
+     *
+     * @param time
+     * @return
+     */
+    private static LocalTime parseTimeOfDay(String time) {
+        if (time == null) return null;
+        String value = time.trim().toLowerCase();
+        switch (value) {
+            case "morning":
+                return LocalTime.of(8, 0);
+            case "noon":
+            case "midday":
+                return LocalTime.of(12, 0);
+            case "afternoon":
+                return LocalTime.of(14, 0);
+            case "evening":
+                return LocalTime.of(18, 0);
+            case "night":
+            case "bedtime":
+                return LocalTime.of(21, 0);
+            default:
+                try {
+                    return LocalTime.parse(value.length() == 4 ? "0" + value : value);
+                } catch (DateTimeParseException ex) {
+                    return null;
+                }
+        }
     }
 
     /**
@@ -52,14 +128,136 @@ public class Prescription implements Serializable {
      *
      * @param nurseId
      */
-    public void administer(String nurseId) {
-        Medication med = new Medication(
-                this.id,
-                nurseId,
-                LocalDateTime.now(),
-                this.dose
-        );
-        administrations.add(med);
+    public synchronized void administer(String nurseId) {
+        advancingVersion();
+        recordingAdministration(nurseId);
+    }
+
+    /**
+     * administer unless the prescription changed since the caller read its version
+     *
+     * @param nurseId
+     * @param expectedVersion
+     */
+    public synchronized void administer(String nurseId, long expectedVersion) {
+        advancingVersion(expectedVersion);
+        recordingAdministration(nurseId);
+    }
+
+    /**
+     * administer a dose given at the time unless the prescription changed since the caller read its version
+     *
+     * @param nurseId
+     * @param expectedVersion
+     * @param at
+     * @return the recorded administration
+     */
+    public synchronized Medication administer(String nurseId, long expectedVersion, LocalDateTime at) {
+        advancingVersion(expectedVersion);
+        return recordingAdministration(nurseId, at);
     }
 
+    /**
+     * recordingAdministration
+     *
+     * @param nurseId
+     */
+    private void recordingAdministration(String nurseId) {
+        recordingAdministration(nurseId, LocalDateTime.now());
+    }
+
+    /**
+     * recordingAdministration
+     *
+     * @param nurseId
+     * @param at
+     * @return
+     */
+    private Medication recordingAdministration(String nurseId, LocalDateTime at) {
+        history.recording(nurseId, at, this.dose);
+        return new Medication(this.id, nurseId, at, this.dose);
+    }
+
+    /**
+     * getAdministrations
+     *
+     * @return a copy of every dose given, in time order
+     */
+    public synchronized List<Medication> getAdministrations() {
+        return history.toList(id);
+    }
+
+    /**
+     * administrationsBetween
+     *
+     * @param from inclusive
+     * @param to   exclusive
+     * @return the doses given in the range, in time order
+     */
+    public synchronized List<Medication> administrationsBetween(LocalDateTime from, LocalDateTime to) {
+        return history.between(id, from, to);
+    }
+
+    /**
+     * lastAdministeredAt
+     *
+     * @return time of the latest dose given, or null
+     */
+    public synchronized LocalDateTime lastAdministeredAt() {
+        return history.lastAt();
+    }
+
+    /**
+     * writeObject holds the prescription so a dose recorded meanwhile is not half written
+     *
+     * @param out
+     * @throws IOException
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
+    /**
+     * readObject moves the doses of older snapshots into the history
+     *
+     * @param in
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (administrations instanceof AdministrationHistory written) {
+            history = written;
+        } else if (history == null) {
+            history = new AdministrationHistory();
+            if (administrations instanceof List<?> medications) {
+                for (Object element : medications) {
+                    Medication medication = (Medication) element;
+                    history.recording(medication.getNurseId(), medication.getAt(), medication.getDose());
+                }
+            }
+        }
+        administrations = null;
+    }
+
+    /**
+     * advancingVersion compare-and-set from the version the caller read
+     *
+     * @param expectedVersion
+     * @throws VersionConflictException when the prescription changed in between
+     */
+    public void advancingVersion(long expectedVersion) {
+        if (!VERSION.compareAndSet(this, expectedVersion, expectedVersion + 1)) {
+            throw new VersionConflictException("Prescription changed concurrently", id, expectedVersion, version);
+        }
+    }
+
+    /**
+     * advancingVersion unconditionally, for changes that do not depend on what the caller read
+     *
+     * @return the new version
+     */
+    public long advancingVersion() {
+        return VERSION.incrementAndGet(this);
+    }
 }
@@ -0,0 +1,109 @@
+package com.healthcare.home.entities;
+
+import com.healthcare.home.exceptions.ValidationFailedException;
+
+import java.io.Serializable;
+import java.time.*;
+import java.util.*;
+
+/**
+ * RecurringShift is a compact weekly shift rule, e.g. Mon-Fri 08:00-16:00 every week from a date
+ *
+ * @param days
+ * @param startTime
+ * @param endTime
+ * @param from
+ * @param until   last day the rule applies, null when open ended
+ */
+public record RecurringShift(Set<DayOfWeek> days, LocalTime startTime, LocalTime endTime,
+                             LocalDate from, LocalDate until) implements Serializable {
+
+    public RecurringShift {
+        if (days == null || days.isEmpty()) throw new ValidationFailedException("Recurring shift needs at least one day");
+        if (startTime == null || endTime == null || !endTime.isAfter(startTime))
+            throw new ValidationFailedException("Recurring shift must end after it starts on the same day");
+        if (from == null) throw new ValidationFailedException("Recurring shift needs a start date");
+        if (until != null && until.isBefore(from))
+            throw new ValidationFailedException("Recurring shift ends before it starts");
+        days = Collections.unmodifiableSet(EnumSet.copyOf(days));
+    }
+
+    /**
+     * everyDay
+     *
+     * @param startTime
+     * @param endTime
+     * @param from
+     * @return
+     */
+    public static RecurringShift everyDay(LocalTime startTime, LocalTime endTime, LocalDate from) {
+        return new RecurringShift(EnumSet.allOf(DayOfWeek.class), startTime, endTime, from, null);
+    }
+
+    /**
+     * occursOn
+     *
+     * @param date
+     * @return
+     */
+    public boolean occursOn(LocalDate date) {
+        return days.contains(date.getDayOfWeek()) && !date.isBefore(from) && (until == null || !date.isAfter(until));
+    }
+
+    /**
+     * isActiveAt evaluates the rule directly, without expanding any occurrence
+     *
+     * @param time
+     * @return
+     */
+    public boolean isActiveAt(LocalDateTime time) {
+        LocalTime timeOfDay = time.toLocalTime();
+        return occursOn(time.toLocalDate()) && !timeOfDay.isBefore(startTime) && !timeOfDay.isAfter(endTime);
+    }
+
+    /**
+     * isInEffectOnOrAfter
+     *
+     * @param date
+     * @return
+     */
+    public boolean isInEffectOnOrAfter(LocalDate date) {
+        return until == null || !until.isBefore(date);
+    }
+
+    /**
+     * occurrenceOn
+     *
+     * @param date
+     * @return
+     */
+    public Shift occurrenceOn(LocalDate date) {
+        return new Shift(date.atTime(startTime), date.atTime(endTime));
+    }
+
+    /**
+     * occurrencesBetween expands the rule for the inclusive window only
+     *
+     * @param windowFrom
+     * @param windowTo
+     * @return
+     */
+    public List<Shift> occurrencesBetween(LocalDate windowFrom, LocalDate windowTo) {
+        LocalDate first = windowFrom.isBefore(from) ? from : windowFrom;
+        LocalDate last = until != null && until.isBefore(windowTo) ? until : windowTo;
+        List<Shift> shifts = new ArrayList<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            if (days.contains(date.getDayOfWeek())) shifts.add(occurrenceOn(date));
+        }
+        return shifts;
+    }
+
+    /**
+     * hours
+     *
+     * @return
+     */
+    public long hours() {
+        return Duration.between(startTime, endTime).toHours();
+    }
+}
@@ -1,21 +1,32 @@
 package com.healthcare.home.entities;
 
+import com.healthcare.home.exceptions.VersionConflictException;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Setter;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.List;
 
 @Data
 public class Resident implements Serializable {
-    @Setter
-    private static long idCounter = 0;
+    private static final long serialVersionUID = 6001580583645019378L;
+    private static final AtomicLongFieldUpdater<Resident> VERSION = AtomicLongFieldUpdater.newUpdater(Resident.class, "version");
     private String id;
     private String name;
     private Gender gender;
     private boolean isolation;
+    // current bed, kept up to date by the home on admit and move; not part of equality so moving
+    // a resident does not change its hash code in sets and maps
+    @EqualsAndHashCode.Exclude
     private String bedId;
-    private List<Prescription> prescriptionList;
+    private volatile List<Prescription> prescriptionList;
+    // bumped on every change, callers holding an older version get a VersionConflictException
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile long version;
 
     /**
      * Resident Constructor
@@ -26,8 +37,20 @@ public class Resident implements Serializable {
      * @param bedId
      */
     public Resident(String name, Gender gender, boolean isolation, String bedId) {
-        this.id = generateId();
-        ;
+        this(IdAllocator.standalone(), name, gender, isolation, bedId);
+    }
+
+    /**
+     * Resident Constructor
+     *
+     * @param ids
+     * @param name
+     * @param gender
+     * @param isolation
+     * @param bedId
+     */
+    public Resident(IdAllocator ids, String name, Gender gender, boolean isolation, String bedId) {
+        this.id = ids.nextId(IdAllocator.RESIDENT);
         this.name = name;
         this.gender = gender;
         this.isolation = isolation;
@@ -35,13 +58,23 @@ public class Resident implements Serializable {
     }
 
     /**
-     * generateId
+     * advancingVersion compare-and-set from the version the caller read
      *
-     * @return
+     * @param expectedVersion
+     * @throws VersionConflictException when the resident changed in between
      */
-    private synchronized String generateId() {
-        idCounter++;
-        return String.format("RES-%03d", idCounter);
+    public void advancingVersion(long expectedVersion) {
+        if (!VERSION.compareAndSet(this, expectedVersion, expectedVersion + 1)) {
+            throw new VersionConflictException("Resident changed concurrently", id, expectedVersion, version);
+        }
     }
 
+    /**
+     * advancingVersion unconditionally, for changes that do not depend on what the caller read
+     *
+     * @return the new version
+     */
+    public long advancingVersion() {
+        return VERSION.incrementAndGet(this);
+    }
 }
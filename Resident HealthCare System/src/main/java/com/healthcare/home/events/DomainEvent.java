@@ -0,0 +1,181 @@
+package com.healthcare.home.events;
+
+import com.healthcare.home.auth.AuthAccess;
+
+import java.time.LocalDateTime;
+
+/**
+ * DomainEvent published by ResidentHealthCareHome after each change, delivered by the DomainEventBus.
+ * Events of one aggregate (a resident, a prescription, a staff member's roster) arrive in the order they happened.
+ */
+public sealed interface DomainEvent permits DomainEvent.ResidentAdmitted, DomainEvent.ResidentMoved,
+        DomainEvent.ResidentDischarged, DomainEvent.PrescriptionWritten, DomainEvent.DoseAdministered, DomainEvent.ShiftAssigned {
+
+    /**
+     * aggregateId the event belongs to, the unit of ordered delivery
+     *
+     * @return
+     */
+    String aggregateId();
+
+    /**
+     * staffId of who made the change
+     *
+     * @return
+     */
+    String staffId();
+
+    LocalDateTime at();
+
+    /**
+     * access the change was made with, the action of its audit line
+     *
+     * @return
+     */
+    AuthAccess access();
+
+    /**
+     * description of the change for the audit log
+     *
+     * @return
+     */
+    String description();
+
+    /**
+     * ResidentAdmitted
+     *
+     * @param staffId
+     * @param at
+     * @param residentId
+     * @param bedId
+     */
+    record ResidentAdmitted(String staffId, LocalDateTime at, String residentId, String bedId) implements DomainEvent {
+        public String aggregateId() {
+            return residentId;
+        }
+
+        public AuthAccess access() {
+            return AuthAccess.ADD_RESIDENT;
+        }
+
+        public String description() {
+            return "Assigned resident " + residentId + " to " + bedId;
+        }
+    }
+
+    /**
+     * ResidentMoved
+     *
+     * @param staffId
+     * @param at
+     * @param residentId
+     * @param fromBedId
+     * @param toBedId
+     */
+    record ResidentMoved(String staffId, LocalDateTime at, String residentId, String fromBedId, String toBedId) implements DomainEvent {
+        public String aggregateId() {
+            return residentId;
+        }
+
+        public AuthAccess access() {
+            return AuthAccess.MOVE_RESIDENT;
+        }
+
+        public String description() {
+            return "Moved resident " + residentId + " from " + fromBedId + " to " + toBedId;
+        }
+    }
+
+    /**
+     * ResidentDischarged
+     *
+     * @param staffId
+     * @param at
+     * @param residentId
+     * @param bedId
+     */
+    record ResidentDischarged(String staffId, LocalDateTime at, String residentId, String bedId) implements DomainEvent {
+        public String aggregateId() {
+            return residentId;
+        }
+
+        public AuthAccess access() {
+            return AuthAccess.DISCHARGE_RESIDENT;
+        }
+
+        public String description() {
+            return "Discharged " + residentId + " from bed " + bedId;
+        }
+    }
+
+    /**
+     * PrescriptionWritten, ordered with the other events of the resident
+     *
+     * @param staffId
+     * @param at
+     * @param residentId
+     * @param bedId
+     * @param prescriptionId
+     */
+    record PrescriptionWritten(String staffId, LocalDateTime at, String residentId, String bedId, String prescriptionId) implements DomainEvent {
+        public String aggregateId() {
+            return residentId;
+        }
+
+        public AuthAccess access() {
+            return AuthAccess.WRITE_PRESCRIPTION;
+        }
+
+        public String description() {
+            return "Prescription " + prescriptionId + " added for resident " + residentId;
+        }
+    }
+
+    /**
+     * DoseAdministered
+     *
+     * @param staffId
+     * @param at
+     * @param prescriptionId
+     * @param bedId          bed of the resident, null when the prescription is not scheduled
+     * @param medicine
+     * @param dose
+     * @param dueAt          due time the dose was given for, null when it was given off schedule
+     */
+    record DoseAdministered(String staffId, LocalDateTime at, String prescriptionId, String bedId, String medicine,
+                            String dose, LocalDateTime dueAt) implements DomainEvent {
+        public String aggregateId() {
+            return prescriptionId;
+        }
+
+        public AuthAccess access() {
+            return AuthAccess.ADMINISTER_MEDICATION;
+        }
+
+        public String description() {
+            return "Administered " + medicine + " (" + dose + ")" + (dueAt == null ? "" : " due " + dueAt) + " for prescription " + prescriptionId;
+        }
+    }
+
+    /**
+     * ShiftAssigned
+     *
+     * @param staffId    manager who assigned it
+     * @param at
+     * @param assigneeId
+     * @param shift      the shift or recurring rule as text
+     */
+    record ShiftAssigned(String staffId, LocalDateTime at, String assigneeId, String shift) implements DomainEvent {
+        public String aggregateId() {
+            return assigneeId;
+        }
+
+        public AuthAccess access() {
+            return AuthAccess.SHIFT_ASSIGNMENT;
+        }
+
+        public String description() {
+            return "Assigned " + shift + " to " + assigneeId;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.healthcare.home.events;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * DomainEventBus delivers the events of a home to its subscribers off the calling thread, in batches.
+ * Events are spread over lanes by aggregate id; a lane is drained by one task at a time, so the events of
+ * one aggregate reach every subscriber in publish order while different aggregates are delivered in parallel.
+ * Subscribers get each batch of a lane as one list and must be thread safe, batches of two lanes may overlap.
+ * Events published together with publishingAll reach the subscribers as one list; when their aggregates sit on
+ * several lanes the list is delivered once each of those lanes has delivered what was published before it.
+ */
+public class DomainEventBus {
+    public static final int DEFAULT_LANES = 4;
+    public static final int MAX_BATCH = 256;
+
+    private final List<Consumer<List<DomainEvent>>> subscribers = new CopyOnWriteArrayList<>();
+    private final Lane[] lanes;
+    private final ThreadPoolExecutor executor;
+    // published and not yet delivered, flushing waits for it to reach zero
+    private final AtomicLong pending = new AtomicLong();
+    private final Object idle = new Object();
+    // batches spanning lanes are queued on all of them in the same order, so no two wait on each other
+    private final Object spanningOrder = new Object();
+
+    /**
+     * DomainEventBus Constructor
+     */
+    public DomainEventBus() {
+        this(DEFAULT_LANES);
+    }
+
+    /**
+     * DomainEventBus Constructor
+     *
+     * @param laneCount
+     */
+    public DomainEventBus(int laneCount) {
+        if (laneCount < 1) throw new IllegalArgumentException("laneCount must be positive");
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) lanes[i] = new Lane();
+        executor = new ThreadPoolExecutor(laneCount, laneCount, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "domain-event-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // idle homes keep no threads
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * subscribing to batches of events
+     *
+     * @param subscriber
+     * @return the subscriber, to pass to unsubscribing
+     */
+    public Consumer<List<DomainEvent>> subscribing(Consumer<List<DomainEvent>> subscriber) {
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * unsubscribing
+     *
+     * @param subscriber
+     */
+    public void unsubscribing(Consumer<List<DomainEvent>> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * publishing queues the event on its aggregate's lane and returns at once
+     *
+     * @param event
+     */
+    public void publishing(DomainEvent event) {
+        Lane lane = laneOf(event);
+        pending.incrementAndGet();
+        lane.queue.offer(new Entry(List.of(event), null));
+        lane.scheduling();
+    }
+
+    /**
+     * publishingAll queues the events to be delivered together as one list, in the given order
+     *
+     * @param events
+     */
+    public void publishingAll(List<DomainEvent> events) {
+        if (events.isEmpty()) return;
+        List<DomainEvent> batch = List.copyOf(events);
+        Set<Lane> touched = new LinkedHashSet<>();
+        for (DomainEvent event : batch) touched.add(laneOf(event));
+        pending.addAndGet(batch.size());
+        if (touched.size() == 1) {
+            Lane lane = touched.iterator().next();
+            lane.queue.offer(new Entry(batch, null));
+            lane.scheduling();
+            return;
+        }
+        Spanning spanning = new Spanning(batch, touched);
+        synchronized (spanningOrder) {
+            for (Lane lane : touched) lane.queue.offer(new Entry(null, spanning));
+        }
+        touched.forEach(Lane::scheduling);
+    }
+
+    private Lane laneOf(DomainEvent event) {
+        String aggregateId = event.aggregateId();
+        return lanes[Math.floorMod(aggregateId == null ? 0 : aggregateId.hashCode(), lanes.length)];
+    }
+
+    /**
+     * flushing waits until every event published so far was delivered
+     *
+     * @param timeout
+     * @return false when the timeout passed first
+     */
+    public boolean flushing(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (idle) {
+            while (pending.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * closing delivers what is pending and stops the lanes, later events are delivered on the publishing thread
+     *
+     * @param timeout
+     */
+    public void closing(Duration timeout) {
+        flushing(timeout);
+        executor.shutdown();
+    }
+
+    public long pendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * delivering a batch to every subscriber, a failing subscriber does not stop the others
+     *
+     * @param batch
+     */
+    private void delivering(List<DomainEvent> batch) {
+        try {
+            for (Consumer<List<DomainEvent>> subscriber : subscribers) {
+                try {
+                    subscriber.accept(batch);
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } finally {
+            if (pending.addAndGet(-batch.size()) == 0) {
+                synchronized (idle) {
+                    idle.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Entry of a lane, the events published together or a batch spanning several lanes
+     */
+    private static final class Entry {
+        private final List<DomainEvent> events;
+        private final Spanning spanning;
+        // only read and written by the lane's drain task
+        private boolean arrived;
+
+        private Entry(List<DomainEvent> events, Spanning spanning) {
+            this.events = events;
+            this.spanning = spanning;
+        }
+    }
+
+    /**
+     * Spanning batch, delivered by the last of its lanes to reach it
+     */
+    private static final class Spanning {
+        private final List<DomainEvent> events;
+        private final Set<Lane> lanes;
+        private final AtomicInteger arriving;
+        private volatile boolean delivered;
+
+        private Spanning(List<DomainEvent> events, Set<Lane> lanes) {
+            this.events = events;
+            this.lanes = lanes;
+            this.arriving = new AtomicInteger(lanes.size());
+        }
+    }
+
+    /**
+     * Lane of aggregates, drained by at most one task at a time
+     */
+    private final class Lane implements Runnable {
+        private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void scheduling() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                // bus closed, deliver on the caller
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            List<DomainEvent> batch = new ArrayList<>();
+            Entry entry;
+            while (batch.size() < MAX_BATCH && (entry = queue.peek()) != null) {
+                if (entry.spanning == null) {
+                    queue.poll();
+                    batch.addAll(entry.events);
+                    continue;
+                }
+                // what was published in front of a spanning batch is delivered before it
+                if (!batch.isEmpty()) break;
+                Spanning spanning = entry.spanning;
+                if (!spanning.delivered) {
+                    boolean last = !entry.arrived && spanning.arriving.decrementAndGet() == 0;
+                    entry.arrived = true;
+                    if (!last) {
+                        // parked until the last lane delivered it, which schedules this one again
+                        scheduled.set(false);
+                        if (spanning.delivered) scheduling();
+                        return;
+                    }
+                    delivering(spanning.events);
+                    spanning.delivered = true;
+                    queue.poll();
+                    for (Lane lane : spanning.lanes) if (lane != this) lane.scheduling();
+                    break;
+                }
+                queue.poll();
+            }
+            if (!batch.isEmpty()) delivering(List.copyOf(batch));
+            scheduled.set(false);
+            if (!queue.isEmpty()) scheduling();
+        }
+    }
+}
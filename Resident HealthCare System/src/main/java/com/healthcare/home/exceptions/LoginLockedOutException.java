@@ -0,0 +1,22 @@
+package com.healthcare.home.exceptions;
+
+import java.time.Duration;
+
+public class LoginLockedOutException extends RuntimeException {
+    private final Duration retryAfter;
+
+    /**
+     * LoginLockedOutException
+     *
+     * @param exMsg
+     * @param retryAfter
+     */
+    public LoginLockedOutException(String exMsg, Duration retryAfter) {
+        super(exMsg);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,34 @@
+package com.healthcare.home.exceptions;
+
+public class VersionConflictException extends RuntimeException {
+    private final String entityId;
+    private final long expectedVersion;
+    private final long actualVersion;
+
+    /**
+     * VersionConflictException, the entity changed since the caller read it
+     *
+     * @param exMsg
+     * @param entityId
+     * @param expectedVersion
+     * @param actualVersion
+     */
+    public VersionConflictException(String exMsg, String entityId, long expectedVersion, long actualVersion) {
+        super(exMsg + " (" + entityId + " expected version " + expectedVersion + ", found " + actualVersion + ")");
+        this.entityId = entityId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
@@ -0,0 +1,124 @@
+package com.healthcare.home.facility;
+
+import com.healthcare.home.entities.Gender;
+import com.healthcare.home.exceptions.ValidationFailedException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FacilityLayout reads the ward / room / bed layout of the home from a line based configuration file.
+ * The file is parsed while it is streamed, one line at a time, so a layout of thousands of beds never
+ * needs more than the resulting bed list in memory. The format is described in the default layout.txt.
+ */
+public final class FacilityLayout {
+    public static final String DEFAULT_RESOURCE = "/com/healthcare/home/facility/layout.txt";
+    private static final String LAYOUT_PROPERTY = "healthcare.layout";
+
+    private FacilityLayout() {
+    }
+
+    /**
+     * BedSpec is one bed of the layout
+     *
+     * @param bedId
+     * @param isolated
+     * @param gender   gender policy of the bed, null for any
+     */
+    public record BedSpec(String bedId, boolean isolated, Gender gender) {
+    }
+
+    /**
+     * configured reads the file given by -Dhealthcare.layout, or the default layout on the classpath
+     *
+     * @return
+     */
+    public static List<BedSpec> configured() {
+        String path = System.getProperty(LAYOUT_PROPERTY);
+        try {
+            if (path != null && !path.isBlank()) return reading(Path.of(path));
+            try (InputStream in = FacilityLayout.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+                if (in == null) throw new ValidationFailedException("Default facility layout not found: " + DEFAULT_RESOURCE);
+                return reading(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        } catch (IOException ex) {
+            throw new ValidationFailedException("Could not read facility layout: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * reading a layout file
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public static List<BedSpec> reading(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return reading(reader);
+        }
+    }
+
+    /**
+     * reading a layout line by line
+     *
+     * @param reader
+     * @return beds in file order
+     * @throws IOException
+     */
+    public static List<BedSpec> reading(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        List<BedSpec> beds = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line; (line = lines.readLine()) != null; ) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            line = line.strip();
+            if (line.isEmpty()) continue;
+            parsingLine(line, lineNumber, beds);
+        }
+        return beds;
+    }
+
+    /**
+     * parsingLine appends the beds of one room or bed line
+     *
+     * @param line
+     * @param lineNumber
+     * @param beds
+     */
+    private static void parsingLine(String line, int lineNumber, List<BedSpec> beds) {
+        String[] tokens = line.split("\\s+");
+        String id = tokens[0];
+        int segments = id.split("-", -1).length;
+        if (segments < 2 || segments > 3 || id.startsWith("-") || id.endsWith("-") || id.contains("--"))
+            throw new ValidationFailedException("Line " + lineNumber + ": invalid room or bed id " + id);
+
+        int count = 1;
+        boolean isolated = false;
+        Gender gender = null;
+        for (int i = 1; i < tokens.length; i++) {
+            String token = tokens[i];
+            try {
+                if (token.equals("isolated")) isolated = true;
+                else if (token.startsWith("beds=") && segments == 2) count = Integer.parseInt(token.substring(5));
+                else if (token.startsWith("gender=")) gender = Gender.valueOf(token.substring(7).toUpperCase());
+                else throw new IllegalArgumentException();
+            } catch (IllegalArgumentException ex) {
+                throw new ValidationFailedException("Line " + lineNumber + ": invalid option " + token);
+            }
+        }
+        if (count < 1) throw new ValidationFailedException("Line " + lineNumber + ": a room needs at least one bed");
+
+        if (segments == 3) {
+            beds.add(new BedSpec(id, isolated, gender));
+            return;
+        }
+        for (int bed = 1; bed <= count; bed++) beds.add(new BedSpec(id + "-B" + bed, isolated, gender));
+    }
+}
@@ -0,0 +1,295 @@
+package com.healthcare.home.facility;
+
+import com.healthcare.home.exceptions.ValidationFailedException;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * FacilityTopology is the ward / room / bed structure of the home with dense integer ids.
+ * Beds are numbered so that every room, and every ward, owns one contiguous range of bed ids;
+ * the beds of a ward or room are therefore a slice of the bed arrays and never need string parsing.
+ * The string ids (W1, W1-R101, W1-R101-B1) are only a mapping layer for the UI and persistence.
+ * Instances are immutable, withBeds returns a new topology.
+ */
+public final class FacilityTopology implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] wardIds;
+    private final String[] roomIds;
+    private final String[] bedIds;
+    private final int[] roomWard;
+    private final int[] bedRoom;
+    // first room of each ward and first bed of each ward / room, with one trailing end entry
+    private final int[] wardRoomStart;
+    private final int[] wardBedStart;
+    private final int[] roomBedStart;
+    private final Map<String, Integer> wardIndex = new HashMap<>();
+    private final Map<String, Integer> roomIndex = new HashMap<>();
+    private final Map<String, Integer> bedIndex = new HashMap<>();
+
+    /**
+     * FacilityTopology Constructor, bedIds must already be sorted by ward and room
+     *
+     * @param sortedBedIds
+     */
+    private FacilityTopology(List<String> sortedBedIds) {
+        List<String> wards = new ArrayList<>();
+        List<String> rooms = new ArrayList<>();
+        List<Integer> roomWards = new ArrayList<>();
+        List<Integer> wardRoomStarts = new ArrayList<>();
+        List<Integer> wardBedStarts = new ArrayList<>();
+        List<Integer> roomBedStarts = new ArrayList<>();
+        bedIds = sortedBedIds.toArray(new String[0]);
+        bedRoom = new int[bedIds.length];
+
+        for (int bed = 0; bed < bedIds.length; bed++) {
+            String ward = wardOf(bedIds[bed]);
+            String room = roomOf(bedIds[bed]);
+            if (wards.isEmpty() || !wards.get(wards.size() - 1).equals(ward)) {
+                wardIndex.put(ward, wards.size());
+                wards.add(ward);
+                wardRoomStarts.add(rooms.size());
+                wardBedStarts.add(bed);
+            }
+            if (rooms.isEmpty() || !rooms.get(rooms.size() - 1).equals(room)) {
+                roomIndex.put(room, rooms.size());
+                rooms.add(room);
+                roomWards.add(wards.size() - 1);
+                roomBedStarts.add(bed);
+            }
+            if (bedIndex.put(bedIds[bed], bed) != null) throw new ValidationFailedException("Duplicate bed id: " + bedIds[bed]);
+            bedRoom[bed] = rooms.size() - 1;
+        }
+        wardRoomStarts.add(rooms.size());
+        wardBedStarts.add(bedIds.length);
+        roomBedStarts.add(bedIds.length);
+
+        wardIds = wards.toArray(new String[0]);
+        roomIds = rooms.toArray(new String[0]);
+        roomWard = roomWards.stream().mapToInt(Integer::intValue).toArray();
+        wardRoomStart = wardRoomStarts.stream().mapToInt(Integer::intValue).toArray();
+        wardBedStart = wardBedStarts.stream().mapToInt(Integer::intValue).toArray();
+        roomBedStart = roomBedStarts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * fromBedIds builds the topology from bed ids of the form W1-R101-B1
+     *
+     * @param bedIds
+     * @return
+     */
+    public static FacilityTopology fromBedIds(Collection<String> bedIds) {
+        List<String> sorted = new ArrayList<>(bedIds);
+        for (String bedId : sorted) {
+            if (bedId == null || bedId.split("-").length < 3) throw new ValidationFailedException("Invalid bed id: " + bedId);
+        }
+        // ward, then room, then bed, so every ward and room ends up as one contiguous range
+        sorted.sort(Comparator.comparing(FacilityTopology::wardOf, FacilityTopology::comparingIds)
+                .thenComparing(FacilityTopology::roomOf, FacilityTopology::comparingIds)
+                .thenComparing(FacilityTopology::comparingIds));
+        return new FacilityTopology(sorted);
+    }
+
+    /**
+     * withBeds returns a topology that also contains the given beds, renumbering once for the whole batch
+     *
+     * @param newBedIds
+     * @return
+     */
+    public FacilityTopology withBeds(Collection<String> newBedIds) {
+        List<String> ids = new ArrayList<>(Arrays.asList(bedIds));
+        for (String bedId : newBedIds) {
+            if (bedIndex.containsKey(bedId)) throw new ValidationFailedException("Bed already exists: " + bedId);
+            ids.add(bedId);
+        }
+        return fromBedIds(ids);
+    }
+
+    /**
+     * wardOf returns the ward part of a bed or room id
+     *
+     * @param id
+     * @return
+     */
+    public static String wardOf(String id) {
+        int dash = id.indexOf('-');
+        return dash < 0 ? id : id.substring(0, dash);
+    }
+
+    /**
+     * roomOf returns the ward-room part of a bed id
+     *
+     * @param bedId
+     * @return
+     */
+    public static String roomOf(String bedId) {
+        int dash = bedId.indexOf('-', bedId.indexOf('-') + 1);
+        return dash < 0 ? bedId : bedId.substring(0, dash);
+    }
+
+    public int wardCount() {
+        return wardIds.length;
+    }
+
+    public int roomCount() {
+        return roomIds.length;
+    }
+
+    public int bedCount() {
+        return bedIds.length;
+    }
+
+    /**
+     * bedIndexOf
+     *
+     * @param bedId
+     * @return dense bed id, or -1 when unknown
+     */
+    public int bedIndexOf(String bedId) {
+        Integer index = bedIndex.get(bedId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * wardIndexOf
+     *
+     * @param wardId
+     * @return dense ward id, or -1 when unknown
+     */
+    public int wardIndexOf(String wardId) {
+        Integer index = wardIndex.get(wardId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * roomIndexOf
+     *
+     * @param roomId
+     * @return dense room id, or -1 when unknown
+     */
+    public int roomIndexOf(String roomId) {
+        Integer index = roomIndex.get(roomId);
+        return index == null ? -1 : index;
+    }
+
+    public String bedId(int bed) {
+        return bedIds[bed];
+    }
+
+    public String roomId(int room) {
+        return roomIds[room];
+    }
+
+    public String wardId(int ward) {
+        return wardIds[ward];
+    }
+
+    public int roomOfBed(int bed) {
+        return bedRoom[bed];
+    }
+
+    public int wardOfRoom(int room) {
+        return roomWard[room];
+    }
+
+    public int wardOfBed(int bed) {
+        return roomWard[bedRoom[bed]];
+    }
+
+    /**
+     * firstBedOfWard, the beds of a ward are firstBedOfWard(w) until (excluding) endBedOfWard(w)
+     *
+     * @param ward
+     * @return
+     */
+    public int firstBedOfWard(int ward) {
+        return wardBedStart[ward];
+    }
+
+    public int endBedOfWard(int ward) {
+        return wardBedStart[ward + 1];
+    }
+
+    /**
+     * firstBedOfRoom, the beds of a room are firstBedOfRoom(r) until (excluding) endBedOfRoom(r)
+     *
+     * @param room
+     * @return
+     */
+    public int firstBedOfRoom(int room) {
+        return roomBedStart[room];
+    }
+
+    public int endBedOfRoom(int room) {
+        return roomBedStart[room + 1];
+    }
+
+    public int firstRoomOfWard(int ward) {
+        return wardRoomStart[ward];
+    }
+
+    public int endRoomOfWard(int ward) {
+        return wardRoomStart[ward + 1];
+    }
+
+    /**
+     * bedIds
+     *
+     * @return every bed id in dense id order
+     */
+    public List<String> bedIds() {
+        return Collections.unmodifiableList(Arrays.asList(bedIds));
+    }
+
+    public List<String> wardIds() {
+        return Collections.unmodifiableList(Arrays.asList(wardIds));
+    }
+
+    /**
+     * bedIdsInWard is a view over the ward's slice of the bed array
+     *
+     * @param wardId
+     * @return
+     */
+    public List<String> bedIdsInWard(String wardId) {
+        int ward = wardIndexOf(wardId);
+        if (ward < 0) return List.of();
+        return bedIds().subList(firstBedOfWard(ward), endBedOfWard(ward));
+    }
+
+    /**
+     * bedIdsInRoom is a view over the room's slice of the bed array
+     *
+     * @param roomId
+     * @return
+     */
+    public List<String> bedIdsInRoom(String roomId) {
+        int room = roomIndexOf(roomId);
+        if (room < 0) return List.of();
+        return bedIds().subList(firstBedOfRoom(room), endBedOfRoom(room));
+    }
+
+    /**
+     * roomIdsInWard is a view over the ward's slice of the room array
+     *
+     * @param wardId
+     * @return
+     */
+    public List<String> roomIdsInWard(String wardId) {
+        int ward = wardIndexOf(wardId);
+        if (ward < 0) return List.of();
+        return Collections.unmodifiableList(Arrays.asList(roomIds)).subList(firstRoomOfWard(ward), endRoomOfWard(ward));
+    }
+
+    /**
+     * comparingIds orders ids by length first, so W2 sorts before W10 and R99 before R100
+     *
+     * @param first
+     * @param second
+     * @return
+     */
+    private static int comparingIds(String first, String second) {
+        return first.length() != second.length() ? Integer.compare(first.length(), second.length()) : first.compareTo(second);
+    }
+}
@@ -0,0 +1,224 @@
+package com.healthcare.home.facility;
+
+import com.healthcare.home.entities.Bed;
+import com.healthcare.home.entities.Gender;
+import com.healthcare.home.entities.Resident;
+
+import java.util.*;
+
+/**
+ * VacancyIndex keeps the vacant beds of a FacilityTopology in ordered sets of dense bed ids,
+ * one per placement class: isolation capable or not, and the gender the bed accepts
+ * (a gender fixed on the bed, else the gender of the residents already in the room, else any).
+ * It is updated on every admit, move and discharge; when a room gains its first or loses its last
+ * resident only that room's vacant beds change class. suggestBed is a few O(log n) set lookups.
+ */
+public class VacancyIndex {
+    private static final int ANY = 2;
+    private static final int MIXED = 3;
+
+    private final FacilityTopology topology;
+    private final boolean[] vacant;
+    private final boolean[] isolated;
+    private final Gender[] fixedGender;
+    private final int[] maleInRoom;
+    private final int[] femaleInRoom;
+    // [isolated ? 1 : 0][MALE, FEMALE, ANY], beds of rooms holding both genders are not indexed
+    private final NavigableSet<Integer>[][] vacantBeds;
+
+    /**
+     * VacancyIndex Constructor, reads the current occupancy of every bed in the topology
+     *
+     * @param topology
+     * @param beds
+     */
+    @SuppressWarnings("unchecked")
+    public VacancyIndex(FacilityTopology topology, Map<String, Bed> beds) {
+        this.topology = topology;
+        int bedCount = topology.bedCount();
+        vacant = new boolean[bedCount];
+        isolated = new boolean[bedCount];
+        fixedGender = new Gender[bedCount];
+        maleInRoom = new int[topology.roomCount()];
+        femaleInRoom = new int[topology.roomCount()];
+        vacantBeds = (NavigableSet<Integer>[][]) new NavigableSet<?>[2][3];
+        for (NavigableSet<Integer>[] byGender : vacantBeds) {
+            for (int gender = 0; gender < byGender.length; gender++) byGender[gender] = new TreeSet<>();
+        }
+
+        for (int bed = 0; bed < bedCount; bed++) {
+            Bed entity = beds.get(topology.bedId(bed));
+            isolated[bed] = entity != null && entity.isIsolated();
+            fixedGender[bed] = entity == null ? null : entity.getGender();
+            Resident resident = entity == null ? null : entity.getResident();
+            vacant[bed] = entity != null && resident == null;
+            if (resident != null) counting(topology.roomOfBed(bed), resident.getGender(), 1);
+        }
+        for (int bed = 0; bed < bedCount; bed++) {
+            if (vacant[bed]) classOf(bed).add(bed);
+        }
+    }
+
+    /**
+     * occupying marks a bed taken by the resident
+     *
+     * @param bedId
+     * @param resident
+     */
+    public synchronized void occupying(String bedId, Resident resident) {
+        int bed = topology.bedIndexOf(bedId);
+        if (bed < 0 || !vacant[bed]) return;
+        classOf(bed).remove(bed);
+        vacant[bed] = false;
+        changingRoom(topology.roomOfBed(bed), resident.getGender(), 1);
+    }
+
+    /**
+     * vacating marks a bed free again after the resident left
+     *
+     * @param bedId
+     * @param resident
+     */
+    public synchronized void vacating(String bedId, Resident resident) {
+        int bed = topology.bedIndexOf(bedId);
+        if (bed < 0 || vacant[bed]) return;
+        changingRoom(topology.roomOfBed(bed), resident.getGender(), -1);
+        vacant[bed] = true;
+        classOf(bed).add(bed);
+    }
+
+    /**
+     * suggestBed returns the best compatible vacant bed: isolation residents only get isolation beds,
+     * others prefer a plain bed; rooms already holding the resident's gender are filled before empty rooms
+     *
+     * @param resident
+     * @param preferredWard ward to search first, may be null
+     * @return bed id, or null when no compatible bed is vacant
+     */
+    public synchronized String suggestBed(Resident resident, String preferredWard) {
+        int ward = preferredWard == null ? -1 : topology.wardIndexOf(preferredWard);
+        if (ward >= 0) {
+            Integer bed = searching(resident, topology.firstBedOfWard(ward), topology.endBedOfWard(ward));
+            if (bed != null) return topology.bedId(bed);
+        }
+        Integer bed = searching(resident, 0, topology.bedCount());
+        return bed == null ? null : topology.bedId(bed);
+    }
+
+    /**
+     * vacantBedIds in dense id order, so beds of a ward and room stay together
+     *
+     * @return
+     */
+    public synchronized List<String> vacantBedIds() {
+        List<String> ids = new ArrayList<>();
+        for (int bed = 0; bed < vacant.length; bed++) {
+            if (vacant[bed]) ids.add(topology.bedId(bed));
+        }
+        return ids;
+    }
+
+    /**
+     * compatibleBedIds lists every vacant bed suggestBed could return for the resident, in dense id order
+     *
+     * @param resident
+     * @return
+     */
+    public synchronized List<String> compatibleBedIds(Resident resident) {
+        NavigableSet<Integer> merged = new TreeSet<>();
+        for (NavigableSet<Integer> candidates : candidateClasses(resident)) merged.addAll(candidates);
+        List<String> ids = new ArrayList<>(merged.size());
+        for (int bed : merged) ids.add(topology.bedId(bed));
+        return ids;
+    }
+
+    /**
+     * searching the candidate classes in preference order within the bed id range
+     *
+     * @param resident
+     * @param from
+     * @param to
+     * @return
+     */
+    private Integer searching(Resident resident, int from, int to) {
+        for (NavigableSet<Integer> candidates : candidateClasses(resident)) {
+            Integer bed = candidates.ceiling(from);
+            if (bed != null && bed < to) return bed;
+        }
+        return null;
+    }
+
+    /**
+     * candidateClasses in preference order
+     *
+     * @param resident
+     * @return
+     */
+    private List<NavigableSet<Integer>> candidateClasses(Resident resident) {
+        List<NavigableSet<Integer>> classes = new ArrayList<>(4);
+        int gender = resident.getGender() == null ? -1 : resident.getGender().ordinal();
+        int[] isolation = resident.isIsolation() ? new int[]{1} : new int[]{0, 1};
+        for (int iso : isolation) {
+            if (gender >= 0) classes.add(vacantBeds[iso][gender]);
+            classes.add(vacantBeds[iso][ANY]);
+        }
+        return classes;
+    }
+
+    /**
+     * changingRoom updates the room counts and moves the room's vacant beds when its gender changed
+     *
+     * @param room
+     * @param gender
+     * @param delta
+     */
+    private void changingRoom(int room, Gender gender, int delta) {
+        int before = roomGender(room);
+        counting(room, gender, delta);
+        if (roomGender(room) == before) return;
+        for (int bed = topology.firstBedOfRoom(room); bed < topology.endBedOfRoom(room); bed++) {
+            if (!vacant[bed] || fixedGender[bed] != null) continue;
+            if (before != MIXED) vacantBeds[isolated[bed] ? 1 : 0][before].remove(bed);
+            classOf(bed).add(bed);
+        }
+    }
+
+    /**
+     * counting
+     *
+     * @param room
+     * @param gender
+     * @param delta
+     */
+    private void counting(int room, Gender gender, int delta) {
+        if (gender == Gender.MALE) maleInRoom[room] += delta;
+        else if (gender == Gender.FEMALE) femaleInRoom[room] += delta;
+    }
+
+    /**
+     * roomGender
+     *
+     * @param room
+     * @return MALE or FEMALE ordinal, ANY for an empty room, MIXED when both genders share it
+     */
+    private int roomGender(int room) {
+        boolean male = maleInRoom[room] > 0;
+        boolean female = femaleInRoom[room] > 0;
+        if (male && female) return MIXED;
+        if (male) return Gender.MALE.ordinal();
+        if (female) return Gender.FEMALE.ordinal();
+        return ANY;
+    }
+
+    /**
+     * classOf returns the set a vacant bed belongs in, a stand-alone empty set for beds of mixed rooms
+     *
+     * @param bed
+     * @return
+     */
+    private NavigableSet<Integer> classOf(int bed) {
+        int gender = fixedGender[bed] != null ? fixedGender[bed].ordinal() : roomGender(topology.roomOfBed(bed));
+        if (gender == MIXED) return new TreeSet<>();
+        return vacantBeds[isolated[bed] ? 1 : 0][gender];
+    }
+}
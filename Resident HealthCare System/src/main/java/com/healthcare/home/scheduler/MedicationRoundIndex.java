@@ -0,0 +1,289 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.entities.Prescription;
+import com.healthcare.home.facility.FacilityTopology;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * MedicationRoundIndex keeps the due times of every prescription of the residents in the home, parsed
+ * from the free form times ("Morning", "08:00"), in one time of day ordered map per ward. A round over
+ * a window reads the sub map of the window's times for each day it covers, so planning costs
+ * O(log n + k) for k doses due rather than a scan over every resident and prescription.
+ * Each prescription remembers the latest due time an administration covered; an administration up to
+ * EARLY_ADMINISTRATION before a due time covers that dose, and a dose is outstanding until covered.
+ */
+public class MedicationRoundIndex {
+    public static final Duration EARLY_ADMINISTRATION = Duration.ofHours(1);
+
+    /**
+     * DueDose
+     *
+     * @param prescriptionId
+     * @param residentId
+     * @param bedId
+     * @param medicine
+     * @param dose
+     * @param dueAt
+     * @param overdue true when dueAt passed and the dose was not given
+     */
+    public record DueDose(String prescriptionId, String residentId, String bedId, String medicine, String dose,
+                          LocalDateTime dueAt, boolean overdue) {
+    }
+
+    private static final class Scheduled {
+        private final Prescription prescription;
+        private final String residentId;
+        private final List<LocalTime> times;
+        private String bedId;
+        // due times up to and including this one need no administration
+        private LocalDateTime coveredUntil;
+
+        private Scheduled(Prescription prescription, String residentId, String bedId, List<LocalTime> times, LocalDateTime coveredUntil) {
+            this.prescription = prescription;
+            this.residentId = residentId;
+            this.bedId = bedId;
+            this.times = times;
+            this.coveredUntil = coveredUntil;
+        }
+    }
+
+    // ward -> time of day -> prescription ids due then
+    private final Map<String, NavigableMap<LocalTime, Set<String>>> wards = new HashMap<>();
+    private final Map<String, Scheduled> scheduled = new HashMap<>();
+    private final Map<String, Set<String>> prescriptionsOfResident = new HashMap<>();
+
+    /**
+     * scheduling the prescription of a resident in its bed, replacing what was known about it before.
+     * Prescriptions without a time that can be parsed are not scheduled.
+     *
+     * @param prescription
+     * @param residentId
+     * @param bedId
+     * @param since doses due at or before it are not owed, null when every dose is owed
+     */
+    public synchronized void scheduling(Prescription prescription, String residentId, String bedId, LocalDateTime since) {
+        if (prescription == null || prescription.getId() == null) return;
+        unscheduling(prescription.getId());
+        List<LocalTime> times = prescription.dueTimesOfDay();
+        if (times.isEmpty()) return;
+
+        Scheduled entry = new Scheduled(prescription, residentId, bedId, times, since == null ? LocalDateTime.MIN : since);
+        scheduled.put(prescription.getId(), entry);
+        prescriptionsOfResident.computeIfAbsent(residentId, r -> new HashSet<>()).add(prescription.getId());
+        slotting(entry);
+        LocalDateTime lastAdministeredAt = prescription.lastAdministeredAt();
+        if (lastAdministeredAt != null) covering(entry, lastAdministeredAt);
+    }
+
+    /**
+     * administered records a dose of the prescription given at the time
+     *
+     * @param prescriptionId
+     * @param at
+     */
+    public synchronized void administered(String prescriptionId, LocalDateTime at) {
+        Scheduled entry = scheduled.get(prescriptionId);
+        if (entry != null) covering(entry, at);
+    }
+
+    /**
+     * moving the prescriptions of a resident to its new bed, and ward
+     *
+     * @param residentId
+     * @param bedId
+     */
+    public synchronized void moving(String residentId, String bedId) {
+        for (String prescriptionId : prescriptionsOfResident.getOrDefault(residentId, Set.of())) {
+            Scheduled entry = scheduled.get(prescriptionId);
+            unslotting(entry);
+            entry.bedId = bedId;
+            slotting(entry);
+        }
+    }
+
+    /**
+     * removing every prescription of a discharged resident
+     *
+     * @param residentId
+     */
+    public synchronized void removing(String residentId) {
+        Set<String> prescriptionIds = prescriptionsOfResident.remove(residentId);
+        if (prescriptionIds == null) return;
+        for (String prescriptionId : prescriptionIds) unslotting(scheduled.remove(prescriptionId));
+    }
+
+    /**
+     * bedOf the resident a scheduled prescription belongs to
+     *
+     * @param prescriptionId
+     * @return the bed id, or null when the prescription is not scheduled
+     */
+    public synchronized String bedOf(String prescriptionId) {
+        Scheduled entry = scheduled.get(prescriptionId);
+        return entry == null ? null : entry.bedId;
+    }
+
+    /**
+     * outstandingDue finds the dose an administration at the time would cover
+     *
+     * @param prescriptionId
+     * @param at
+     * @return the due time of that dose, or null when the prescription is not scheduled or no dose is outstanding
+     */
+    public synchronized LocalDateTime outstandingDue(String prescriptionId, LocalDateTime at) {
+        Scheduled entry = scheduled.get(prescriptionId);
+        if (entry == null) return null;
+        LocalDateTime dueAt = latestDue(entry, at);
+        return dueAt == null || !dueAt.isAfter(entry.coveredUntil) ? null : dueAt;
+    }
+
+    /**
+     * nextDue dose of the resident: the earliest outstanding one from the overdueWindow before now on
+     *
+     * @param residentId
+     * @param now
+     * @param overdueWindow
+     * @return the dose, or null when the resident has no scheduled prescription
+     */
+    public synchronized DueDose nextDue(String residentId, LocalDateTime now, Duration overdueWindow) {
+        LocalDateTime from = now.minus(overdueWindow);
+        DueDose next = null;
+        for (String prescriptionId : new TreeSet<>(prescriptionsOfResident.getOrDefault(residentId, Set.of()))) {
+            Scheduled entry = scheduled.get(prescriptionId);
+            LocalDateTime dueAt = firstDue(entry, from);
+            if (next != null && !dueAt.isBefore(next.dueAt())) continue;
+            Prescription prescription = entry.prescription;
+            next = new DueDose(prescriptionId, entry.residentId, entry.bedId, prescription.getMedicine(),
+                    prescription.getDose(), dueAt, dueAt.isBefore(now));
+        }
+        return next;
+    }
+
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * planning the round of a ward: the doses due in the next ahead and those overdue from the
+     * overdueWindow before now, ordered by room then due time
+     *
+     * @param wardId
+     * @param now
+     * @param overdueWindow
+     * @param ahead
+     * @param bedOrder position of a bed in room order, FacilityTopology.bedIndexOf
+     * @return
+     */
+    public synchronized List<DueDose> planning(String wardId, LocalDateTime now, Duration overdueWindow, Duration ahead, ToIntFunction<String> bedOrder) {
+        NavigableMap<LocalTime, Set<String>> ward = wards.get(wardId);
+        if (ward == null) return List.of();
+        LocalDateTime from = now.minus(overdueWindow);
+        LocalDateTime to = now.plus(ahead);
+
+        List<DueDose> due = new ArrayList<>();
+        for (LocalDate date = from.toLocalDate(); !date.isAfter(to.toLocalDate()); date = date.plusDays(1)) {
+            LocalTime first = date.equals(from.toLocalDate()) ? from.toLocalTime() : LocalTime.MIN;
+            LocalTime last = date.equals(to.toLocalDate()) ? to.toLocalTime() : LocalTime.MAX;
+            for (Map.Entry<LocalTime, Set<String>> slot : ward.subMap(first, true, last, true).entrySet()) {
+                LocalDateTime dueAt = date.atTime(slot.getKey());
+                for (String prescriptionId : slot.getValue()) {
+                    Scheduled entry = scheduled.get(prescriptionId);
+                    if (!dueAt.isAfter(entry.coveredUntil)) continue;
+                    Prescription prescription = entry.prescription;
+                    due.add(new DueDose(prescriptionId, entry.residentId, entry.bedId, prescription.getMedicine(),
+                            prescription.getDose(), dueAt, dueAt.isBefore(now)));
+                }
+            }
+        }
+        due.sort(Comparator.comparingInt((DueDose dose) -> bedOrder.applyAsInt(dose.bedId()))
+                .thenComparing(DueDose::dueAt)
+                .thenComparing(DueDose::prescriptionId));
+        return due;
+    }
+
+    /**
+     * covering the dose an administration at the time is given for
+     *
+     * @param entry
+     * @param at
+     */
+    private static void covering(Scheduled entry, LocalDateTime at) {
+        LocalDateTime covered = latestDue(entry, at);
+        if (covered != null && covered.isAfter(entry.coveredUntil)) entry.coveredUntil = covered;
+    }
+
+    /**
+     * latestDue time of the prescription at most EARLY_ADMINISTRATION after the time
+     *
+     * @param entry
+     * @param at
+     * @return
+     */
+    private static LocalDateTime latestDue(Scheduled entry, LocalDateTime at) {
+        LocalDateTime latest = at.plus(EARLY_ADMINISTRATION);
+        LocalDateTime due = null;
+        for (LocalDate date = latest.toLocalDate().minusDays(1); !date.isAfter(latest.toLocalDate()); date = date.plusDays(1)) {
+            for (LocalTime time : entry.times) {
+                LocalDateTime dueAt = date.atTime(time);
+                if (!dueAt.isAfter(latest)) due = dueAt;
+            }
+        }
+        return due;
+    }
+
+    /**
+     * firstDue time of the prescription at or after from that no administration covered
+     *
+     * @param entry
+     * @param from
+     * @return
+     */
+    private static LocalDateTime firstDue(Scheduled entry, LocalDateTime from) {
+        for (LocalDate date = from.toLocalDate(); ; date = date.plusDays(1)) {
+            for (LocalTime time : entry.times) {
+                LocalDateTime dueAt = date.atTime(time);
+                if (!dueAt.isBefore(from) && dueAt.isAfter(entry.coveredUntil)) return dueAt;
+            }
+        }
+    }
+
+    private void slotting(Scheduled entry) {
+        NavigableMap<LocalTime, Set<String>> ward = wards.computeIfAbsent(FacilityTopology.wardOf(entry.bedId), w -> new TreeMap<>());
+        for (LocalTime time : entry.times) ward.computeIfAbsent(time, t -> new TreeSet<>()).add(entry.prescription.getId());
+    }
+
+    private void unslotting(Scheduled entry) {
+        if (entry == null) return;
+        String wardId = FacilityTopology.wardOf(entry.bedId);
+        NavigableMap<LocalTime, Set<String>> ward = wards.get(wardId);
+        if (ward == null) return;
+        for (LocalTime time : entry.times) {
+            Set<String> prescriptionIds = ward.get(time);
+            if (prescriptionIds == null) continue;
+            prescriptionIds.remove(entry.prescription.getId());
+            if (prescriptionIds.isEmpty()) ward.remove(time);
+        }
+        if (ward.isEmpty()) wards.remove(wardId);
+    }
+
+    /**
+     * unscheduling a single prescription
+     *
+     * @param prescriptionId
+     */
+    private void unscheduling(String prescriptionId) {
+        Scheduled entry = scheduled.remove(prescriptionId);
+        if (entry == null) return;
+        unslotting(entry);
+        Set<String> prescriptionIds = prescriptionsOfResident.get(entry.residentId);
+        if (prescriptionIds == null) return;
+        prescriptionIds.remove(prescriptionId);
+        if (prescriptionIds.isEmpty()) prescriptionsOfResident.remove(entry.residentId);
+    }
+}
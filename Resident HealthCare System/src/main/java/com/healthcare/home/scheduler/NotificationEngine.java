@@ -0,0 +1,110 @@
+package com.healthcare.home.scheduler;
+
+import java.time.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * NotificationEngine holds pending reminders on a TimingWheel and delivers due ones to subscribers in batches
+ */
+public class NotificationEngine {
+    private static final long DEFAULT_TICK_MILLIS = 1000;
+
+    private final TimingWheel<Reminder> timingWheel;
+    private final List<Consumer<List<Reminder>>> subscribers = new CopyOnWriteArrayList<>();
+    private final long tickMillis;
+    private final ZoneId zone;
+    private ScheduledExecutorService ticker;
+
+    /**
+     * NotificationEngine Constructor
+     */
+    public NotificationEngine() {
+        this(DEFAULT_TICK_MILLIS, ZoneId.systemDefault());
+    }
+
+    /**
+     * NotificationEngine Constructor
+     *
+     * @param tickMillis
+     * @param zone
+     */
+    public NotificationEngine(long tickMillis, ZoneId zone) {
+        this.tickMillis = tickMillis;
+        this.zone = zone;
+        this.timingWheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * subscribing to batches of due reminders
+     *
+     * @param subscriber
+     */
+    public void subscribing(Consumer<List<Reminder>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * scheduling a reminder to fire at the given time
+     *
+     * @param reminder
+     * @param fireAt
+     * @return handle to cancel the reminder
+     */
+    public TimingWheel.Timer<Reminder> scheduling(Reminder reminder, LocalDateTime fireAt) {
+        return timingWheel.scheduling(reminder, fireAt.atZone(zone).toInstant().toEpochMilli());
+    }
+
+    /**
+     * pendingCount
+     *
+     * @return
+     */
+    public int pendingCount() {
+        return timingWheel.size();
+    }
+
+    /**
+     * deliveringDue advances the wheel to the given time and hands the due batch to every subscriber
+     *
+     * @param now
+     * @return number of reminders delivered
+     */
+    public int deliveringDue(LocalDateTime now) {
+        List<Reminder> due = timingWheel.advanceTo(now.atZone(zone).toInstant().toEpochMilli());
+        if (due.isEmpty()) return 0;
+        List<Reminder> batch = List.copyOf(due);
+        for (Consumer<List<Reminder>> subscriber : subscribers) {
+            try {
+                subscriber.accept(batch);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * start turning the wheel on a single daemon thread
+     */
+    public synchronized void start() {
+        if (ticker != null) return;
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> deliveringDue(LocalDateTime.now(zone)), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+}
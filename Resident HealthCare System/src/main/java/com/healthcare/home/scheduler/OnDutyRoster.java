@@ -0,0 +1,179 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.entities.RecurringShift;
+import com.healthcare.home.entities.Role;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.staff.Staff;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * OnDutyRoster is a materialised "who is on duty now" view over the Scheduler.
+ * It is recomputed at shift boundaries (by a timer, or lazily when read after a boundary)
+ * and whenever the roster changes, so every read is a plain hash lookup.
+ */
+public class OnDutyRoster {
+    private final Scheduler scheduler;
+    private volatile Snapshot snapshot;
+    private ScheduledFuture<?> boundaryTask;
+
+    /**
+     * Snapshot of the staff on duty, valid from computedAt until (excluding) validUntil
+     *
+     * @param onDutyIds
+     * @param byRole
+     * @param byWard
+     * @param computedAt
+     * @param validUntil
+     * @param rosterVersion
+     */
+    private record Snapshot(Set<String> onDutyIds, Map<Role, Set<Staff>> byRole, Map<String, Set<Staff>> byWard,
+                            LocalDateTime computedAt, LocalDateTime validUntil, long rosterVersion,
+                            long computedAtMillis, long validUntilMillis) {
+        // compares epoch millis so the hot path never builds a LocalDateTime
+        boolean isCurrent(long nowMillis, long version) {
+            return version == rosterVersion && nowMillis >= computedAtMillis && nowMillis < validUntilMillis;
+        }
+    }
+
+    /**
+     * OnDutyRoster Constructor
+     *
+     * @param scheduler
+     */
+    OnDutyRoster(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * isOnDuty
+     *
+     * @param staffId
+     * @return
+     */
+    public boolean isOnDuty(String staffId) {
+        return current().onDutyIds().contains(staffId);
+    }
+
+    /**
+     * onDutyByRole
+     *
+     * @param role
+     * @return
+     */
+    public Set<Staff> onDutyByRole(Role role) {
+        return current().byRole().getOrDefault(role, Set.of());
+    }
+
+    /**
+     * onDutyInWard
+     *
+     * @param ward
+     * @return
+     */
+    public Set<Staff> onDutyInWard(String ward) {
+        return current().byWard().getOrDefault(ward, Set.of());
+    }
+
+    /**
+     * nextBoundary is the time the current view stops being valid
+     *
+     * @return
+     */
+    public LocalDateTime nextBoundary() {
+        return current().validUntil();
+    }
+
+    /**
+     * startingBoundaryTimer refreshes the view at every shift boundary on the given executor
+     *
+     * @param executor
+     */
+    public synchronized void startingBoundaryTimer(ScheduledExecutorService executor) {
+        if (boundaryTask != null) boundaryTask.cancel(false);
+        LocalDateTime now = LocalDateTime.now();
+        Snapshot fresh = refresh(now);
+        long delay = Math.max(1, Duration.between(now, fresh.validUntil()).toMillis());
+        boundaryTask = executor.schedule(() -> startingBoundaryTimer(executor), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * current returns the snapshot, recomputing it when a boundary passed or the roster changed
+     *
+     * @return
+     */
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && current.isCurrent(System.currentTimeMillis(), scheduler.getRosterVersion())) return current;
+        return refresh(LocalDateTime.now());
+    }
+
+    /**
+     * refresh scans the roster once and computes the next boundary after now
+     *
+     * @param now
+     * @return
+     */
+    private synchronized Snapshot refresh(LocalDateTime now) {
+        long version = scheduler.getRosterVersion();
+        Snapshot current = snapshot;
+        if (current != null && current.isCurrent(toMillis(now), version)) return current;
+
+        Set<String> onDutyIds = new HashSet<>();
+        Map<Role, Set<Staff>> byRole = new EnumMap<>(Role.class);
+        Map<String, Set<Staff>> byWard = new HashMap<>();
+        LocalDateTime validUntil = now.plusDays(1);
+
+        for (Staff staff : scheduler.getRosteredStaff()) {
+            boolean onDuty = false;
+            for (Shift shift : scheduler.shiftsOf(staff.getId())) {
+                if (!now.isBefore(shift.start()) && !now.isAfter(shift.end())) onDuty = true;
+                validUntil = earliestBoundary(validUntil, now, shift);
+            }
+            for (RecurringShift rule : scheduler.recurringShiftsOf(staff.getId())) {
+                if (rule.isActiveAt(now)) onDuty = true;
+                for (LocalDate date = now.toLocalDate().minusDays(1); date.isBefore(now.toLocalDate().plusDays(2)); date = date.plusDays(1)) {
+                    if (rule.occursOn(date)) validUntil = earliestBoundary(validUntil, now, rule.occurrenceOn(date));
+                }
+            }
+            if (!onDuty) continue;
+            onDutyIds.add(staff.getId());
+            byRole.computeIfAbsent(staff.getRole(), r -> new HashSet<>()).add(staff);
+            if (staff.getWard() != null) byWard.computeIfAbsent(staff.getWard(), w -> new HashSet<>()).add(staff);
+        }
+
+        byRole.replaceAll((role, staff) -> Collections.unmodifiableSet(staff));
+        byWard.replaceAll((ward, staff) -> Collections.unmodifiableSet(staff));
+        Snapshot fresh = new Snapshot(Collections.unmodifiableSet(onDutyIds), byRole, byWard, now, validUntil, version,
+                toMillis(now), toMillis(validUntil));
+        snapshot = fresh;
+        return fresh;
+    }
+
+    /**
+     * toMillis
+     *
+     * @param time
+     * @return
+     */
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * earliestBoundary, shift ends are inclusive so the view changes just after the end
+     *
+     * @param candidate
+     * @param now
+     * @param shift
+     * @return
+     */
+    private static LocalDateTime earliestBoundary(LocalDateTime candidate, LocalDateTime now, Shift shift) {
+        if (shift.start().isAfter(now) && shift.start().isBefore(candidate)) candidate = shift.start();
+        LocalDateTime afterEnd = shift.end().plusNanos(1);
+        if (afterEnd.isAfter(now) && afterEnd.isBefore(candidate)) candidate = afterEnd;
+        return candidate;
+    }
+}
@@ -0,0 +1,24 @@
+package com.healthcare.home.scheduler;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reminder delivered by the NotificationEngine
+ *
+ * @param type
+ * @param subjectId staff, prescription or day the reminder is about
+ * @param dueAt     time of the event itself, the reminder may fire earlier
+ * @param message
+ */
+public record Reminder(Type type, String subjectId, LocalDateTime dueAt, String message) {
+
+    /**
+     * Type
+     */
+    public enum Type {
+        SHIFT_START,
+        SHIFT_END,
+        DOSE_DUE,
+        COMPLIANCE_DEADLINE
+    }
+}
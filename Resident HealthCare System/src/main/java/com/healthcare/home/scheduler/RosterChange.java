@@ -0,0 +1,39 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.staff.Staff;
+
+/**
+ * RosterChange describes a proposed roster edit used by the what-if simulation
+ */
+public sealed interface RosterChange permits RosterChange.AddShift, RosterChange.RemoveShift, RosterChange.SwapShift {
+
+    /**
+     * AddShift
+     *
+     * @param staff
+     * @param shift
+     */
+    record AddShift(Staff staff, Shift shift) implements RosterChange {
+    }
+
+    /**
+     * RemoveShift
+     *
+     * @param staff
+     * @param shift
+     */
+    record RemoveShift(Staff staff, Shift shift) implements RosterChange {
+    }
+
+    /**
+     * SwapShift hands the first staff shift to the second staff and the other way round
+     *
+     * @param first
+     * @param firstShift
+     * @param second
+     * @param secondShift
+     */
+    record SwapShift(Staff first, Shift firstShift, Staff second, Shift secondShift) implements RosterChange {
+    }
+}
@@ -0,0 +1,182 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.entities.RecurringShift;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.staff.Doctor;
+import com.healthcare.home.staff.Nurse;
+import com.healthcare.home.staff.Staff;
+
+import java.time.*;
+import java.util.*;
+
+/**
+ * RosterCompliance evaluates the compliance rules against any RosterView without throwing,
+ * so the same rules serve checkingCompliance and the what-if simulation
+ */
+public final class RosterCompliance {
+    private static final LocalTime MORNING_START = LocalTime.of(8, 0);
+    private static final LocalTime MORNING_END = LocalTime.of(16, 0);
+    private static final LocalTime EVENING_START = LocalTime.of(14, 0);
+    private static final LocalTime EVENING_END = LocalTime.of(22, 0);
+    private static final long MAX_NURSE_HOURS_PER_DAY = 8;
+
+    private RosterCompliance() {
+    }
+
+    /**
+     * DayCoverage counts the shifts covering the required slots of a day
+     *
+     * @param morningNurses
+     * @param eveningNurses
+     * @param doctorOneHourShifts
+     */
+    public record DayCoverage(int morningNurses, int eveningNurses, int doctorOneHourShifts) {
+    }
+
+    /**
+     * ComplianceReport keeps the violations in the order checkingCompliance reports them
+     *
+     * @param violations
+     * @param coverage
+     */
+    public record ComplianceReport(List<String> violations, Map<DayOfWeek, DayCoverage> coverage) {
+        public boolean isCompliant() {
+            return violations.isEmpty();
+        }
+    }
+
+    /**
+     * evaluate
+     *
+     * @param roster
+     * @param staffMap
+     * @return
+     */
+    public static ComplianceReport evaluate(RosterView roster, Map<String, Staff> staffMap) {
+        LocalDate today = LocalDate.now();
+        int[] morning = new int[7];
+        int[] evening = new int[7];
+        int[] doctor = new int[7];
+        List<String> hourViolations = new ArrayList<>();
+
+        // single pass over the roster, bucketing every shift by the day of week it starts on
+        for (String staffId : roster.staffIds()) {
+            Staff staff = staffMap.get(staffId);
+            if (staff == null) continue;
+            boolean isNurse = staff instanceof Nurse;
+            boolean isDoctor = staff instanceof Doctor;
+            Map<LocalDate, Long> hoursPerDay = isNurse ? new HashMap<>() : null;
+
+            for (Shift shift : roster.shiftsOf(staffId)) {
+                LocalDateTime startTime = shift.start();
+                LocalDateTime endTime = shift.end();
+                LocalDate dayDate = startTime.toLocalDate();
+                int day = startTime.getDayOfWeek().ordinal();
+
+                if (isNurse) {
+                    if (covers(startTime, endTime, dayDate, MORNING_START, MORNING_END)) morning[day]++;
+                    if (covers(startTime, endTime, dayDate, EVENING_START, EVENING_END)) evening[day]++;
+                    // assuming shifts do not span more than 24 hours and belong to a single calendar day
+                    hoursPerDay.merge(dayDate, Duration.between(startTime, endTime).toHours(), Long::sum);
+                }
+                if (isDoctor && Duration.between(startTime, endTime).toHours() == 1) doctor[day]++;
+            }
+
+            // recurring rules are evaluated directly per day of week, never expanded
+            List<RecurringShift> rules = roster.recurringShiftsOf(staffId);
+            for (RecurringShift rule : rules) {
+                if (!rule.isInEffectOnOrAfter(today)) continue;
+                boolean morningRule = !rule.startTime().isAfter(MORNING_START) && !rule.endTime().isBefore(MORNING_END);
+                boolean eveningRule = !rule.startTime().isAfter(EVENING_START) && !rule.endTime().isBefore(EVENING_END);
+                for (DayOfWeek dayOfWeek : rule.days()) {
+                    int day = dayOfWeek.ordinal();
+                    if (isNurse) {
+                        if (morningRule) morning[day]++;
+                        if (eveningRule) evening[day]++;
+                    }
+                    if (isDoctor && rule.hours() == 1) doctor[day]++;
+                }
+            }
+
+            if (isNurse) {
+                for (RecurringShift rule : rules) {
+                    for (Map.Entry<LocalDate, Long> entry : hoursPerDay.entrySet()) {
+                        if (rule.occursOn(entry.getKey())) entry.setValue(entry.getValue() + rule.hours());
+                    }
+                }
+                for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+                    long ruleHours = recurringHoursOn(rules, dayOfWeek, today);
+                    if (ruleHours > MAX_NURSE_HOURS_PER_DAY) {
+                        hourViolations.add("Compliance failure: nurse " + staffId +
+                                " assigned " + ruleHours + " recurring hours on " + dayOfWeek + " (max 8)");
+                    }
+                }
+                for (Map.Entry<LocalDate, Long> entry : hoursPerDay.entrySet()) {
+                    if (entry.getValue() > MAX_NURSE_HOURS_PER_DAY) {
+                        hourViolations.add("Compliance failure: nurse " + staffId +
+                                " assigned " + entry.getValue() + " hours on " + entry.getKey() + " (max 8)");
+                    }
+                }
+            }
+        }
+
+        List<String> violations = new ArrayList<>();
+        Map<DayOfWeek, DayCoverage> coverage = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            int day = dayOfWeek.ordinal();
+            coverage.put(dayOfWeek, new DayCoverage(morning[day], evening[day], doctor[day]));
+            if (morning[day] == 0) {
+                violations.add("Compliance failure: no nurse assigned for morning (08:00-16:00) on " + dayOfWeek);
+            }
+            if (evening[day] == 0) {
+                violations.add("Compliance failure: no nurse assigned for evening (14:00-22:00) on " + dayOfWeek);
+            }
+            if (doctor[day] == 0) {
+                violations.add("Compliance failure: no doctor 1-hour shift on " + dayOfWeek);
+            }
+        }
+        violations.addAll(hourViolations);
+        return new ComplianceReport(List.copyOf(violations), Collections.unmodifiableMap(coverage));
+    }
+
+    /**
+     * recurringHoursOn the day of week: the most hours the rules add up to while their validity periods
+     * overlap, from today on, so a rule and the one replacing it after it ends are not counted together
+     *
+     * @param rules
+     * @param dayOfWeek
+     * @param today
+     * @return
+     */
+    private static long recurringHoursOn(List<RecurringShift> rules, DayOfWeek dayOfWeek, LocalDate today) {
+        long most = 0;
+        for (RecurringShift rule : rules) {
+            if (!rule.days().contains(dayOfWeek) || !rule.isInEffectOnOrAfter(today)) continue;
+            // the busiest date is the first one of some rule
+            LocalDate date = rule.from().isBefore(today) ? today : rule.from();
+            long hours = 0;
+            for (RecurringShift other : rules) {
+                boolean valid = !date.isBefore(other.from()) && (other.until() == null || !date.isAfter(other.until()));
+                if (valid && other.days().contains(dayOfWeek)) hours += other.hours();
+            }
+            most = Math.max(most, hours);
+        }
+        return most;
+    }
+
+    /**
+     * covers checks the shift fully contains the slot on the given day
+     *
+     * @param startTime
+     * @param endTime
+     * @param dayDate
+     * @param slotStart
+     * @param slotEnd
+     * @return
+     */
+    private static boolean covers(LocalDateTime startTime, LocalDateTime endTime, LocalDate dayDate,
+                                  LocalTime slotStart, LocalTime slotEnd) {
+        return !startTime.isAfter(LocalDateTime.of(dayDate, slotStart))
+                && !endTime.isBefore(LocalDateTime.of(dayDate, slotEnd));
+    }
+}
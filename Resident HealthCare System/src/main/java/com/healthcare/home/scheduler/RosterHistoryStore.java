@@ -0,0 +1,114 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.entities.Shift;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * RosterHistoryStore is an append only on-disk store for shifts moved out of the in-memory roster.
+ * Each entry is written as staff id, start epoch second and duration in seconds.
+ */
+public class RosterHistoryStore implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int MAGIC = 0x52485331; // "RHS1"
+
+    private final String path;
+
+    /**
+     * ArchivedShift
+     *
+     * @param staffId
+     * @param shift
+     */
+    public record ArchivedShift(String staffId, Shift shift) {
+    }
+
+    /**
+     * RosterHistoryStore Constructor
+     *
+     * @param path
+     */
+    public RosterHistoryStore(Path path) {
+        this.path = path.toString();
+    }
+
+    /**
+     * appending a batch of shifts with a single open of the file
+     *
+     * @param shifts
+     * @throws IOException
+     */
+    public synchronized void appending(List<ArchivedShift> shifts) throws IOException {
+        if (shifts.isEmpty()) return;
+        Path file = Path.of(path);
+        boolean isNew = !Files.exists(file) || Files.size(file) == 0;
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            if (isNew) out.writeInt(MAGIC);
+            for (ArchivedShift archived : shifts) {
+                LocalDateTime start = archived.shift().start();
+                out.writeUTF(archived.staffId());
+                out.writeLong(start.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt((int) Duration.between(start, archived.shift().end()).getSeconds());
+            }
+        }
+    }
+
+    /**
+     * readingShifts streams the file and keeps entries overlapping the window, staffId null matches everyone
+     *
+     * @param staffId
+     * @param from
+     * @param to
+     * @return
+     * @throws IOException
+     */
+    public synchronized List<ArchivedShift> readingShifts(String staffId, LocalDateTime from, LocalDateTime to) throws IOException {
+        List<ArchivedShift> result = new ArrayList<>();
+        Path file = Path.of(path);
+        if (!Files.exists(file)) return result;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a roster history file: " + path);
+            while (true) {
+                String id;
+                try {
+                    id = in.readUTF();
+                } catch (EOFException eof) {
+                    break;
+                }
+                LocalDateTime start = LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC);
+                LocalDateTime end = start.plusSeconds(in.readInt());
+                if (staffId != null && !staffId.equals(id)) continue;
+                if (end.isBefore(from) || start.isAfter(to)) continue;
+                result.add(new ArchivedShift(id, new Shift(start, end)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * totalHoursBetween sums archived hours of a staff, used for payroll
+     *
+     * @param staffId
+     * @param from
+     * @param to
+     * @return
+     * @throws IOException
+     */
+    public double totalHoursBetween(String staffId, LocalDateTime from, LocalDateTime to) throws IOException {
+        long seconds = 0;
+        for (ArchivedShift archived : readingShifts(staffId, from, to)) {
+            seconds += Duration.between(archived.shift().start(), archived.shift().end()).getSeconds();
+        }
+        return seconds / 3600.0;
+    }
+
+    public Path getPath() {
+        return Path.of(path);
+    }
+}
@@ -0,0 +1,128 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.entities.RecurringShift;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.staff.Nurse;
+import com.healthcare.home.staff.Staff;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * RosterOverlay layers proposed changes over a base roster without touching it.
+ * Only the shift lists of staff touched by a change are copied, everything else is read through.
+ */
+public class RosterOverlay implements RosterView {
+    private final RosterView base;
+    private final Map<String, List<Shift>> overrides = new HashMap<>();
+    private final List<String> rejections = new ArrayList<>();
+
+    /**
+     * RosterOverlay Constructor
+     *
+     * @param base
+     */
+    public RosterOverlay(RosterView base) {
+        this.base = base;
+    }
+
+    /**
+     * applying a single change to the overlay, invalid changes are recorded as rejections
+     *
+     * @param change
+     */
+    public void applying(RosterChange change) {
+        if (change instanceof RosterChange.AddShift add) {
+            adding(add.staff(), add.shift());
+        } else if (change instanceof RosterChange.RemoveShift remove) {
+            removing(remove.staff(), remove.shift());
+        } else if (change instanceof RosterChange.SwapShift swap) {
+            // both shifts are checked before either is removed, so a rejected swap leaves the roster as it was
+            boolean firstRostered = isRostered(swap.first(), swap.firstShift());
+            boolean secondRostered = isRostered(swap.second(), swap.secondShift());
+            if (firstRostered && secondRostered) {
+                removing(swap.first(), swap.firstShift());
+                removing(swap.second(), swap.secondShift());
+                adding(swap.second(), swap.firstShift());
+                adding(swap.first(), swap.secondShift());
+            }
+        }
+    }
+
+    /**
+     * adding mirrors the per day limit enforced by Scheduler.assigningShiftToStaff
+     *
+     * @param staff
+     * @param shift
+     */
+    private void adding(Staff staff, Shift shift) {
+        List<Shift> shifts = writable(staff.getId());
+        LocalDate shiftDate = shift.start().toLocalDate();
+        long shiftCountToday = shifts.stream()
+                .filter(s -> s.start().toLocalDate().equals(shiftDate))
+                .count()
+                + recurringShiftsOf(staff.getId()).stream().filter(rule -> rule.occursOn(shiftDate)).count();
+        if (shiftCountToday >= 2 && staff instanceof Nurse) {
+            rejections.add("Too many shifts for nurse " + staff.getId());
+            return;
+        }
+        shifts.add(shift);
+    }
+
+    /**
+     * removing
+     *
+     * @param staff
+     * @param shift
+     * @return
+     */
+    private boolean removing(Staff staff, Shift shift) {
+        return isRostered(staff, shift) && writable(staff.getId()).remove(shift);
+    }
+
+    /**
+     * isRostered records a rejection when the staff does not have the shift
+     *
+     * @param staff
+     * @param shift
+     * @return
+     */
+    private boolean isRostered(Staff staff, Shift shift) {
+        if (shiftsOf(staff.getId()).contains(shift)) return true;
+        rejections.add("Shift " + shift + " not rostered for " + staff.getId());
+        return false;
+    }
+
+    /**
+     * writable copies the base list of a staff the first time it is touched
+     *
+     * @param staffId
+     * @return
+     */
+    private List<Shift> writable(String staffId) {
+        return overrides.computeIfAbsent(staffId, id -> new ArrayList<>(base.shiftsOf(id)));
+    }
+
+    @Override
+    public Set<String> staffIds() {
+        if (overrides.isEmpty()) return base.staffIds();
+        Set<String> ids = new HashSet<>(base.staffIds());
+        ids.addAll(overrides.keySet());
+        return ids;
+    }
+
+    @Override
+    public List<Shift> shiftsOf(String staffId) {
+        List<Shift> shifts = overrides.get(staffId);
+        return shifts != null ? Collections.unmodifiableList(shifts) : base.shiftsOf(staffId);
+    }
+
+    @Override
+    public List<RecurringShift> recurringShiftsOf(String staffId) {
+        return base.recurringShiftsOf(staffId);
+    }
+
+    public List<String> getRejections() {
+        return List.copyOf(rejections);
+    }
+}
@@ -0,0 +1,31 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.exceptions.ValidationFailedException;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * RosterRetentionPolicy decides how long finished shifts stay in the in-memory roster
+ *
+ * @param horizon
+ */
+public record RosterRetentionPolicy(Duration horizon) implements Serializable {
+    public static final RosterRetentionPolicy DEFAULT = new RosterRetentionPolicy(Duration.ofDays(14));
+
+    public RosterRetentionPolicy {
+        if (horizon == null || horizon.isNegative())
+            throw new ValidationFailedException("Retention horizon must be zero or positive");
+    }
+
+    /**
+     * cutoff before which shifts are archived
+     *
+     * @param now
+     * @return
+     */
+    public LocalDateTime cutoff(LocalDateTime now) {
+        return now.minus(horizon);
+    }
+}
@@ -0,0 +1,62 @@
+package com.healthcare.home.scheduler;
+
+import java.time.DayOfWeek;
+import java.util.*;
+
+/**
+ * RosterSimulationResult reports how a set of proposed roster changes would affect compliance and coverage
+ *
+ * @param changes
+ * @param rejectedChanges
+ * @param introducedViolations
+ * @param resolvedViolations
+ * @param after
+ * @param coverageDelta
+ */
+public record RosterSimulationResult(List<RosterChange> changes,
+                                     List<String> rejectedChanges,
+                                     List<String> introducedViolations,
+                                     List<String> resolvedViolations,
+                                     RosterCompliance.ComplianceReport after,
+                                     Map<DayOfWeek, RosterCompliance.DayCoverage> coverageDelta) {
+
+    /**
+     * comparing a baseline report with the report of the overlay
+     *
+     * @param changes
+     * @param overlay
+     * @param before
+     * @param after
+     * @return
+     */
+    public static RosterSimulationResult comparing(List<RosterChange> changes, RosterOverlay overlay,
+                                                   RosterCompliance.ComplianceReport before,
+                                                   RosterCompliance.ComplianceReport after) {
+        Set<String> beforeViolations = new HashSet<>(before.violations());
+        Set<String> afterViolations = new HashSet<>(after.violations());
+
+        List<String> introduced = after.violations().stream().filter(v -> !beforeViolations.contains(v)).toList();
+        List<String> resolved = before.violations().stream().filter(v -> !afterViolations.contains(v)).toList();
+
+        Map<DayOfWeek, RosterCompliance.DayCoverage> delta = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            RosterCompliance.DayCoverage b = before.coverage().get(day);
+            RosterCompliance.DayCoverage a = after.coverage().get(day);
+            delta.put(day, new RosterCompliance.DayCoverage(
+                    a.morningNurses() - b.morningNurses(),
+                    a.eveningNurses() - b.eveningNurses(),
+                    a.doctorOneHourShifts() - b.doctorOneHourShifts()));
+        }
+        return new RosterSimulationResult(List.copyOf(changes), overlay.getRejections(), introduced, resolved,
+                after, Collections.unmodifiableMap(delta));
+    }
+
+    /**
+     * isCompliant
+     *
+     * @return
+     */
+    public boolean isCompliant() {
+        return rejectedChanges.isEmpty() && after.isCompliant();
+    }
+}
@@ -0,0 +1,38 @@
+package com.healthcare.home.scheduler;
+
+import com.healthcare.home.entities.RecurringShift;
+import com.healthcare.home.entities.Shift;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RosterView is a read only look at the roster, implemented by the live Scheduler and by RosterOverlay
+ */
+public interface RosterView {
+
+    /**
+     * staffIds having at least one roster entry
+     *
+     * @return
+     */
+    Set<String> staffIds();
+
+    /**
+     * shiftsOf
+     *
+     * @param staffId
+     * @return
+     */
+    List<Shift> shiftsOf(String staffId);
+
+    /**
+     * recurringShiftsOf
+     *
+     * @param staffId
+     * @return
+     */
+    default List<RecurringShift> recurringShiftsOf(String staffId) {
+        return List.of();
+    }
+}
@@ -1,20 +1,34 @@
 package com.healthcare.home.scheduler;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
 
+import com.healthcare.home.auth.LoginRateLimiter;
 import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.entities.RecurringShift;
 import com.healthcare.home.entities.Shift;
 import com.healthcare.home.exceptions.RosterUnfollowedException;
 import com.healthcare.home.staff.Nurse;
 import com.healthcare.home.staff.Staff;
 
-public class Scheduler implements Serializable {
+public class Scheduler implements Serializable, RosterView {
+    private static final long serialVersionUID = -4171047077339908156L;
     private final EnumMap<DayOfWeek, List<ShiftAssignment>> map = new EnumMap<>(DayOfWeek.class);
     private final Map<String, List<Shift>> dailyRoster = new HashMap<>();
-    private static ScheduledExecutorService scheduler;
+    // not final so readObject can fill them in for snapshots written before they existed
+    private Map<String, List<RecurringShift>> recurringRoster = new HashMap<>();
+    private Map<String, Staff> rosteredStaff = new HashMap<>();
+    private transient volatile long rosterVersion;
+    private transient volatile OnDutyRoster onDutyRoster;
+    private transient LocalDate cachedWindowFrom;
+    private transient LocalDate cachedWindowTo;
+    private transient Map<String, List<Shift>> windowCache;
+    private transient ScheduledExecutorService executor;
 
     public record ShiftAssignment(Shift shift, Staff staff) implements Serializable {
     }
@@ -25,12 +39,14 @@ public class Scheduler implements Serializable {
      * @param staff
      * @param shift
      */
-    public void assigningShiftToStaff(Staff staff, Shift shift) {
+    public synchronized void assigningShiftToStaff(Staff staff, Shift shift) {
         dailyRoster.computeIfAbsent(staff.getId(), k -> new ArrayList<>());
 
+        LocalDate shiftDate = shift.start().toLocalDate();
         long shiftCountToday = dailyRoster.get(staff.getId()).stream()
-                .filter(s -> s.start().toLocalDate().equals(shift.start().toLocalDate()))
-                .count();
+                .filter(s -> s.start().toLocalDate().equals(shiftDate))
+                .count()
+                + recurringShiftsOf(staff.getId()).stream().filter(rule -> rule.occursOn(shiftDate)).count();
 
         if (shiftCountToday >= 2 && staff instanceof Nurse) {
             throw new RosterUnfollowedException("Too many shifts for nurse " + staff.getId());
@@ -41,6 +57,133 @@ public class Scheduler implements Serializable {
         // add to the EnumMap for day-based compliance check
         DayOfWeek day = shift.start().getDayOfWeek();
         map.computeIfAbsent(day, k -> new ArrayList<>()).add(new ShiftAssignment(shift, staff));
+        rosteredStaff.put(staff.getId(), staff);
+        rosterChanged();
+    }
+
+    /**
+     * assigningRecurringShiftToStaff stores the rule itself, occurrences are only expanded on demand
+     *
+     * @param staff
+     * @param rule
+     */
+    public synchronized void assigningRecurringShiftToStaff(Staff staff, RecurringShift rule) {
+        List<RecurringShift> rules = recurringRoster.computeIfAbsent(staff.getId(), k -> new ArrayList<>());
+
+        if (staff instanceof Nurse) {
+            for (DayOfWeek day : rule.days()) {
+                long overlapping = rules.stream()
+                        .filter(existing -> existing.days().contains(day) && overlaps(existing, rule))
+                        .count();
+                if (overlapping >= 2) {
+                    throw new RosterUnfollowedException("Too many shifts for nurse " + staff.getId());
+                }
+            }
+        }
+
+        rules.add(rule);
+        rosteredStaff.put(staff.getId(), staff);
+        rosterChanged();
+    }
+
+    /**
+     * rosterChanged drops derived caches, the on duty view notices the new version on its next read
+     */
+    private void rosterChanged() {
+        windowCache = null;
+        rosterVersion++;
+    }
+
+    /**
+     * getOnDutyRoster
+     *
+     * @return
+     */
+    public OnDutyRoster getOnDutyRoster() {
+        OnDutyRoster view = onDutyRoster;
+        if (view == null) {
+            synchronized (this) {
+                if (onDutyRoster == null) onDutyRoster = new OnDutyRoster(this);
+                view = onDutyRoster;
+            }
+        }
+        return view;
+    }
+
+    public long getRosterVersion() {
+        return rosterVersion;
+    }
+
+    /**
+     * getRosteredStaff
+     *
+     * @return
+     */
+    public synchronized Collection<Staff> getRosteredStaff() {
+        return List.copyOf(rosteredStaff.values());
+    }
+
+    /**
+     * overlaps checks the validity periods of two rules intersect
+     *
+     * @param first
+     * @param second
+     * @return
+     */
+    private static boolean overlaps(RecurringShift first, RecurringShift second) {
+        return (first.until() == null || !first.until().isBefore(second.from()))
+                && (second.until() == null || !second.until().isBefore(first.from()));
+    }
+
+    /**
+     * archivingShiftsBefore moves every shift that ended before the cutoff into the history store.
+     * Rule occurrences before the cutoff are archived too and the rule is moved forward to the cutoff date.
+     *
+     * @param cutoff
+     * @param historyStore
+     * @return number of archived shifts
+     * @throws IOException
+     */
+    public synchronized int archivingShiftsBefore(LocalDateTime cutoff, RosterHistoryStore historyStore) throws IOException {
+        List<RosterHistoryStore.ArchivedShift> archived = new ArrayList<>();
+        for (Map.Entry<String, List<Shift>> entry : dailyRoster.entrySet()) {
+            for (Shift shift : entry.getValue()) {
+                if (shift.end().isBefore(cutoff)) archived.add(new RosterHistoryStore.ArchivedShift(entry.getKey(), shift));
+            }
+        }
+
+        LocalDate cutoffDate = cutoff.toLocalDate();
+        Map<String, List<RecurringShift>> trimmedRules = new HashMap<>();
+        for (Map.Entry<String, List<RecurringShift>> entry : recurringRoster.entrySet()) {
+            List<RecurringShift> kept = new ArrayList<>();
+            for (RecurringShift rule : entry.getValue()) {
+                if (!rule.from().isBefore(cutoffDate)) {
+                    kept.add(rule);
+                    continue;
+                }
+                LocalDate lastArchived = rule.until() != null && rule.until().isBefore(cutoffDate) ? rule.until() : cutoffDate.minusDays(1);
+                for (Shift shift : rule.occurrencesBetween(rule.from(), lastArchived)) {
+                    archived.add(new RosterHistoryStore.ArchivedShift(entry.getKey(), shift));
+                }
+                if (rule.until() == null || !rule.until().isBefore(cutoffDate)) {
+                    kept.add(new RecurringShift(rule.days(), rule.startTime(), rule.endTime(), cutoffDate, rule.until()));
+                }
+            }
+            trimmedRules.put(entry.getKey(), kept);
+        }
+
+        // write first, the hot roster is only trimmed once the history is safely on disk
+        historyStore.appending(archived);
+
+        dailyRoster.values().forEach(shifts -> shifts.removeIf(shift -> shift.end().isBefore(cutoff)));
+        dailyRoster.values().removeIf(List::isEmpty);
+        map.values().forEach(assignments -> assignments.removeIf(assignment -> assignment.shift().end().isBefore(cutoff)));
+        trimmedRules.forEach((staffId, rules) -> {
+            if (rules.isEmpty()) recurringRoster.remove(staffId);
+            else recurringRoster.put(staffId, rules);
+        });
+        rosterChanged();
+        return archived.size();
     }
 
     /**
@@ -50,9 +193,59 @@ public class Scheduler implements Serializable {
      * @param time
      * @return
      */
-    public boolean isAvailableOnDuty(Staff staff, LocalDateTime time) {
+    public synchronized boolean isAvailableOnDuty(Staff staff, LocalDateTime time) {
         return dailyRoster.getOrDefault(staff.getId(), List.of()).stream()
-                .anyMatch(s -> !time.isBefore(s.start()) && !time.isAfter(s.end()));
+                .anyMatch(s -> !time.isBefore(s.start()) && !time.isAfter(s.end()))
+                || recurringShiftsOf(staff.getId()).stream().anyMatch(rule -> rule.isActiveAt(time));
+    }
+
+    /**
+     * dutyWindowEnd returns the end of the shift covering the given time, or null when off duty
+     *
+     * @param staff
+     * @param time
+     * @return
+     */
+    public synchronized LocalDateTime dutyWindowEnd(Staff staff, LocalDateTime time) {
+        LocalDateTime end = null;
+        for (Shift shift : dailyRoster.getOrDefault(staff.getId(), List.of())) {
+            if (!time.isBefore(shift.start()) && !time.isAfter(shift.end()) && (end == null || shift.end().isAfter(end))) {
+                end = shift.end();
+            }
+        }
+        for (RecurringShift rule : recurringShiftsOf(staff.getId())) {
+            if (!rule.isActiveAt(time)) continue;
+            LocalDateTime ruleEnd = time.toLocalDate().atTime(rule.endTime());
+            if (end == null || ruleEnd.isAfter(end)) end = ruleEnd;
+        }
+        return end;
+    }
+
+    /**
+     * shiftsBetween returns concrete shifts and expanded rule occurrences for the inclusive window.
+     * Expansions are cached for the last queried window only.
+     *
+     * @param staffId
+     * @param from
+     * @param to
+     * @return
+     */
+    public synchronized List<Shift> shiftsBetween(String staffId, LocalDate from, LocalDate to) {
+        if (windowCache == null || !from.equals(cachedWindowFrom) || !to.equals(cachedWindowTo)) {
+            windowCache = new HashMap<>();
+            cachedWindowFrom = from;
+            cachedWindowTo = to;
+        }
+        return windowCache.computeIfAbsent(staffId, id -> {
+            List<Shift> shifts = new ArrayList<>();
+            for (Shift shift : dailyRoster.getOrDefault(id, List.of())) {
+                LocalDate date = shift.start().toLocalDate();
+                if (!date.isBefore(from) && !date.isAfter(to)) shifts.add(shift);
+            }
+            for (RecurringShift rule : recurringShiftsOf(id)) shifts.addAll(rule.occurrencesBetween(from, to));
+            shifts.sort(Comparator.comparing(Shift::start));
+            return Collections.unmodifiableList(shifts);
+        });
     }
 
     /**
@@ -64,13 +257,38 @@ public class Scheduler implements Serializable {
         return Collections.unmodifiableMap(dailyRoster);
     }
 
+    @Override
+    public synchronized Set<String> staffIds() {
+        Set<String> ids = new HashSet<>(dailyRoster.keySet());
+        ids.addAll(recurringRoster.keySet());
+        return ids;
+    }
+
+    @Override
+    public synchronized List<Shift> shiftsOf(String staffId) {
+        List<Shift> shifts = dailyRoster.get(staffId);
+        return shifts == null ? List.of() : List.copyOf(shifts);
+    }
+
+    @Override
+    public synchronized List<RecurringShift> recurringShiftsOf(String staffId) {
+        List<RecurringShift> rules = recurringRoster.get(staffId);
+        return rules == null ? List.of() : List.copyOf(rules);
+    }
+
     /**
      * startComplianceScheduler
      *
      * @param home
      */
-    public void startComplianceScheduler(ResidentHealthCareHome home) {
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    public synchronized void startComplianceScheduler(ResidentHealthCareHome home) {
+        stoppingScheduler();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "compliance-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = scheduler;
 
         Runnable complianceTask = () -> {
             try {
@@ -87,6 +305,16 @@ public class Scheduler implements Serializable {
             long delay = getDelayUntilHour(hour);
             scheduler.scheduleAtFixedRate(complianceTask, delay, 24 * 60 * 60, TimeUnit.SECONDS);
         }
+
+        // keep the on duty view fresh at every shift boundary
+        getOnDutyRoster().startingBoundaryTimer(scheduler);
+
+        // archive finished shifts once a day, shortly after midnight
+        scheduler.scheduleAtFixedRate(home::applyingRosterRetention, getDelayUntilHour(0), 24 * 60 * 60, TimeUnit.SECONDS);
+
+        // audit queued login lockouts even when no further attempt comes to flush them
+        long flushMillis = LoginRateLimiter.AUDIT_FLUSH_INTERVAL.toMillis();
+        scheduler.scheduleAtFixedRate(() -> home.loginRateLimiter().flushingDueLockouts(), flushMillis, flushMillis, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -105,12 +333,40 @@ public class Scheduler implements Serializable {
     }
 
     /**
-     * stopScheduler
+     * stoppingScheduler stops the timers of this home's scheduler only
      */
-    public static void stopScheduler() {
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdownNow();
+    public synchronized void stoppingScheduler() {
+        if (executor != null && !executor.isShutdown()) {
+            executor.shutdownNow();
         }
+        executor = null;
     }
 
+    /**
+     * writeObject holds the scheduler so a shift assigned meanwhile does not change the maps being written
+     *
+     * @param out
+     * @throws IOException
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+    }
+
+    /**
+     * readObject defaults the roster maps that snapshots of the first release do not have
+     *
+     * @param in
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (recurringRoster == null) recurringRoster = new HashMap<>();
+        if (rosteredStaff == null) {
+            rosteredStaff = new HashMap<>();
+            for (List<ShiftAssignment> assignments : map.values()) {
+                for (ShiftAssignment assignment : assignments) rosteredStaff.put(assignment.staff().getId(), assignment.staff());
+            }
+        }
+    }
 }
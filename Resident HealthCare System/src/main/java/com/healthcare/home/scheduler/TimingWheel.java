@@ -0,0 +1,200 @@
+package com.healthcare.home.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TimingWheel is a hierarchical hashed timing wheel (four levels of 64 slots).
+ * Timers sit in intrusive doubly linked slot lists, so schedule and cancel are O(1);
+ * higher levels are cascaded down as the wheel turns and level 0 slots expire as a batch.
+ * Time is driven explicitly through advanceTo, the caller owns the clock.
+ *
+ * @param <T>
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Timer<T>[][] wheel;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Timer is the handle of a scheduled payload, cancel unlinks it in O(1)
+     *
+     * @param <T>
+     */
+    public static final class Timer<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private TimingWheel<T> owner;
+
+        private Timer(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        /**
+         * cancel
+         *
+         * @return false when the timer already fired or was cancelled
+         */
+        public boolean cancel() {
+            TimingWheel<T> wheel = owner;
+            return wheel != null && wheel.cancelling(this);
+        }
+
+        public boolean isPending() {
+            return owner != null;
+        }
+    }
+
+    /**
+     * TimingWheel Constructor
+     *
+     * @param tickMillis
+     * @param startMillis
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be positive");
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.wheel = (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timer<T> sentinel = new Timer<>(null, -1);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                wheel[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * scheduling a payload to fire at the given epoch millis
+     *
+     * @param payload
+     * @param dueMillis
+     * @return
+     */
+    public synchronized Timer<T> scheduling(T payload, long dueMillis) {
+        // round up so a timer never fires before its due time
+        long deadline = Math.max((dueMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        Timer<T> timer = new Timer<>(payload, deadline);
+        placing(timer);
+        size++;
+        return timer;
+    }
+
+    /**
+     * advanceTo moves the wheel to the given epoch millis and returns every payload that fell due
+     *
+     * @param nowMillis
+     * @return
+     */
+    public synchronized List<T> advanceTo(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascading();
+            Timer<T> sentinel = wheel[0][(int) (currentTick & SLOT_MASK)];
+            for (Timer<T> timer = sentinel.next; timer != sentinel; ) {
+                Timer<T> next = timer.next;
+                unlinking(timer);
+                if (timer.deadlineTick <= currentTick) {
+                    timer.owner = null;
+                    size--;
+                    expired.add(timer.payload);
+                } else {
+                    placing(timer);
+                }
+                timer = next;
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * cascading moves the due slot of each higher level down whenever the lower level wraps
+     */
+    private void cascading() {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((currentTick >> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) return;
+            Timer<T> sentinel = wheel[level][(int) ((currentTick >> (SLOT_BITS * level)) & SLOT_MASK)];
+            Timer<T> timer = sentinel.next;
+            sentinel.next = sentinel;
+            sentinel.prev = sentinel;
+            while (timer != sentinel) {
+                Timer<T> next = timer.next;
+                placing(timer);
+                timer = next;
+            }
+        }
+    }
+
+    /**
+     * placing a timer in the level matching its distance from the current tick
+     *
+     * @param timer
+     */
+    private void placing(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        // timers further than the wheel span park in the top level and are re-placed when cascaded
+        long placedTick = delta >= MAX_SPAN ? currentTick + MAX_SPAN - 1 : Math.max(timer.deadlineTick, currentTick);
+        delta = placedTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) level++;
+        Timer<T> sentinel = wheel[level][(int) ((placedTick >> (SLOT_BITS * level)) & SLOT_MASK)];
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+        timer.owner = this;
+    }
+
+    /**
+     * cancelling
+     *
+     * @param timer
+     * @return
+     */
+    private synchronized boolean cancelling(Timer<T> timer) {
+        if (timer.owner != this) return false;
+        unlinking(timer);
+        timer.owner = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * unlinking
+     *
+     * @param timer
+     */
+    private void unlinking(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+}
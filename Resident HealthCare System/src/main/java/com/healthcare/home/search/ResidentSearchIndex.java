@@ -0,0 +1,338 @@
+package com.healthcare.home.search;
+
+import java.util.*;
+
+/**
+ * ResidentSearchIndex answers type-ahead searches over residents by name, id and bed.
+ * Every word of the name, the id and the bed id are keys of a prefix trie, one trie for current and one for
+ * archived residents; a search walks to the node of the typed prefix and visits the keys below it in order
+ * until enough residents matched, so its cost follows the result size rather than the number of residents.
+ * A query word that is misspelt is corrected to the known name words one edit away (an insert, delete,
+ * substitution or swap of neighbouring letters), found through shared one-deletion variants, and the trie
+ * is walked again with the corrected word. The index is updated on admit, move and discharge;
+ * discharged residents stay in it as archived entries and archive files can be added on demand.
+ */
+public class ResidentSearchIndex {
+    private static final int MAX_CORRECTIONS = 16;
+    // current residents first, closer matches first, then by name
+    private static final Comparator<Match> ORDER = Comparator.comparing(Match::archived)
+            .thenComparing(Match::distance)
+            .thenComparing(Match::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Match::residentId);
+
+    /**
+     * Match
+     *
+     * @param residentId
+     * @param name
+     * @param bedId    current bed, null for archived residents
+     * @param archived
+     * @param distance 0 for prefix matches, else the number of query words corrected
+     */
+    public record Match(String residentId, String name, String bedId, boolean archived, int distance) {
+    }
+
+    private record Entry(Match match, Set<String> keys, Set<String> nameWords) {
+    }
+
+    private static final class Node {
+        private final NavigableMap<Character, Node> children = new TreeMap<>();
+        private final Set<String> residentIds = new TreeSet<>();
+    }
+
+    private final Node current = new Node();
+    private final Node archived = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    // name word -> number of residents using it, and each word's one-letter deletions -> the words
+    private final Map<String, Integer> nameWordCounts = new HashMap<>();
+    private final Map<String, Set<String>> variants = new HashMap<>();
+
+    /**
+     * indexing a current resident in its bed, replacing what was known about the resident before
+     *
+     * @param residentId
+     * @param name
+     * @param bedId
+     */
+    public synchronized void indexing(String residentId, String name, String bedId) {
+        putting(new Match(residentId, name, bedId, false, 0));
+    }
+
+    /**
+     * indexingArchived adds a discharged resident, current residents with the same id are left alone
+     *
+     * @param residentId
+     * @param name
+     */
+    public synchronized void indexingArchived(String residentId, String name) {
+        Entry known = entries.get(residentId);
+        if (known != null && !known.match().archived()) return;
+        putting(new Match(residentId, name, null, true, 0));
+    }
+
+    /**
+     * moving a current resident to a new bed
+     *
+     * @param residentId
+     * @param bedId
+     */
+    public synchronized void moving(String residentId, String bedId) {
+        Entry known = entries.get(residentId);
+        if (known == null) return;
+        putting(new Match(residentId, known.match().name(), bedId, false, 0));
+    }
+
+    /**
+     * archiving a discharged resident, it is only found by searches that include the archive
+     *
+     * @param residentId
+     */
+    public synchronized void archiving(String residentId) {
+        Entry known = entries.get(residentId);
+        if (known == null) return;
+        putting(new Match(residentId, known.match().name(), null, true, 0));
+    }
+
+    /**
+     * removing the resident from the index entirely
+     *
+     * @param residentId
+     */
+    public synchronized void removing(String residentId) {
+        Entry known = entries.remove(residentId);
+        if (known == null) return;
+        Node root = known.match().archived() ? archived : current;
+        for (String key : known.keys()) {
+            Node node = walking(root, key, false);
+            if (node != null) node.residentIds.remove(residentId);
+        }
+        for (String word : known.nameWords()) {
+            if (nameWordCounts.merge(word, -1, Integer::sum) > 0) continue;
+            nameWordCounts.remove(word);
+            for (String variant : variantsOf(word)) {
+                Set<String> words = variants.get(variant);
+                if (words == null) continue;
+                words.remove(word);
+                if (words.isEmpty()) variants.remove(variant);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * searching by prefixes of name words, the id or the bed id; every query word must match,
+     * "ann sm" finds "Ann Smith". Names with a typo are added when fewer than limit residents matched.
+     *
+     * @param query
+     * @param limit
+     * @param includeArchived
+     * @return current residents before archived ones, prefix matches before typo matches
+     */
+    public synchronized List<Match> searching(String query, int limit, boolean includeArchived) {
+        String normalized = normalizing(query);
+        if (normalized.isEmpty() || limit < 1) return List.of();
+        String[] words = normalized.split(" ");
+        // the longest word is the most selective one to walk the trie with
+        String driver = Arrays.stream(words).max(Comparator.comparingInt(String::length)).orElseThrow();
+
+        Map<String, Match> found = new LinkedHashMap<>();
+        collecting(current, driver, words, limit, found);
+        if (includeArchived) collecting(archived, driver, words, limit, found);
+        if (found.size() >= limit) return List.copyOf(found.values());
+
+        // not enough: walk again with misspelt words corrected, fewest corrections first
+        List<String[]> corrected = correcting(words);
+        for (int corrections = 1; corrections <= words.length && found.size() < limit; corrections++) {
+            Map<String, Match> fuzzy = new LinkedHashMap<>();
+            for (String[] variant : corrected) {
+                if (countingCorrections(words, variant) != corrections) continue;
+                String variantDriver = Arrays.stream(variant).max(Comparator.comparingInt(String::length)).orElseThrow();
+                int wanted = limit - found.size();
+                collecting(current, variantDriver, variant, wanted, fuzzy);
+                if (includeArchived) collecting(archived, variantDriver, variant, wanted, fuzzy);
+            }
+            List<Match> ranked = new ArrayList<>();
+            for (Match match : fuzzy.values()) {
+                if (found.containsKey(match.residentId())) continue;
+                ranked.add(new Match(match.residentId(), match.name(), match.bedId(), match.archived(), corrections));
+            }
+            ranked.sort(ORDER);
+            for (Match match : ranked) {
+                if (found.size() >= limit) break;
+                found.put(match.residentId(), match);
+            }
+        }
+        return List.copyOf(found.values());
+    }
+
+    /**
+     * correcting lists the query with misspelt words replaced by known name words one edit away
+     *
+     * @param words
+     * @return every combination with at least one corrected word, at most MAX_CORRECTIONS of them
+     */
+    private List<String[]> correcting(String[] words) {
+        List<String[]> combinations = new ArrayList<>();
+        combinations.add(words.clone());
+        for (int i = 0; i < words.length; i++) {
+            Set<String> options = new TreeSet<>();
+            for (String variant : variantsOf(words[i])) {
+                for (String nameWord : variants.getOrDefault(variant, Set.of())) {
+                    if (isOneEditApart(words[i], nameWord)) options.add(nameWord);
+                }
+            }
+            List<String[]> extended = new ArrayList<>(combinations);
+            for (String[] combination : combinations) {
+                for (String option : options) {
+                    if (extended.size() >= MAX_CORRECTIONS) break;
+                    String[] copy = combination.clone();
+                    copy[i] = option;
+                    extended.add(copy);
+                }
+            }
+            combinations = extended;
+        }
+        return combinations.subList(1, combinations.size());
+    }
+
+    private static int countingCorrections(String[] words, String[] variant) {
+        int corrections = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (!words[i].equals(variant[i])) corrections++;
+        }
+        return corrections;
+    }
+
+    /**
+     * collecting the residents below the driver's trie node, in key order, until limit matched
+     *
+     * @param root
+     * @param driver
+     * @param words
+     * @param limit
+     * @param found
+     */
+    private void collecting(Node root, String driver, String[] words, int limit, Map<String, Match> found) {
+        Node start = walking(root, driver, false);
+        if (start == null) return;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            for (String id : node.residentIds) {
+                if (found.size() >= limit) return;
+                Entry entry = entries.get(id);
+                if (!found.containsKey(id) && prefixMatchingAll(entry, words)) found.put(id, entry.match());
+            }
+            // pushed in reverse so the smallest child is visited next
+            for (Node child : node.children.descendingMap().values()) pending.push(child);
+        }
+    }
+
+    /**
+     * prefixMatchingAll
+     *
+     * @param entry
+     * @param words
+     * @return true when every word prefixes one of the entry's keys
+     */
+    private static boolean prefixMatchingAll(Entry entry, String[] words) {
+        for (String word : words) {
+            if (!prefixMatching(entry, word)) return false;
+        }
+        return true;
+    }
+
+    private static boolean prefixMatching(Entry entry, String word) {
+        for (String key : entry.keys()) {
+            if (key.startsWith(word)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * isOneEditApart, an insert, delete, substitution or swap of two neighbouring letters
+     *
+     * @param first
+     * @param second
+     * @return
+     */
+    private static boolean isOneEditApart(String first, String second) {
+        if (first.length() < second.length()) return isOneEditApart(second, first);
+        if (first.length() - second.length() > 1 || first.equals(second)) return false;
+        int prefix = 0;
+        while (prefix < second.length() && first.charAt(prefix) == second.charAt(prefix)) prefix++;
+        if (first.length() > second.length()) return first.substring(prefix + 1).equals(second.substring(prefix));
+        if (first.substring(prefix + 1).equals(second.substring(prefix + 1))) return true;
+        return prefix + 1 < first.length()
+                && first.charAt(prefix) == second.charAt(prefix + 1) && first.charAt(prefix + 1) == second.charAt(prefix)
+                && first.substring(prefix + 2).equals(second.substring(prefix + 2));
+    }
+
+    /**
+     * putting replaces the entry of the resident and its trie keys and name word variants
+     *
+     * @param match
+     */
+    private void putting(Match match) {
+        removing(match.residentId());
+        Set<String> nameWords = new HashSet<>();
+        String name = normalizing(match.name());
+        if (!name.isEmpty()) nameWords.addAll(Arrays.asList(name.split(" ")));
+        Set<String> keys = new HashSet<>(nameWords);
+        if (match.residentId() != null) keys.add(normalizing(match.residentId()));
+        if (match.bedId() != null) keys.add(normalizing(match.bedId()));
+
+        entries.put(match.residentId(), new Entry(match, keys, nameWords));
+        Node root = match.archived() ? archived : current;
+        for (String key : keys) walking(root, key, true).residentIds.add(match.residentId());
+        for (String word : nameWords) {
+            if (nameWordCounts.merge(word, 1, Integer::sum) > 1) continue;
+            for (String variant : variantsOf(word)) variants.computeIfAbsent(variant, v -> new HashSet<>()).add(word);
+        }
+    }
+
+    /**
+     * variantsOf the word, itself and each single-letter deletion; two words one edit apart share a variant
+     *
+     * @param word
+     * @return
+     */
+    private static Set<String> variantsOf(String word) {
+        Set<String> result = new HashSet<>();
+        result.add(word);
+        for (int i = 0; i < word.length(); i++) result.add(word.substring(0, i) + word.substring(i + 1));
+        return result;
+    }
+
+    /**
+     * walking the trie along the key
+     *
+     * @param root
+     * @param key
+     * @param creating add missing nodes
+     * @return the node of the key, or null when it is missing and not created
+     */
+    private static Node walking(Node root, String key, boolean creating) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            char c = key.charAt(i);
+            node = creating ? node.children.computeIfAbsent(c, k -> new Node()) : node.children.get(c);
+        }
+        return node;
+    }
+
+    /**
+     * normalizing to lower case words separated by single spaces
+     *
+     * @param text
+     * @return
+     */
+    private static String normalizing(String text) {
+        if (text == null) return "";
+        return text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+}
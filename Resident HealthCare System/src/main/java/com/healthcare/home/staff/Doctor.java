@@ -1,8 +1,11 @@
 package com.healthcare.home.staff;
 
+import com.healthcare.home.entities.IdAllocator;
 import com.healthcare.home.entities.Role;
 
 public class Doctor extends Staff {
+    private static final long serialVersionUID = -3653493348607002026L;
+
     /**
      * Doctor Constructor
      *
@@ -13,4 +16,16 @@ public class Doctor extends Staff {
     public Doctor(String name, String username, String password) {
         super(name, Role.DOCTOR, username, password);
     }
+
+    /**
+     * Doctor Constructor
+     *
+     * @param ids
+     * @param name
+     * @param username
+     * @param password
+     */
+    public Doctor(IdAllocator ids, String name, String username, String password) {
+        super(ids, name, Role.DOCTOR, username, password);
+    }
 }
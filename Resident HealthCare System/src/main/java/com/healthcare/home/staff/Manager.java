@@ -1,8 +1,11 @@
 package com.healthcare.home.staff;
 
+import com.healthcare.home.entities.IdAllocator;
 import com.healthcare.home.entities.Role;
 
 public class Manager extends Staff {
+    private static final long serialVersionUID = -1026879788778200727L;
+
     /**
      * Manager Constructor
      *
@@ -13,4 +16,16 @@ public class Manager extends Staff {
     public Manager(String name, String username, String password) {
         super(name, Role.MANAGER, username, password);
     }
+
+    /**
+     * Manager Constructor
+     *
+     * @param ids
+     * @param name
+     * @param username
+     * @param password
+     */
+    public Manager(IdAllocator ids, String name, String username, String password) {
+        super(ids, name, Role.MANAGER, username, password);
+    }
 }
@@ -1,8 +1,11 @@
 package com.healthcare.home.staff;
 
+import com.healthcare.home.entities.IdAllocator;
 import com.healthcare.home.entities.Role;
 
 public class Nurse extends Staff {
+    private static final long serialVersionUID = -4539708158423390532L;
+
     /**
      * Nurse Constructor
      *
@@ -13,4 +16,16 @@ public class Nurse extends Staff {
     public Nurse(String name, String username, String password) {
         super(name, Role.NURSE, username, password);
     }
+
+    /**
+     * Nurse Constructor
+     *
+     * @param ids
+     * @param name
+     * @param username
+     * @param password
+     */
+    public Nurse(IdAllocator ids, String name, String username, String password) {
+        super(ids, name, Role.NURSE, username, password);
+    }
 }
@@ -2,23 +2,26 @@ package com.healthcare.home.staff;
 
 import java.io.Serializable;
 
+import com.healthcare.home.entities.IdAllocator;
 import com.healthcare.home.entities.Role;
 import com.healthcare.home.auth.AuthAccess;
+import com.healthcare.home.auth.PasswordHasher;
+import com.healthcare.home.auth.RolePermissions;
 import lombok.Data;
-import lombok.Setter;
 
 @Data
 public abstract class Staff implements Serializable {
-    @Setter
-    private static long idCounter = 0;
+    private static final long serialVersionUID = 3614600404123879789L;
     private final String id;
     private String name;
     private final Role role;
     private final String username;
     private String password;
+    // ward the staff member usually works in, null when not tied to a ward
+    private String ward;
 
     /**
-     * Staff Constructor
+     * Staff Constructor, the id comes from the standalone allocator
      *
      * @param name
      * @param role
@@ -26,43 +29,63 @@ public abstract class Staff implements Serializable {
      * @param password
      */
     protected Staff(String name, Role role, String username, String password) {
-        this.id = this.generateId();
+        this(IdAllocator.standalone(), name, role, username, password);
+    }
+
+    /**
+     * Staff Constructor
+     *
+     * @param ids
+     * @param name
+     * @param role
+     * @param username
+     * @param password
+     */
+    protected Staff(IdAllocator ids, String name, Role role, String username, String password) {
+        this.id = ids.nextId(IdAllocator.STAFF);
         this.name = name;
         this.role = role;
         this.username = username;
-        this.password = password;
+        this.password = PasswordHasher.hash(password);
     }
 
     /**
-     * hasAccess method checks or verify that the user has specific access or not
+     * setPassword stores the salted hash of the given plaintext password
      *
-     * @param authAccess
+     * @param password
+     */
+    public void setPassword(String password) {
+        this.password = PasswordHasher.hash(password);
+    }
+
+    /**
+     * checkingPassword
+     *
+     * @param plain
      * @return
      */
-    public boolean hasAccess(AuthAccess authAccess) {
-        return switch (role) {
-            case MANAGER -> authAccess == AuthAccess.ADD_STAFF ||
-                    authAccess == AuthAccess.UPDATE_STAFF ||
-                    authAccess == AuthAccess.VIEW_RESIDENT ||
-                    authAccess == AuthAccess.ADD_RESIDENT ||
-                    authAccess == AuthAccess.DISCHARGE_RESIDENT ||
-                    authAccess == AuthAccess.SHIFT_ASSIGNMENT;
-            case DOCTOR -> authAccess == AuthAccess.VIEW_RESIDENT ||
-                    authAccess == AuthAccess.WRITE_PRESCRIPTION;
-            case NURSE -> authAccess == AuthAccess.VIEW_RESIDENT ||
-                    authAccess == AuthAccess.MOVE_RESIDENT ||
-                    authAccess == AuthAccess.ADMINISTER_MEDICATION ||
-                    authAccess == AuthAccess.UPDATE_PRESCRIPTION;
-        };
+    public boolean checkingPassword(String plain) {
+        return PasswordHasher.verify(plain, password);
+    }
+
+    /**
+     * migratingPlaintextPassword hashes a password loaded from a snapshot written before hashing existed
+     *
+     * @return true when the password was migrated
+     */
+    public boolean migratingPlaintextPassword() {
+        if (password == null || PasswordHasher.isHashed(password)) return false;
+        this.password = PasswordHasher.hash(password);
+        return true;
     }
 
     /**
-     * generateId
+     * hasAccess method checks or verify that the user has specific access or not
      *
+     * @param authAccess
      * @return
      */
-    private synchronized String generateId() {
-        idCounter++;
-        return String.format("STF-%03d", idCounter);
+    public boolean hasAccess(AuthAccess authAccess) {
+        return RolePermissions.allows(role, authAccess);
     }
 }
@@ -0,0 +1,181 @@
+package com.healthcare.home.views;
+
+import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.entities.Bed;
+import com.healthcare.home.entities.Prescription;
+import com.healthcare.home.entities.Resident;
+import com.healthcare.home.entities.Role;
+import com.healthcare.home.events.DomainEvent;
+import com.healthcare.home.facility.FacilityTopology;
+import com.healthcare.home.scheduler.MedicationRoundIndex;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * BedBoard is the read model behind the dashboards of one role: a BedSummary per bed in room order, kept
+ * current from the home's domain events. A batch of events re-reads only the beds it names, and subscribers
+ * are handed just the summaries that changed, so a dashboard replaces those rows instead of rebuilding the table.
+ * The nurse board also carries each resident's next due dose from the medication round index.
+ * A layout change renumbers the beds and is picked up by rebuilding the board on the next event or read.
+ */
+public class BedBoard {
+    private final ResidentHealthCareHome home;
+    private final Role role;
+    private final List<Consumer<List<BedSummary>>> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<String, BedSummary> summaries = new HashMap<>();
+    private FacilityTopology topology;
+
+    /**
+     * BedBoard Constructor, reads every bed once and follows the home's events from then on
+     *
+     * @param home
+     * @param role
+     */
+    public BedBoard(ResidentHealthCareHome home, Role role) {
+        this.home = home;
+        this.role = role;
+        synchronized (this) {
+            rebuilding();
+        }
+        home.getEventBus().subscribing(this::applying);
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    /**
+     * subscribing to the summaries changed by each batch of events; called on the event bus threads
+     * while the board is locked, so subscribers hand the rows on rather than block
+     *
+     * @param subscriber
+     * @return the subscriber, to pass to unsubscribing
+     */
+    public Consumer<List<BedSummary>> subscribing(Consumer<List<BedSummary>> subscriber) {
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * unsubscribing
+     *
+     * @param subscriber
+     */
+    public void unsubscribing(Consumer<List<BedSummary>> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * getTopology
+     *
+     * @return the layout the rows follow, a dashboard that shows another one has to read every row again
+     */
+    public synchronized FacilityTopology getTopology() {
+        if (topology != home.getTopology()) rebuilding();
+        return topology;
+    }
+
+    /**
+     * rows
+     *
+     * @return every bed's summary in room order
+     */
+    public synchronized List<BedSummary> rows() {
+        if (topology != home.getTopology()) rebuilding();
+        List<BedSummary> rows = new ArrayList<>(summaries.size());
+        for (String bedId : topology.bedIds()) {
+            BedSummary summary = summaries.get(bedId);
+            if (summary != null) rows.add(summary);
+        }
+        return rows;
+    }
+
+    /**
+     * row
+     *
+     * @param bedId
+     * @return the bed's summary, or null when there is no such bed
+     */
+    public synchronized BedSummary row(String bedId) {
+        return summaries.get(bedId);
+    }
+
+    /**
+     * applying a batch of events: the beds they name are read again and the summaries that changed
+     * handed to the subscribers
+     *
+     * @param events
+     */
+    private synchronized void applying(List<DomainEvent> events) {
+        List<BedSummary> changed = new ArrayList<>();
+        if (topology != home.getTopology()) {
+            rebuilding();
+            changed.addAll(rows());
+        } else {
+            Set<String> touched = new LinkedHashSet<>();
+            for (DomainEvent event : events) touching(event, touched);
+            for (String bedId : touched) {
+                Bed bed = home.getBedList().get(bedId);
+                if (bed == null) continue;
+                BedSummary summary = summarizing(bed);
+                if (!summary.equals(summaries.put(bedId, summary))) changed.add(summary);
+            }
+        }
+        if (changed.isEmpty()) return;
+        List<BedSummary> delivered = List.copyOf(changed);
+        for (Consumer<List<BedSummary>> subscriber : subscribers) {
+            try {
+                subscriber.accept(delivered);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * touching collects the beds an event changed
+     *
+     * @param event
+     * @param touched
+     */
+    private static void touching(DomainEvent event, Set<String> touched) {
+        if (event instanceof DomainEvent.ResidentAdmitted admitted) {
+            touched.add(admitted.bedId());
+        } else if (event instanceof DomainEvent.ResidentMoved moved) {
+            touched.add(moved.fromBedId());
+            touched.add(moved.toBedId());
+        } else if (event instanceof DomainEvent.ResidentDischarged discharged) {
+            touched.add(discharged.bedId());
+        } else if (event instanceof DomainEvent.PrescriptionWritten written) {
+            touched.add(written.bedId());
+        } else if (event instanceof DomainEvent.DoseAdministered administered && administered.bedId() != null) {
+            touched.add(administered.bedId());
+        }
+    }
+
+    private void rebuilding() {
+        topology = home.getTopology();
+        summaries.clear();
+        for (Bed bed : home.getBedList().values()) summaries.put(bed.getId(), summarizing(bed));
+    }
+
+    /**
+     * summarizing the bed as the role's dashboards show it
+     *
+     * @param bed
+     * @return
+     */
+    private BedSummary summarizing(Bed bed) {
+        Resident resident = bed.getResident();
+        if (resident == null) return BedSummary.vacant(bed.getId(), bed.getVersion());
+        List<Prescription> prescriptionList = resident.getPrescriptionList();
+        List<String> prescriptions = prescriptionList == null ? List.of()
+                : prescriptionList.stream().map(BedSummary::describing).toList();
+        MedicationRoundIndex.DueDose nextDue = role == Role.NURSE ? home.nextDueDose(resident.getId(), LocalDateTime.now()) : null;
+        return new BedSummary(bed.getId(), bed.getVersion(), resident.getId(), resident.getName(), resident.getGender(),
+                resident.getVersion(), prescriptions, nextDue);
+    }
+}
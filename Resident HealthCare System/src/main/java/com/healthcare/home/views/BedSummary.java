@@ -0,0 +1,50 @@
+package com.healthcare.home.views;
+
+import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.entities.Gender;
+import com.healthcare.home.entities.Prescription;
+import com.healthcare.home.scheduler.MedicationRoundIndex;
+
+import java.util.List;
+
+/**
+ * BedSummary is one row of a BedBoard, everything a dashboard shows of a bed read at the same time
+ *
+ * @param bedId
+ * @param bedVersion
+ * @param residentId      null for a vacant bed
+ * @param residentName
+ * @param gender
+ * @param residentVersion ANY_VERSION for a vacant bed
+ * @param prescriptions   one line per prescription: medicine, dose and times
+ * @param nextDue         earliest outstanding dose, only on boards that plan rounds
+ */
+public record BedSummary(String bedId, long bedVersion, String residentId, String residentName, Gender gender,
+                         long residentVersion, List<String> prescriptions, MedicationRoundIndex.DueDose nextDue) {
+
+    /**
+     * vacant
+     *
+     * @param bedId
+     * @param bedVersion
+     * @return
+     */
+    public static BedSummary vacant(String bedId, long bedVersion) {
+        return new BedSummary(bedId, bedVersion, null, "", null, ResidentHealthCareHome.ANY_VERSION, List.of(), null);
+    }
+
+    public boolean isVacant() {
+        return residentId == null;
+    }
+
+    /**
+     * describing a prescription as it is listed on the dashboards
+     *
+     * @param prescription
+     * @return
+     */
+    public static String describing(Prescription prescription) {
+        return prescription.getMedicine() + " (" + prescription.getDose() + ") at " +
+                (prescription.getTimes() != null ? prescription.getTimes().toString() : "N/A");
+    }
+}
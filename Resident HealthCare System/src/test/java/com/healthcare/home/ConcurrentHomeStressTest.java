@@ -0,0 +1,145 @@
+package com.healthcare.home;
+
+import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.entities.Bed;
+import com.healthcare.home.entities.Gender;
+import com.healthcare.home.entities.Resident;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.exceptions.BedNotAvailableException;
+import com.healthcare.home.exceptions.ResidentNotFoundException;
+import com.healthcare.home.facility.FacilityLayout;
+import com.healthcare.home.facility.VacancyIndex;
+import com.healthcare.home.staff.Manager;
+import com.healthcare.home.staff.Nurse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentHomeStressTest {
+    // homes of the running test, their pending events are written before its directory is removed
+    private final List<ResidentHealthCareHome> homes = new ArrayList<>();
+
+    @AfterEach
+    void closingHomes() {
+        homes.forEach(home -> home.getEventBus().closing(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void concurrentMovesKeepEveryResidentInExactlyOneBed(@TempDir Path dir) throws Exception {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+
+        List<String> bedIds = new ArrayList<>(home.getBedList().keySet());
+        Collections.sort(bedIds);
+        Set<Resident> admitted = new HashSet<>();
+        for (int i = 0; i < bedIds.size(); i += 2) {
+            Resident resident = new Resident("R" + i, Gender.FEMALE, false, bedIds.get(i));
+            home.assigningResidentToBed(manager, bedIds.get(i), resident);
+            admitted.add(resident);
+        }
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                int moved = 0;
+                start.await();
+                for (int i = 0; i < 300; i++) {
+                    // half of the moves cross between W1 and W2 in both directions
+                    String from = bedIds.get(random.nextInt(bedIds.size()));
+                    String to = bedIds.get(random.nextInt(bedIds.size()));
+                    if (from.equals(to)) continue;
+                    try {
+                        home.movingResidentToNewBed(nurse, from, to);
+                        moved++;
+                    } catch (ResidentNotFoundException | BedNotAvailableException expected) {
+                        // lost the race for the bed, the state must still be consistent
+                    }
+                }
+                return moved;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "moves deadlocked");
+
+        int moved = 0;
+        for (Future<Integer> result : results) moved += result.get();
+        assertTrue(moved > 0);
+
+        List<Resident> inBeds = new ArrayList<>();
+        for (Bed bed : home.getBedList().values()) {
+            if (!bed.isVacant()) inBeds.add(bed.getResident());
+        }
+        assertEquals(admitted.size(), inBeds.size());
+        assertEquals(admitted, new HashSet<>(inBeds));
+        assertEquals(admitted.size(), home.getAllResidents().size());
+    }
+
+    @Test
+    void bedChangesDuringMovesKeepTheVacancyIndexCurrent(@TempDir Path dir) throws Exception {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+
+        List<String> bedIds = new ArrayList<>(home.getBedList().keySet());
+        Collections.sort(bedIds);
+        for (int i = 0; i < bedIds.size(); i += 2) {
+            home.assigningResidentToBed(manager, bedIds.get(i), new Resident("R" + i, Gender.FEMALE, false, bedIds.get(i)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 3; t++) {
+            long seed = t;
+            executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < 300; i++) {
+                    String from = bedIds.get(random.nextInt(bedIds.size()));
+                    String to = bedIds.get(random.nextInt(bedIds.size()));
+                    if (from.equals(to)) continue;
+                    try {
+                        home.movingResidentToNewBed(nurse, from, to);
+                    } catch (ResidentNotFoundException | BedNotAvailableException expected) {
+                        // lost the race for the bed
+                    }
+                }
+                return null;
+            });
+        }
+        // the index is rebuilt on every isolation change while the moves update it
+        executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 100; i++) home.settingBedIsolation(bedIds.get(i % bedIds.size()), i % 2 == 0);
+            return null;
+        });
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "moves deadlocked");
+
+        Resident probe = new Resident("Probe", Gender.FEMALE, false, null);
+        assertEquals(new VacancyIndex(home.getTopology(), home.getBedList()).compatibleBedIds(probe), home.getCompatibleBedIds(probe));
+    }
+
+    private ResidentHealthCareHome homeIn(Path dir) {
+        ResidentHealthCareHome home = new ResidentHealthCareHome(dir, FacilityLayout.configured());
+        homes.add(home);
+        return home;
+    }
+}
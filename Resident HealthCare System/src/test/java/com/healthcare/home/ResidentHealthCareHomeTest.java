@@ -1,29 +1,86 @@
 package com.healthcare.home;
 
+import com.healthcare.home.audit.AuditTrailLog;
+import com.healthcare.home.auth.AuthAccess;
+import com.healthcare.home.auth.LoginRateLimiter;
+import com.healthcare.home.auth.Session;
+import com.healthcare.home.core.BatchResult;
+import com.healthcare.home.core.BedOperation;
+import com.healthcare.home.core.DoseConfirmation;
+import com.healthcare.home.core.FacilityRegistry;
+import com.healthcare.home.core.OptimisticRetry;
+import com.healthcare.home.core.ReminderPlanner;
 import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.core.RoundResult;
+import com.healthcare.home.core.SerializingHandlerService;
+import com.healthcare.home.core.SnapshotHeader;
 import com.healthcare.home.entities.Bed;
 import com.healthcare.home.entities.Gender;
+import com.healthcare.home.entities.IdAllocator;
+import com.healthcare.home.entities.Medication;
 import com.healthcare.home.entities.Prescription;
+import com.healthcare.home.entities.RecurringShift;
 import com.healthcare.home.entities.Resident;
+import com.healthcare.home.entities.Role;
+import com.healthcare.home.exceptions.LoginLockedOutException;
+import com.healthcare.home.exceptions.ResidentNotFoundException;
 import com.healthcare.home.exceptions.RosterUnfollowedException;
+import com.healthcare.home.exceptions.UnAuthorizationException;
+import com.healthcare.home.exceptions.ValidationFailedException;
+import com.healthcare.home.exceptions.VersionConflictException;
+import com.healthcare.home.facility.FacilityLayout;
+import com.healthcare.home.facility.FacilityTopology;
+import com.healthcare.home.scheduler.MedicationRoundIndex;
+import com.healthcare.home.scheduler.NotificationEngine;
+import com.healthcare.home.scheduler.Reminder;
+import com.healthcare.home.scheduler.RosterChange;
+import com.healthcare.home.scheduler.RosterRetentionPolicy;
+import com.healthcare.home.scheduler.RosterSimulationResult;
+import com.healthcare.home.scheduler.Scheduler;
+import com.healthcare.home.search.ResidentSearchIndex;
 import com.healthcare.home.entities.Shift;
+import com.healthcare.home.events.DomainEvent;
+import com.healthcare.home.events.DomainEventBus;
 import com.healthcare.home.staff.Doctor;
 import com.healthcare.home.staff.Manager;
 import com.healthcare.home.staff.Nurse;
 import com.healthcare.home.staff.Staff;
+import com.healthcare.home.views.BedBoard;
+import com.healthcare.home.views.BedSummary;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ResidentHealthCareHomeTest {
+    // homes of the running test, their pending events are written before its directory is removed
+    private final List<ResidentHealthCareHome> homes = new ArrayList<>();
+
+    @AfterEach
+    void closingHomes() {
+        homes.forEach(home -> home.getEventBus().closing(Duration.ofSeconds(5)));
+    }
+
     @Test
-    void addResidentToVacantBedTest() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void addResidentToVacantBedTest(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("Test-Manager", "test", "testManager");
         Staff nurse = new Nurse("Test-Nurse", "test-nurse", "testNurse");
         Staff doctor = new Doctor("Test-Doctor", "test-doctor", "testDoctor");
@@ -37,8 +94,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void addResidentToOccupiedBedShouldThrowException() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void addResidentToOccupiedBedShouldThrowException(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("M1", "Manager", "manager");
         Nurse nurse = new Nurse("N1", "Nurse", "nurse");
         Doctor doctor = new Doctor("D1", "Doctor", "doctor");
@@ -56,8 +113,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void nurseShiftExceeds8HoursShouldFailCompliance() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void nurseShiftExceeds8HoursShouldFailCompliance(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("M2", "Manager", "manager2");
         Nurse nurse = new Nurse("N2", "Nurse", "nurse2");
 
@@ -67,8 +124,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void doctorShiftLongerThanOneHourShouldFailCompliance() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void doctorShiftLongerThanOneHourShouldFailCompliance(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("M3", "Manager", "manager3");
         Doctor doctor = new Doctor("D3", "Doctor", "doctor3");
 
@@ -78,8 +135,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void nurseNotRosteredShouldNotAssignResident() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void nurseNotRosteredShouldNotAssignResident(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Nurse nurse = new Nurse("N4", "Nurse", "nurse4");
         Bed bed = home.findBed("W1-R101-B2");
         Resident resident = new Resident("Tom", Gender.MALE, false, bed.getId());
@@ -90,8 +147,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void managerCanAddStaffSuccessfully() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void managerCanAddStaffSuccessfully(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("M5", "Manager", "manager5");
         Nurse newNurse = new Nurse("N5", "New Nurse", "newNurse");
 
@@ -99,8 +156,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void nurseCannotAddStaffShouldThrowException() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void nurseCannotAddStaffShouldThrowException(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Nurse nurse = new Nurse("N6", "Nurse", "nurse6");
         Nurse anotherNurse = new Nurse("N7", "AnotherNurse", "nurse7");
 
@@ -110,8 +167,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void dischargingResidentShouldVacateBed() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void dischargingResidentShouldVacateBed(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("M7", "Manager", "manager7");
         Nurse nurse = new Nurse("N8", "Nurse", "nurse8");
         Bed bed = home.findBed("W1-R101-B3");
@@ -129,8 +186,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void testComplianceSuccess() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void testComplianceSuccess(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("Manger X", "mgr", "pwd");
         home.registeringNewStaff(manager);
 
@@ -159,8 +216,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void testNurseOverworked() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void testNurseOverworked(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("M","mgr","pwd");
         home.registeringNewStaff(manager);
         Nurse n = new Nurse("N","n","pwd");
@@ -175,8 +232,8 @@ public class ResidentHealthCareHomeTest {
     }
 
     @Test
-    void testMissingCoverage() {
-        ResidentHealthCareHome home = new ResidentHealthCareHome();
+    void testMissingCoverage(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
         Manager manager = new Manager("M","mgr","pwd");
         home.registeringNewStaff(manager);
         Nurse n1 = new Nurse("N1","n1","pwd");
@@ -195,4 +252,949 @@ public class ResidentHealthCareHomeTest {
         RosterUnfollowedException ex = assertThrows(RosterUnfollowedException.class, home::checkingCompliance);
         assertTrue(ex.getMessage().toLowerCase().contains("evening") || ex.getMessage().toLowerCase().contains("no nurse"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void simulatingRemovalReportsViolationWithoutMutatingRoster(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        home.registeringNewStaff(manager);
+        Doctor d = new Doctor("Doc", "doc", "pwd");
+        Nurse n1 = new Nurse("N1", "n1", "pwd");
+        Nurse n2 = new Nurse("N2", "n2", "pwd");
+        home.registeringNewStaff(d);
+        home.registeringNewStaff(n1);
+        home.registeringNewStaff(n2);
+
+        LocalDate base = LocalDate.now().with(DayOfWeek.MONDAY);
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            LocalDate day = base.with(dow);
+            home.assigningShift(manager, d, shiftFor(day, 10, 11));
+            home.assigningShift(manager, n1, shiftFor(day, 8, 16));
+            home.assigningShift(manager, n2, shiftFor(day, 14, 22));
+        }
+
+        Shift mondayEvening = shiftFor(base, 14, 22);
+        List<RosterSimulationResult> results = home.simulatingRosterAlternatives(manager, List.of(
+                List.of(new RosterChange.RemoveShift(n2, mondayEvening)),
+                List.of(new RosterChange.SwapShift(n1, shiftFor(base, 8, 16), n2, mondayEvening)),
+                List.of(new RosterChange.SwapShift(n1, shiftFor(base, 8, 16), n2, shiftFor(base, 8, 16)))));
+
+        RosterSimulationResult removal = results.get(0);
+        assertFalse(removal.isCompliant());
+        assertEquals(-1, removal.coverageDelta().get(DayOfWeek.MONDAY).eveningNurses());
+        assertTrue(removal.introducedViolations().get(0).contains("evening"));
+        assertTrue(results.get(1).isCompliant());
+        // n2 has no morning shift, so the swap is rejected and n1 keeps theirs
+        RosterSimulationResult halfSwap = results.get(2);
+        assertEquals(1, halfSwap.rejectedChanges().size());
+        assertEquals(0, halfSwap.coverageDelta().get(DayOfWeek.MONDAY).morningNurses());
+
+        // live roster untouched
+        assertDoesNotThrow(home::checkingCompliance);
+        assertEquals(7, home.getScheduler().shiftsOf(n2.getId()).size());
+    }
+
+    @Test
+    void recurringShiftsCoverFutureWeeksWithoutExpansion(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        home.registeringNewStaff(manager);
+        Doctor d = new Doctor("Doc", "doc", "pwd");
+        Nurse n1 = new Nurse("N1", "n1", "pwd");
+        Nurse n2 = new Nurse("N2", "n2", "pwd");
+        home.registeringNewStaff(d);
+        home.registeringNewStaff(n1);
+        home.registeringNewStaff(n2);
+
+        LocalDate from = LocalDate.now().with(DayOfWeek.MONDAY);
+        home.assigningRecurringShift(manager, d, RecurringShift.everyDay(LocalTime.of(10, 0), LocalTime.of(11, 0), from));
+        home.assigningRecurringShift(manager, n1, RecurringShift.everyDay(LocalTime.of(8, 0), LocalTime.of(16, 0), from));
+        home.assigningRecurringShift(manager, n2, RecurringShift.everyDay(LocalTime.of(14, 0), LocalTime.of(22, 0), from));
+
+        assertDoesNotThrow(home::checkingCompliance);
+        LocalDateTime farFuture = from.plusWeeks(30).atTime(9, 0);
+        assertTrue(home.getScheduler().isAvailableOnDuty(n1, farFuture));
+        assertFalse(home.getScheduler().isAvailableOnDuty(n2, farFuture));
+        assertEquals(14, home.getScheduler().shiftsBetween(n1.getId(), from, from.plusDays(13)).size());
+
+        // a third overlapping rule on the same day breaks the per day nurse limit
+        home.assigningRecurringShift(manager, n1, new RecurringShift(Set.of(DayOfWeek.MONDAY), LocalTime.of(17, 0), LocalTime.of(18, 0), from, null));
+        assertThrows(RosterUnfollowedException.class, () -> home.assigningRecurringShift(manager, n1,
+                new RecurringShift(Set.of(DayOfWeek.MONDAY), LocalTime.of(19, 0), LocalTime.of(20, 0), from, null)));
+    }
+
+    @Test
+    void consecutiveRecurringShiftsAreNotCountedTogether(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        home.registeringNewStaff(manager);
+        Doctor d = new Doctor("Doc", "doc", "pwd");
+        Nurse n1 = new Nurse("N1", "n1", "pwd");
+        Nurse n2 = new Nurse("N2", "n2", "pwd");
+        home.registeringNewStaff(d);
+        home.registeringNewStaff(n1);
+        home.registeringNewStaff(n2);
+
+        LocalDate from = LocalDate.now().with(DayOfWeek.MONDAY);
+        home.assigningRecurringShift(manager, d, RecurringShift.everyDay(LocalTime.of(10, 0), LocalTime.of(11, 0), from));
+        home.assigningRecurringShift(manager, n2, RecurringShift.everyDay(LocalTime.of(14, 0), LocalTime.of(22, 0), from));
+        Set<DayOfWeek> everyDay = EnumSet.allOf(DayOfWeek.class);
+        home.assigningRecurringShift(manager, n1, new RecurringShift(everyDay, LocalTime.of(8, 0), LocalTime.of(16, 0), from, from.plusWeeks(4).minusDays(1)));
+        home.assigningRecurringShift(manager, n1, new RecurringShift(everyDay, LocalTime.of(8, 0), LocalTime.of(16, 0), from.plusWeeks(4), null));
+
+        // one rule ends the day before the next one starts, so no day has more than 8 hours
+        assertDoesNotThrow(home::checkingCompliance);
+
+        home.assigningRecurringShift(manager, n1, new RecurringShift(Set.of(DayOfWeek.MONDAY), LocalTime.of(17, 0), LocalTime.of(18, 0), from.plusWeeks(5), null));
+        RosterUnfollowedException e = assertThrows(RosterUnfollowedException.class, home::checkingCompliance);
+        assertTrue(e.getMessage().contains("9 recurring hours on MONDAY"));
+    }
+
+    @Test
+    void retentionArchivesOldShiftsAndKeepsThemQueryable(@TempDir Path tempDir) {
+        ResidentHealthCareHome home = homeIn(tempDir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+
+        LocalDate old = LocalDate.now().minusDays(30);
+        home.assigningShift(manager, nurse, shiftFor(old, 8, 16));
+        home.assigningShift(manager, nurse, shiftFor(LocalDate.now(), 8, 16));
+        home.assigningRecurringShift(manager, nurse, new RecurringShift(Set.of(old.getDayOfWeek()), LocalTime.of(17, 0), LocalTime.of(18, 0), old, null));
+
+        int archived = home.applyingRosterRetention();
+
+        // the concrete old shift plus the rule occurrences older than the 14 day horizon
+        assertEquals(1 + 3, archived);
+        assertEquals(1, home.getScheduler().shiftsOf(nurse.getId()).size());
+        assertFalse(home.getScheduler().recurringShiftsOf(nurse.getId()).get(0).from().isBefore(LocalDate.now().minusDays(14)));
+        assertEquals(archived, home.readingRosterHistory(nurse.getId(), old.atStartOfDay(), LocalDateTime.now()).size());
+    }
+
+    @Test
+    void onDutyViewFollowsRosterChanges(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        Nurse later = new Nurse("L", "l", "pwd");
+        nurse.setWard("W2");
+        later.setWard("W2");
+
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        home.assigningShift(manager, later, new Shift(LocalDateTime.now().plusHours(5), LocalDateTime.now().plusHours(6)));
+
+        assertEquals(Set.of(nurse), home.getOnDutyStaffInWard("W2"));
+        assertEquals(Set.of(nurse), home.getOnDutyStaff(Role.NURSE));
+        assertDoesNotThrow(() -> home.requireOnDutyStaff(nurse));
+        assertThrows(RuntimeException.class, () -> home.requireOnDutyStaff(later));
+
+        home.assigningShift(manager, later, new Shift(LocalDateTime.now().minusMinutes(5), LocalDateTime.now().plusHours(1)));
+        assertEquals(Set.of(nurse, later), home.getOnDutyStaffInWard("W2"));
+    }
+
+    @Test
+    void authenticationUsesHashedPasswordsThroughTheUsernameIndex(@TempDir Path dir) throws Exception {
+        ResidentHealthCareHome home = homeIn(dir);
+        Nurse nurse = new Nurse("N", "nurse-login", "secret");
+        home.registeringNewStaff(nurse);
+
+        assertNotEquals("secret", nurse.getPassword());
+        assertTrue(nurse.getPassword().startsWith("pbkdf2$"));
+        assertEquals(nurse, home.authenticate("nurse-login", "secret"));
+        assertNull(home.authenticate("nurse-login", "wrong"));
+        assertNull(home.authenticate("nobody", "secret"));
+        assertEquals(nurse, home.authenticateAsync("nurse-login", "secret").get());
+        assertEquals(0, home.migratingPlaintextPasswords());
+    }
+
+    @Test
+    void sessionCachesPermissionsAndFollowsDutyWindow(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        // registered without the default recurring shifts, so the nurse is off duty whatever the time of day
+        home.registeringNewStaff(nurse);
+
+        Session managerSession = home.openingSession(manager);
+        Session nurseSession = home.openingSession(nurse);
+        assertDoesNotThrow(() -> home.requireSession(managerSession, AuthAccess.ADD_STAFF));
+        assertFalse(nurseSession.isOnDuty());
+        assertThrows(UnAuthorizationException.class, () -> home.requireSession(nurseSession, AuthAccess.MOVE_RESIDENT));
+
+        LocalDateTime end = LocalDateTime.now().plusHours(2).withNano(0);
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), end));
+        assertDoesNotThrow(() -> home.requireSession(nurseSession, AuthAccess.MOVE_RESIDENT));
+        assertEquals(end, nurseSession.getDutyUntil());
+        assertThrows(UnAuthorizationException.class, () -> home.requireSession(nurseSession, AuthAccess.ADD_STAFF));
+
+        nurseSession.closing();
+        assertThrows(UnAuthorizationException.class, () -> home.requireSession(nurseSession, AuthAccess.MOVE_RESIDENT));
+        assertThrows(UnAuthorizationException.class, () -> homeIn(dir).requireSession(managerSession, AuthAccess.ADD_STAFF));
+    }
+
+    @Test
+    void repeatedLoginsAreLockedOutAndRefill(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        AtomicLong clock = new AtomicLong();
+        home.setLoginRateLimiter(new LoginRateLimiter(home.getAuditTrailLog(), 3, Duration.ofSeconds(10), 2, clock::get));
+
+        for (int i = 0; i < 3; i++) assertNull(home.authenticate("admin", "wrong", "terminal-1"));
+        LoginLockedOutException ex = assertThrows(LoginLockedOutException.class,
+                () -> home.authenticate("admin", "MANAGER-PASSWORD", "terminal-1"));
+        assertEquals(Duration.ofSeconds(10), ex.getRetryAfter());
+
+        // with no further attempt the home's timer writes the lockout once it is due
+        assertEquals(0, home.loginRateLimiter().flushingDueLockouts());
+        clock.addAndGet(LoginRateLimiter.AUDIT_FLUSH_INTERVAL.toNanos());
+        assertEquals(1, home.loginRateLimiter().flushingDueLockouts());
+        assertTrue(home.getAuditTrailLog().getEntries().stream()
+                .anyMatch(entry -> entry.action().equals("LOGIN_LOCKOUT") && entry.message().contains("user:admin")));
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertNotNull(home.authenticate("admin", "MANAGER-PASSWORD", "terminal-1"));
+
+        // the map stays bounded, refilled buckets are swept for new keys
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+        assertNull(home.authenticate("someone", "wrong", "terminal-2"));
+        assertTrue(home.loginRateLimiter().trackedKeys() <= 3);
+
+        assertEquals(0, home.loginRateLimiter().flushingLockouts());
+    }
+
+    @Test
+    void topologyKeepsWardsAndRoomsAsContiguousSlices(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        home.registeringBeds(List.of(new Bed("W10-R1001-B1"), new Bed("W2-R204-B1"), new Bed("W1-R101-B10")));
+        FacilityTopology topology = home.getTopology();
+
+        assertEquals(List.of("W1", "W2", "W10"), topology.wardIds());
+        assertEquals(List.of("W1-R101-B1", "W1-R101-B2", "W1-R101-B3", "W1-R101-B4", "W1-R101-B10"),
+                topology.bedIdsInRoom("W1-R101"));
+        assertEquals(List.of("W2-R201", "W2-R202", "W2-R203", "W2-R204"), topology.roomIdsInWard("W2"));
+        assertEquals(8, home.getBedsInWard("W2").size());
+
+        int bed = topology.bedIndexOf("W2-R204-B1");
+        assertEquals("W2", topology.wardId(topology.wardOfBed(bed)));
+        int ward = topology.wardIndexOf("W2");
+        assertTrue(topology.firstBedOfWard(ward) <= bed && bed < topology.endBedOfWard(ward));
+        assertThrows(ValidationFailedException.class, () -> home.registeringBed(new Bed("W1-R101-B1")));
+    }
+
+    @Test
+    void suggestBedFollowsRoomGenderIsolationAndOccupancyChanges(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        home.settingBedIsolation("W2-R203-B1", true);
+
+        Resident first = new Resident("A", Gender.FEMALE, false, null);
+        assertEquals("W1-R101-B1", home.suggestBed(first).getId());
+        home.assigningResidentToBed(manager, "W1-R101-B1", first);
+
+        // a male resident skips the room now holding a female resident
+        Resident male = new Resident("B", Gender.MALE, false, null);
+        assertEquals("W1-R102-B1", home.suggestBed(male).getId());
+        assertFalse(home.getCompatibleBedIds(male).contains("W1-R101-B2"));
+        // a female resident is placed next to her, in the preferred ward of her current bed
+        assertEquals("W1-R101-B2", home.suggestBed(new Resident("C", Gender.FEMALE, false, null)).getId());
+        assertEquals("W2-R201-B1", home.suggestBed(new Resident("D", Gender.FEMALE, false, "W2-R202-B1")).getId());
+        // isolation residents only get isolation capable beds
+        assertEquals("W2-R203-B1", home.suggestBed(new Resident("E", Gender.MALE, true, null)).getId());
+
+        home.movingResidentToNewBed(nurse, "W1-R101-B1", "W2-R203-B1");
+        assertEquals("W1-R101-B1", home.suggestBed(male).getId());
+        assertNull(home.suggestBed(new Resident("F", Gender.MALE, true, null)));
+        home.dischargingResident(manager, "W2-R203-B1");
+        assertEquals("W2-R203-B1", home.suggestBed(new Resident("G", Gender.MALE, true, null)).getId());
+    }
+
+    @Test
+    void layoutReloadIsAnIncrementalDiffKeepingOccupiedBeds(@TempDir Path dir) throws Exception {
+        ResidentHealthCareHome home = homeIn(dir);
+        assertEquals(14, home.getBedList().size());
+        Manager manager = new Manager("M", "mgr", "pwd");
+        home.assigningResidentToBed(manager, "W2-R203-B1", new Resident("A", Gender.MALE, false, "W2-R203-B1"));
+
+        List<FacilityLayout.BedSpec> layout = FacilityLayout.reading(new StringReader("""
+                # W2-R203 dropped, W3 added, W1-R103 becomes an isolation room
+                W1-R101 beds=4
+                W1-R102 beds=2 gender=female
+                W1-R103-B1 isolated
+                W2-R201 beds=4
+                W2-R202 beds=2
+                W3-R301 beds=2 isolated gender=MALE
+                """));
+        ResidentHealthCareHome.LayoutDiff diff = home.applyingLayout(layout);
+
+        assertEquals(List.of("W3-R301-B1", "W3-R301-B2"), diff.added());
+        assertEquals(Set.of("W1-R102-B1", "W1-R102-B2", "W1-R103-B1"), Set.copyOf(diff.updated()));
+        assertEquals(List.of(), diff.removed());
+        assertEquals(List.of("W2-R203-B1"), diff.keptOccupied());
+        assertNotNull(home.getResidentInBed("W2-R203-B1"));
+        assertEquals(List.of("W1", "W2", "W3"), home.getTopology().wardIds());
+        assertEquals(Gender.FEMALE, home.findBed("W1-R102-B1").getGender());
+        assertEquals("W1-R103-B1", home.suggestBed(new Resident("B", Gender.FEMALE, true, null)).getId());
+
+        home.dischargingResident(manager, "W2-R203-B1");
+        Bed dropped = home.findBed("W2-R203-B1");
+        long versionBeforeRemoval = dropped.getVersion();
+        assertEquals(List.of("W2-R203-B1"), home.applyingLayout(layout).removed());
+        // whoever still holds the removed bed fails its version check
+        assertTrue(dropped.getVersion() > versionBeforeRemoval);
+        assertTrue(home.applyingLayout(layout).isUnchanged());
+        assertThrows(ValidationFailedException.class, () -> FacilityLayout.reading(new StringReader("W1-R101 beds=x")));
+    }
+
+    @Test
+    void facilitiesInOneProcessKeepSeparateIdsAndLogs(@TempDir Path root) throws Exception {
+        FacilityRegistry registry = new FacilityRegistry(root);
+        ResidentHealthCareHome north = registry.opening("north");
+        ResidentHealthCareHome south = registry.opening("south");
+        assertSame(north, registry.opening("north"));
+        assertEquals(Set.of("north", "south"), registry.facilityIds());
+
+        Resident northResident = new Resident(north.getIdAllocator(), "Ann", Gender.FEMALE, false, null);
+        Resident southResident = new Resident(south.getIdAllocator(), "Bob", Gender.MALE, false, null);
+        assertEquals("RES-001", northResident.getId());
+        assertEquals("RES-001", southResident.getId());
+
+        north.getAuditTrailLog().entryLog("STF-001", "NORTH_ONLY", "north");
+        assertEquals(root.resolve("north").resolve("actions.log"), north.getAuditTrailLog().getLogFile());
+        assertTrue(Files.readString(root.resolve("north").resolve("actions.log")).contains("NORTH_ONLY"));
+        assertFalse(Files.readString(root.resolve("south").resolve("actions.log")).contains("NORTH_ONLY"));
+
+        registry.closingAll();
+        assertTrue(Files.exists(root.resolve("south").resolve("healthCareSystem.dat")));
+        ResidentHealthCareHome reopened = new FacilityRegistry(root).opening("north");
+        assertEquals(north.getIdAllocator().highWaterMark(IdAllocator.STAFF), reopened.getIdAllocator().highWaterMark(IdAllocator.STAFF));
+        assertThrows(ValidationFailedException.class, () -> registry.opening("../elsewhere"));
+
+        // a facility directory that was moved keeps its files in the directory it is opened from
+        Files.move(root.resolve("south"), root.resolve("moved"));
+        ResidentHealthCareHome moved = new FacilityRegistry(root).opening("moved");
+        assertEquals(root.resolve("moved"), moved.getStorageDirectory());
+        assertEquals(root.resolve("moved").resolve("actions.log"), moved.getAuditTrailLog().getLogFile());
+        assertEquals(root.resolve("moved").resolve("roster_history.dat"), moved.getRosterHistoryStore().getPath());
+        assertFalse(Files.exists(root.resolve("south")));
+    }
+
+    @Test
+    void batchIsValidatedAsAWholeAndAppliedWithOneAuditBatchAndSave(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        Resident first = new Resident(home.getIdAllocator(), "A", Gender.FEMALE, false, null);
+        Resident second = new Resident(home.getIdAllocator(), "B", Gender.FEMALE, false, null);
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        int entriesBefore = home.getAuditTrailLog().getEntries().size();
+        home.persistingChanges();
+        // the audit trail and the persister are called once per delivered list
+        List<Integer> deliveries = new CopyOnWriteArrayList<>();
+        home.getEventBus().subscribing(events -> deliveries.add(events.size()));
+
+        // the second admit targets the bed the first one fills, so nothing is applied
+        BatchResult rejected = home.applyingBatch(manager, List.of(
+                BedOperation.admitting("W1-R101-B1", first), BedOperation.admitting("W1-R101-B1", second)));
+        assertFalse(rejected.isApplied());
+        assertEquals(BatchResult.Status.NOT_APPLIED, rejected.items().get(0).status());
+        assertEquals(1, rejected.rejected().size());
+        assertTrue(home.findBed("W1-R101-B1").isVacant());
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertFalse(Files.exists(dir.resolve("healthCareSystem.dat")));
+
+        assertTrue(home.applyingBatch(manager, List.of(
+                BedOperation.admitting("W1-R101-B1", first), BedOperation.admitting("W2-R201-B1", second))).isApplied());
+        // later operations see the beds earlier ones of the same batch vacated or filled
+        assertTrue(home.applyingBatch(nurse, List.of(
+                BedOperation.moving("W1-R101-B1", "W1-R102-B1"), BedOperation.moving("W2-R201-B1", "W1-R101-B1"))).isApplied());
+        assertEquals(second, home.getResidentInBed("W1-R101-B1"));
+        assertEquals(first, home.getResidentInBed("W1-R102-B1"));
+        assertFalse(home.applyingBatch(nurse, List.of(BedOperation.discharging("W1-R101-B1"))).isApplied());
+
+        assertTrue(home.applyingBatch(manager, List.of(
+                BedOperation.discharging("W1-R101-B1"), BedOperation.discharging("W1-R102-B1"))).isApplied());
+        assertTrue(home.getAllResidents().isEmpty());
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertEquals(6, home.getAuditTrailLog().getEntries().size() - entriesBefore);
+        assertEquals(List.of(2, 2, 2), deliveries);
+        assertTrue(Files.exists(dir.resolve("healthCareSystem.dat")));
+        assertTrue(Files.exists(dir.resolve("archive_" + first.getId() + ".dat")));
+    }
+
+    @Test
+    void staleVersionsConflictAndRetryRereads(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Bed bed = home.findBed("W1-R101-B1");
+        long readByFirstClient = bed.getVersion();
+        long readBySecondClient = bed.getVersion();
+
+        Resident resident = new Resident("A", Gender.FEMALE, false, null);
+        home.assigningResidentToBed(manager, "W1-R101-B1", resident, readByFirstClient);
+        // the second client still shows the bed as vacant
+        VersionConflictException conflict = assertThrows(VersionConflictException.class, () -> home.assigningResidentToBed(
+                manager, "W1-R101-B1", new Resident("B", Gender.FEMALE, false, null), readBySecondClient));
+        assertEquals("W1-R101-B1", conflict.getEntityId());
+        assertEquals(resident, home.getResidentInBed("W1-R101-B1"));
+        assertThrows(VersionConflictException.class, () -> home.dischargingResident(manager, "W1-R101-B1", readBySecondClient));
+
+        // a retry reads the version again, the first attempt loses to a concurrent change
+        int[] attempts = {0};
+        OptimisticRetry.retrying(() -> {
+            long version = bed.getVersion();
+            if (attempts[0]++ == 0) home.settingBedIsolation("W1-R101-B1", true);
+            home.dischargingResident(manager, "W1-R101-B1", version);
+        });
+        assertEquals(2, attempts[0]);
+        assertTrue(bed.isVacant());
+
+        Prescription prescription = new Prescription("D", "Aspirin", "1", List.of("08:00"));
+        long shown = prescription.getVersion();
+        prescription.administer("N1", shown);
+        assertThrows(VersionConflictException.class, () -> prescription.administer("N2", shown));
+        assertEquals(1, prescription.getAdministrations().size());
+    }
+
+    @Test
+    void residentSearchFindsPrefixesTyposAndFollowsMovesAndDischarges(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        Resident john = new Resident(home.getIdAllocator(), "John Smith", Gender.MALE, false, null);
+        Resident joan = new Resident(home.getIdAllocator(), "Joan Smythe", Gender.FEMALE, false, null);
+        home.assigningResidentToBed(manager, "W1-R101-B1", john);
+        home.assigningResidentToBed(manager, "W2-R201-B1", joan);
+
+        assertEquals(List.of("Joan Smythe", "John Smith"), names(home.searchResidents("jo", 10, false)));
+        assertEquals(List.of("John Smith"), names(home.searchResidents("smi jo", 10, false)));
+        assertEquals(List.of("Joan Smythe"), names(home.searchResidents(joan.getId(), 10, false)));
+        assertEquals(List.of("John Smith"), names(home.searchResidents("w1-r101", 10, false)));
+        // a typo still finds the closest name
+        ResidentSearchIndex.Match typo = home.searchResidents("jhon", 10, false).get(0);
+        assertEquals("John Smith", typo.name());
+        assertTrue(typo.distance() > 0);
+
+        home.movingResidentToNewBed(nurse, "W1-R101-B1", "W1-R102-B1");
+        assertEquals("W1-R102-B1", home.searchResidents("john", 1, false).get(0).bedId());
+        assertTrue(home.searchResidents("w1-r101", 10, false).isEmpty());
+
+        home.dischargingResident(manager, "W1-R102-B1");
+        assertEquals(List.of("Joan Smythe"), names(home.searchResidents("jo", 10, false)));
+        assertTrue(home.searchResidents("john", 10, true).get(0).archived());
+
+        // a fresh home of the same storage directory finds the discharged resident through the archive files
+        ResidentHealthCareHome restarted = homeIn(dir);
+        assertTrue(restarted.searchResidents("john", 10, true).isEmpty());
+        assertEquals(1, restarted.indexingArchive());
+        assertEquals(john.getId(), restarted.searchResidents("john", 10, true).get(0).residentId());
+    }
+
+    @Test
+    void residentBedIndexFollowsMovesAndDrivesIdBasedOperations(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        Resident resident = new Resident("A", Gender.FEMALE, false, "W2-R201-B1");
+        home.assigningResidentToBed(manager, "W1-R101-B1", resident);
+        assertEquals("W1-R101-B1", resident.getBedId());
+        assertEquals("W1-R101-B1", home.findBedOfResident(resident.getId()).getId());
+
+        home.movingResidentToNewBed(nurse, "W1-R101-B1", "W1-R102-B1");
+        assertEquals("W1-R102-B1", resident.getBedId());
+        home.movingResidentById(nurse, resident.getId(), "W2-R201-B1");
+        assertEquals("W2-R201-B1", home.findBedOfResident(resident.getId()).getId());
+        assertTrue(home.findBed("W1-R102-B1").isVacant());
+
+        home.dischargingResidentById(manager, resident.getId());
+        assertNull(home.findBedOfResident(resident.getId()));
+        assertTrue(home.findBed("W2-R201-B1").isVacant());
+        assertThrows(ResidentNotFoundException.class, () -> home.dischargingResidentById(manager, resident.getId()));
+    }
+
+    @Test
+    void medicationRoundListsDueAndOverdueDosesByRoom(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        Doctor doctor = new Doctor("D", "d", "pwd");
+        LocalDateTime now = LocalDateTime.now();
+        home.assigningShift(manager, nurse, new Shift(now.minusHours(1), now.plusHours(4)));
+        home.assigningShift(manager, doctor, new Shift(now.minusHours(1), now.plusHours(4)));
+        Resident first = new Resident("A", Gender.FEMALE, false, null);
+        Resident second = new Resident("B", Gender.FEMALE, false, null);
+        home.assigningResidentToBed(manager, "W1-R102-B1", second);
+        home.assigningResidentToBed(manager, "W1-R101-B1", first);
+        String soon = now.plusMinutes(30).toLocalTime().truncatedTo(java.time.temporal.ChronoUnit.MINUTES).toString();
+        Prescription forSecond = new Prescription(doctor.getId(), "Aspirin", "1", List.of(soon));
+        Prescription forFirst = new Prescription(doctor.getId(), "Insulin", "2", List.of(soon, "Unknown"));
+        home.writingPrescription(doctor, "W1-R102-B1", List.of(forSecond));
+        home.writingPrescription(doctor, "W1-R101-B1", List.of(forFirst));
+
+        List<MedicationRoundIndex.DueDose> round = home.planningMedicationRound("W1", Duration.ofHours(1));
+        assertEquals(List.of(forFirst.getId(), forSecond.getId()), round.stream().map(MedicationRoundIndex.DueDose::prescriptionId).toList());
+        assertFalse(round.get(0).overdue());
+        assertTrue(home.planningMedicationRound("W2", Duration.ofHours(1)).isEmpty());
+        // two hours on, the doses not given are overdue
+        assertTrue(home.planningMedicationRound("W1", now.plusHours(2), Duration.ofHours(12), Duration.ofHours(1)).get(0).overdue());
+
+        home.administeringDose(nurse, forFirst.getId(), forFirst.getVersion());
+        assertEquals(List.of(forSecond.getId()), home.planningMedicationRound("W1", Duration.ofHours(1)).stream()
+                .map(MedicationRoundIndex.DueDose::prescriptionId).toList());
+
+        home.movingResidentToNewBed(nurse, "W1-R102-B1", "W2-R201-B1");
+        assertTrue(home.planningMedicationRound("W1", Duration.ofHours(1)).isEmpty());
+        assertEquals("W2-R201-B1", home.planningMedicationRound("W2", Duration.ofHours(1)).get(0).bedId());
+        home.dischargingResident(manager, "W2-R201-B1");
+        assertTrue(home.planningMedicationRound("W2", Duration.ofHours(1)).isEmpty());
+        assertThrows(ValidationFailedException.class, () -> home.administeringDose(nurse, forSecond.getId(), ResidentHealthCareHome.ANY_VERSION));
+    }
+
+    @Test
+    void roundIsValidatedAgainstTheScheduleAndRecordedAllOrNothing(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        home.persistingChanges();
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        Doctor doctor = new Doctor(home.getIdAllocator(), "D", "d", "pwd");
+        LocalDateTime now = LocalDateTime.now();
+        home.assigningShift(manager, nurse, new Shift(now.minusHours(1), now.plusHours(4)));
+        home.assigningShift(manager, doctor, new Shift(now.minusHours(1), now.plusHours(4)));
+        home.assigningResidentToBed(manager, "W1-R101-B1", new Resident(home.getIdAllocator(), "A", Gender.FEMALE, false, null));
+        home.assigningResidentToBed(manager, "W2-R201-B1", new Resident(home.getIdAllocator(), "B", Gender.MALE, false, null));
+        String soon = now.plusMinutes(30).toLocalTime().truncatedTo(java.time.temporal.ChronoUnit.MINUTES).toString();
+        Prescription aspirin = new Prescription(home.getIdAllocator(), doctor.getId(), "Aspirin", "1", List.of(soon));
+        Prescription insulin = new Prescription(home.getIdAllocator(), doctor.getId(), "Insulin", "2", List.of(soon));
+        home.writingPrescription(doctor, "W1-R101-B1", List.of(aspirin));
+        home.writingPrescription(doctor, "W2-R201-B1", List.of(insulin));
+        LocalDateTime given = LocalDateTime.now();
+
+        RoundResult wrongDose = home.administeringRound(nurse, List.of(
+                DoseConfirmation.confirming(aspirin.getId(), "1", given),
+                DoseConfirmation.confirming(insulin.getId(), "5", given)));
+        assertFalse(wrongDose.isApplied());
+        assertEquals(List.of(BatchResult.Status.NOT_APPLIED, BatchResult.Status.REJECTED),
+                wrongDose.items().stream().map(RoundResult.Item::status).toList());
+        assertTrue(aspirin.getAdministrations().isEmpty());
+
+        RoundResult twice = home.administeringRound(nurse, List.of(
+                DoseConfirmation.confirming(aspirin.getId(), "1", given),
+                DoseConfirmation.confirming(aspirin.getId(), "1", given)));
+        assertEquals(1, twice.rejected().size());
+
+        RoundResult round = home.administeringRound(nurse, List.of(
+                new DoseConfirmation(aspirin.getId(), "1", given, aspirin.getVersion()),
+                DoseConfirmation.confirming(insulin.getId(), "2", given)));
+        assertTrue(round.isApplied());
+        assertNotNull(round.items().get(0).dueAt());
+        assertEquals(1, aspirin.getAdministrations().size());
+        assertEquals(given, insulin.getAdministrations().get(0).getAt());
+        assertTrue(home.planningMedicationRound("W1", Duration.ofHours(1)).isEmpty());
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertTrue(Files.exists(dir.resolve("healthCareSystem.dat")));
+
+        // the dose is no longer outstanding
+        assertFalse(home.administeringRound(nurse, List.of(DoseConfirmation.confirming(aspirin.getId(), "1", given))).isApplied());
+    }
+
+    @Test
+    void roundRefusesTwoDosesWithinTheMinimumInterval(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        Doctor doctor = new Doctor(home.getIdAllocator(), "D", "d", "pwd");
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        home.assigningShift(manager, nurse, new Shift(now.minusHours(1), now.plusHours(4)));
+        home.assigningShift(manager, doctor, new Shift(now.minusHours(1), now.plusHours(4)));
+        home.assigningResidentToBed(manager, "W1-R101-B1", new Resident(home.getIdAllocator(), "A", Gender.FEMALE, false, null));
+        Prescription aspirin = new Prescription(home.getIdAllocator(), doctor.getId(), "Aspirin", "1",
+                List.of(now.plusMinutes(10).toLocalTime().toString(), now.plusMinutes(50).toLocalTime().toString()));
+        home.writingPrescription(doctor, "W1-R101-B1", List.of(aspirin));
+
+        // two due times, but the doses are confirmed 15 minutes apart
+        RoundResult round = home.administeringRound(nurse, List.of(
+                DoseConfirmation.confirming(aspirin.getId(), "1", now.minusMinutes(20)),
+                DoseConfirmation.confirming(aspirin.getId(), "1", now.minusMinutes(5))));
+        assertFalse(round.isApplied());
+        assertEquals(BatchResult.Status.REJECTED, round.items().get(1).status());
+        assertTrue(aspirin.getAdministrations().isEmpty());
+    }
+
+    @Test
+    void administrationHistoryIsOrderedQueryableAndRefusesDoubleDoses(@TempDir Path dir) throws Exception {
+        Prescription prescription = new Prescription("D", "Aspirin", "1", List.of("08:00", "20:00"));
+        LocalDateTime morning = LocalDate.now().minusDays(1).atTime(8, 5, 30, 123_456_789);
+        prescription.administer("N1", prescription.getVersion(), morning.plusHours(12));
+        prescription.administer("N2", prescription.getVersion(), morning);
+        assertEquals(morning.plusHours(12), prescription.lastAdministeredAt());
+        assertEquals(List.of("N2", "N1"), prescription.getAdministrations().stream().map(m -> m.getNurseId()).toList());
+        assertEquals(morning, prescription.administrationsBetween(morning, morning.plusHours(1)).get(0).getAt());
+        assertTrue(prescription.administrationsBetween(morning.plusHours(1), morning.plusHours(12)).isEmpty());
+
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes)) {
+            out.writeObject(prescription);
+        }
+        try (java.io.ObjectInputStream in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+            Prescription read = (Prescription) in.readObject();
+            assertEquals(prescription.getAdministrations(), read.getAdministrations());
+            assertEquals("1", read.getAdministrations().get(1).getDose());
+        }
+
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager("M", "mgr", "pwd");
+        Nurse nurse = new Nurse("N", "n", "pwd");
+        Doctor doctor = new Doctor("D", "d", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        home.assigningShift(manager, doctor, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        home.assigningResidentToBed(manager, "W1-R101-B1", new Resident("A", Gender.FEMALE, false, null));
+        Prescription asNeeded = new Prescription(doctor.getId(), "Paracetamol", "500mg", List.of());
+        home.writingPrescription(doctor, "W1-R101-B1", List.of(asNeeded));
+        home.administeringDose(nurse, asNeeded.getId(), ResidentHealthCareHome.ANY_VERSION);
+        assertThrows(ValidationFailedException.class, () -> home.administeringDose(nurse, asNeeded.getId(), ResidentHealthCareHome.ANY_VERSION));
+        assertEquals(1, asNeeded.getAdministrations().size());
+    }
+
+    @Test
+    void idAllocatorReservesBlocksAndRestoresFromTheSnapshotHeader(@TempDir Path dir) throws Exception {
+        IdAllocator ids = new IdAllocator();
+        ids.observing("STF-1234");
+        ids.observing("RES-12x");
+        assertEquals(1234, ids.highWaterMark(IdAllocator.STAFF));
+        assertEquals(0, ids.highWaterMark(IdAllocator.RESIDENT));
+
+        IdAllocator block = ids.reservingBlock(IdAllocator.RESIDENT, 2);
+        assertEquals("STF-1235", new Nurse(ids, "N", "n", "pwd").getId());
+        assertEquals("RES-003", new Resident(ids, "C", Gender.MALE, false, null).getId());
+        assertEquals("RES-001", new Resident(block, "A", Gender.MALE, false, null).getId());
+        assertEquals("RES-002", block.nextId(IdAllocator.RESIDENT));
+        assertThrows(IllegalStateException.class, () -> block.nextId(IdAllocator.RESIDENT));
+        assertEquals("PRE-001", block.nextId(IdAllocator.PRESCRIPTION));
+
+        java.util.Set<String> issued = java.util.concurrent.ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) issued.add(ids.nextId(IdAllocator.PRESCRIPTION));
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(4_000, issued.size());
+
+        ResidentHealthCareHome home = homeIn(dir);
+        home.getIdAllocator().reservingBlock(IdAllocator.RESIDENT, 50);
+        SerializingHandlerService.saveRecordsInFile(home);
+        // ids reserved but never stored are still not handed out again
+        ResidentHealthCareHome restored = SerializingHandlerService.readOrCreateFile(dir);
+        assertEquals("RES-051", restored.getIdAllocator().nextId(IdAllocator.RESIDENT));
+        // the snapshot is written beside the file and moved over it, nothing is left behind
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+
+        // a first format snapshot keeps the marks in the header and the home as a byte array
+        java.io.ByteArrayOutputStream body = new java.io.ByteArrayOutputStream();
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(body)) {
+            out.writeObject(home);
+        }
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(Files.newOutputStream(dir.resolve("healthCareSystem.dat")))) {
+            out.writeObject(new SnapshotHeader(1, LocalDateTime.now(), home.getIdAllocator().highWaterMarks()));
+            out.writeObject(body.toByteArray());
+        }
+        ResidentHealthCareHome firstFormat = SerializingHandlerService.readingSnapshot(dir.resolve("healthCareSystem.dat"));
+        assertEquals("RES-051", firstFormat.getIdAllocator().nextId(IdAllocator.RESIDENT));
+
+        // a snapshot holding only the home has its stored ids scanned
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(Files.newOutputStream(dir.resolve("healthCareSystem.dat")))) {
+            out.writeObject(home);
+        }
+        ResidentHealthCareHome legacy = SerializingHandlerService.readingSnapshot(dir.resolve("healthCareSystem.dat"));
+        assertEquals(home.getIdAllocator().highWaterMark(IdAllocator.STAFF), legacy.getIdAllocator().highWaterMark(IdAllocator.STAFF));
+        assertEquals(0, legacy.getIdAllocator().highWaterMark(IdAllocator.RESIDENT));
+    }
+
+    @Test
+    void eventsPublishedTogetherArriveAsOneListAfterTheirLanes() {
+        DomainEventBus bus = new DomainEventBus(4);
+        List<List<DomainEvent>> delivered = new CopyOnWriteArrayList<>();
+        bus.subscribing(delivered::add);
+        LocalDateTime now = LocalDateTime.now();
+        List<List<DomainEvent>> published = new ArrayList<>();
+        int sequence = 0;
+        for (int round = 0; round < 200; round++) {
+            for (int resident = 0; resident < 8; resident++, sequence++) {
+                bus.publishing(new DomainEvent.ResidentMoved("STF-001", now, "RES-" + resident, "B" + sequence, "B" + (sequence + 1)));
+            }
+            List<DomainEvent> batch = new ArrayList<>();
+            for (int resident = 0; resident < 8; resident++, sequence++) {
+                batch.add(new DomainEvent.ResidentMoved("STF-001", now, "RES-" + resident, "B" + sequence, "B" + (sequence + 1)));
+            }
+            bus.publishingAll(batch);
+            published.add(batch);
+        }
+        assertTrue(bus.flushing(Duration.ofSeconds(5)));
+        assertEquals(0, bus.pendingCount());
+        for (List<DomainEvent> batch : published) assertTrue(delivered.contains(batch));
+
+        // a resident's moves arrive in publish order, whether published alone or together
+        List<DomainEvent> received = delivered.stream().flatMap(List::stream).toList();
+        assertEquals(sequence, received.size());
+        for (int resident = 0; resident < 8; resident++) {
+            String residentId = "RES-" + resident;
+            List<Integer> moves = received.stream().filter(event -> event.aggregateId().equals(residentId))
+                    .map(event -> Integer.parseInt(((DomainEvent.ResidentMoved) event).fromBedId().substring(1))).toList();
+            for (int i = 1; i < moves.size(); i++) assertTrue(moves.get(i - 1) < moves.get(i));
+        }
+        bus.closing(Duration.ofSeconds(1));
+        // a closed bus delivers on the publishing thread
+        bus.publishingAll(published.get(0));
+        assertEquals(published.get(0), delivered.get(delivered.size() - 1));
+    }
+
+    @Test
+    void eventsOfOneAggregateArriveInOrderAndFeedTheAuditTrail(@TempDir Path dir) {
+        DomainEventBus bus = new DomainEventBus(2);
+        List<DomainEvent> received = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+        java.util.concurrent.atomic.AtomicInteger batches = new java.util.concurrent.atomic.AtomicInteger();
+        bus.subscribing(batch -> {
+            batches.incrementAndGet();
+            received.addAll(batch);
+        });
+        bus.subscribing(batch -> {
+            throw new IllegalStateException("failing subscriber");
+        });
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 1_000; i++) {
+            bus.publishing(new DomainEvent.ResidentMoved("STF-001", now, "RES-" + (i % 3), "B" + i, "B" + (i + 1)));
+        }
+        assertTrue(bus.flushing(Duration.ofSeconds(5)));
+        assertEquals(0, bus.pendingCount());
+        assertEquals(1_000, received.size());
+        assertTrue(batches.get() < 1_000);
+        for (int resident = 0; resident < 3; resident++) {
+            String residentId = "RES-" + resident;
+            List<String> moves = received.stream().filter(event -> event.aggregateId().equals(residentId))
+                    .map(event -> ((DomainEvent.ResidentMoved) event).fromBedId()).toList();
+            for (int i = 1; i < moves.size(); i++) {
+                assertTrue(Integer.parseInt(moves.get(i - 1).substring(1)) < Integer.parseInt(moves.get(i).substring(1)));
+            }
+        }
+        bus.closing(Duration.ofSeconds(1));
+        // a closed bus delivers on the publishing thread
+        bus.publishing(new DomainEvent.ResidentDischarged("STF-001", now, "RES-9", "B9"));
+        assertEquals(1_001, received.size());
+
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        int entriesBefore = home.getAuditTrailLog().getEntries().size();
+        home.assigningResidentToBed(manager, "W1-R101-B1", new Resident(home.getIdAllocator(), "A", Gender.FEMALE, false, null));
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertEquals(1, home.getAuditTrailLog().getEntries().size() - entriesBefore);
+        assertFalse(Files.exists(dir.resolve("healthCareSystem.dat")));
+    }
+
+    @Test
+    void boardsReplaceOnlyTheRowsOfTheBedsAnEventTouched(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        Doctor doctor = new Doctor(home.getIdAllocator(), "D", "d", "pwd");
+        LocalDateTime now = LocalDateTime.now();
+        home.assigningShift(manager, nurse, new Shift(now.minusHours(1), now.plusHours(4)));
+        home.assigningShift(manager, doctor, new Shift(now.minusHours(1), now.plusHours(4)));
+        BedBoard nurses = home.boardFor(Role.NURSE);
+        assertSame(nurses, home.boardFor(Role.NURSE));
+        assertEquals(home.getBedList().size(), nurses.rows().size());
+        assertEquals("W1-R101-B1", nurses.rows().get(0).bedId());
+        List<List<BedSummary>> changes = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+        nurses.subscribing(changes::add);
+
+        Resident resident = new Resident(home.getIdAllocator(), "Ann", Gender.FEMALE, false, null);
+        home.assigningResidentToBed(manager, "W1-R101-B1", resident);
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertEquals(1, changes.size());
+        assertEquals("Ann", changes.get(0).get(0).residentName());
+        assertEquals(home.findBed("W1-R101-B1").getVersion(), nurses.row("W1-R101-B1").bedVersion());
+
+        String soon = now.plusMinutes(30).toLocalTime().truncatedTo(java.time.temporal.ChronoUnit.MINUTES).toString();
+        Prescription aspirin = new Prescription(home.getIdAllocator(), doctor.getId(), "Aspirin", "1", List.of(soon));
+        home.writingPrescription(doctor, "W1-R101-B1", List.of(aspirin));
+        home.movingResidentToNewBed(nurse, "W1-R101-B1", "W1-R102-B1");
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        BedSummary moved = nurses.row("W1-R102-B1");
+        assertEquals(resident.getId(), moved.residentId());
+        assertEquals(List.of(BedSummary.describing(aspirin)), moved.prescriptions());
+        assertEquals(aspirin.getId(), moved.nextDue().prescriptionId());
+        assertTrue(nurses.row("W1-R101-B1").isVacant());
+        assertTrue(changes.stream().flatMap(List::stream).allMatch(summary -> summary.bedId().startsWith("W1-R10")));
+        // only the nurse board looks up doses
+        assertNull(home.boardFor(Role.DOCTOR).row("W1-R102-B1").nextDue());
+
+        home.administeringDose(nurse, aspirin.getId(), ResidentHealthCareHome.ANY_VERSION);
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertTrue(nurses.row("W1-R102-B1").nextDue().dueAt().isAfter(now.plusHours(12)));
+
+        // a new bed changes the layout the board follows, dashboards showing the old one read every row again
+        FacilityTopology shown = nurses.getTopology();
+        home.registeringBed(new Bed("W3-R301-B1"));
+        assertNotSame(shown, nurses.getTopology());
+        assertEquals(home.getBedList().size(), nurses.rows().size());
+        assertTrue(nurses.row("W3-R301-B1").isVacant());
+    }
+
+    @Test
+    void snapshotOfTheFirstReleaseLoadsWithItsResidentsAndRoster(@TempDir Path dir) throws Exception {
+        // written by the classes of the first release: Ann in W1-R101-B1 with one dose of Aspirin given,
+        // Bob moved to W2-R202-B1, a doctor and a nurse on a shift
+        try (var snapshot = getClass().getResourceAsStream("/snapshots/baseline-healthCareSystem.dat")) {
+            Files.copy(snapshot, dir.resolve("healthCareSystem.dat"));
+        }
+        ResidentHealthCareHome home = SerializingHandlerService.readOrCreateFile(dir);
+
+        Resident ann = home.getResidentInBed("W1-R101-B1");
+        assertEquals("Ann", ann.getName());
+        assertEquals("Bob", home.getResidentInBed("W2-R202-B1").getName());
+        assertEquals("W2-R202-B1", home.findBedOfResident(home.getResidentInBed("W2-R202-B1").getId()).getId());
+        Prescription aspirin = ann.getPrescriptionList().get(0);
+        assertEquals("Aspirin", aspirin.getMedicine());
+        assertEquals(1, aspirin.getAdministrations().size());
+        assertNotNull(aspirin.lastAdministeredAt());
+        assertEquals(3, home.getStaffList().size());
+        assertEquals(2, home.getScheduler().staffIds().size());
+        assertEquals(1, home.searchResidents("ann", 5, false).size());
+        // the first release kept no retention policy or roster history, both start from the defaults
+        assertEquals(RosterRetentionPolicy.DEFAULT, home.getRosterRetentionPolicy());
+        assertEquals(dir.resolve("roster_history.dat"), home.getRosterHistoryStore().getPath());
+        // ids continue after the stored ones
+        assertEquals("RES-003", home.getIdAllocator().nextId(IdAllocator.RESIDENT));
+
+        SerializingHandlerService.saveRecordsInFile(home);
+        ResidentHealthCareHome saved = SerializingHandlerService.readOrCreateFile(dir);
+        assertEquals("Ann", saved.getResidentInBed("W1-R101-B1").getName());
+        assertEquals(1, saved.getResidentInBed("W1-R101-B1").getPrescriptionList().get(0).getAdministrations().size());
+    }
+
+    @Test
+    void savedClassesKeepTheSerialVersionUidsOfTheFirstRelease() {
+        // a changed uid makes every snapshot written before it unreadable
+        assertSerialVersionUid(-4171047077339908156L, Scheduler.class);
+        assertSerialVersionUid(-4009741878954663614L, AuditTrailLog.class);
+        assertSerialVersionUid(3614600404123879789L, Staff.class);
+        assertSerialVersionUid(-3653493348607002026L, Doctor.class);
+        assertSerialVersionUid(-1026879788778200727L, Manager.class);
+        assertSerialVersionUid(-4539708158423390532L, Nurse.class);
+        assertSerialVersionUid(11234564680351373L, Prescription.class);
+        assertSerialVersionUid(4674136349861158106L, Medication.class);
+        assertSerialVersionUid(-3852685023786221936L, Bed.class);
+        assertSerialVersionUid(6001580583645019378L, Resident.class);
+    }
+
+    @Test
+    void snapshotThatCannotBeReadIsLeftAlone(@TempDir Path dir) throws Exception {
+        byte[] damaged = {(byte) 0xAC, (byte) 0xED, 0, 5, 1, 2, 3};
+        Files.write(dir.resolve("healthCareSystem.dat"), damaged);
+        assertThrows(IllegalStateException.class, () -> SerializingHandlerService.readOrCreateFile(dir));
+        assertArrayEquals(damaged, Files.readAllBytes(dir.resolve("healthCareSystem.dat")));
+    }
+
+    @Test
+    void reminderPlannerReplansShiftsWhenTheRosterChanges(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        Nurse relief = new Nurse(home.getIdAllocator(), "R", "r", "pwd");
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        home.assigningShift(manager, nurse, new Shift(now.minusHours(1), now.plusHours(2)));
+        NotificationEngine engine = new NotificationEngine();
+        List<Reminder> delivered = new CopyOnWriteArrayList<>();
+        engine.subscribing(delivered::addAll);
+        ReminderPlanner planner = new ReminderPlanner(home, engine, Duration.ofHours(6), Duration.ofMinutes(15), () -> now);
+        planner.planning();
+        planner.following();
+
+        List<Reminder> before = planner.pendingFor(nurse.getId());
+        assertEquals(1, before.size());
+        assertTrue(before.get(0).message().endsWith("rostered after it"));
+
+        // relief arriving at the end of the shift replaces the uncovered end of shift reminder
+        home.assigningShift(manager, relief, new Shift(now.plusHours(2), now.plusHours(5)));
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        List<Reminder> after = planner.pendingFor(nurse.getId());
+        assertEquals(1, after.size());
+        assertFalse(after.get(0).message().endsWith("rostered after it"));
+        assertEquals(2, planner.pendingFor(relief.getId()).size());
+
+        engine.deliveringDue(now.plusHours(6));
+        assertEquals(List.of(after.get(0)), delivered.stream()
+                .filter(reminder -> reminder.subjectId().equals(nurse.getId())).toList());
+
+        // delivered reminders go to the audit trail
+        planner.auditing(after);
+        assertTrue(home.getAuditTrailLog().getEntries().stream()
+                .anyMatch(entry -> entry.action().equals("REMINDER_SHIFT_END") && entry.message().equals(after.get(0).message())));
+        planner.stop();
+    }
+
+    @Test
+    void reminderPlannerRollsTheWindowAndCancelsDosesOfDischargedResidents(@TempDir Path dir) {
+        ResidentHealthCareHome home = homeIn(dir);
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        Doctor doctor = new Doctor(home.getIdAllocator(), "D", "d", "pwd");
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        home.assigningShift(manager, nurse, new Shift(now.minusHours(1), now.plusHours(4)));
+        home.assigningShift(manager, doctor, new Shift(now.minusHours(1), now.plusHours(4)));
+        NotificationEngine engine = new NotificationEngine();
+        List<Reminder> delivered = new CopyOnWriteArrayList<>();
+        engine.subscribing(delivered::addAll);
+        AtomicReference<LocalDateTime> clock = new AtomicReference<>(now);
+        ReminderPlanner planner = new ReminderPlanner(home, engine, Duration.ofHours(6), Duration.ofMinutes(15), clock::get);
+        planner.planning();
+        planner.following();
+
+        // admitted and prescribed after planning, picked up from the events
+        Resident resident = new Resident(home.getIdAllocator(), "Ann", Gender.FEMALE, false, null);
+        home.assigningResidentToBed(manager, "W1-R101-B1", resident);
+        String dueAt = now.plusHours(2).toLocalTime().toString();
+        Prescription prescription = new Prescription(home.getIdAllocator(), doctor.getId(), "Aspirin", "1", List.of(dueAt));
+        home.writingPrescription(doctor, "W1-R101-B1", List.of(prescription));
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertEquals(List.of(now.plusHours(2)), planner.pendingFor(prescription.getId()).stream().map(Reminder::dueAt).toList());
+
+        // a reminder that fired is not scheduled again by the next planning
+        engine.deliveringDue(now.plusHours(3));
+        planner.planning();
+        assertTrue(planner.pendingFor(prescription.getId()).isEmpty());
+        engine.deliveringDue(now.plusHours(3));
+        assertEquals(1, delivered.stream().filter(reminder -> reminder.type() == Reminder.Type.DOSE_DUE).count());
+
+        // the window rolls on to the next day's dose
+        clock.set(now.plusHours(20));
+        planner.planning();
+        assertEquals(List.of(now.plusHours(26)), planner.pendingFor(prescription.getId()).stream().map(Reminder::dueAt).toList());
+
+        home.dischargingResident(manager, "W1-R101-B1");
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        assertTrue(planner.pendingFor(prescription.getId()).isEmpty());
+        engine.deliveringDue(now.plusHours(30));
+        assertEquals(1, delivered.stream().filter(reminder -> reminder.type() == Reminder.Type.DOSE_DUE).count());
+        planner.stop();
+    }
+
+    private static void assertSerialVersionUid(long expected, Class<?> type) {
+        assertEquals(expected, java.io.ObjectStreamClass.lookup(type).getSerialVersionUID(), type.getName());
+    }
+
+    private static List<String> names(List<ResidentSearchIndex.Match> matches) {
+        return matches.stream().map(ResidentSearchIndex.Match::name).toList();
+    }
+
+    private ResidentHealthCareHome homeIn(Path dir) {
+        ResidentHealthCareHome home = new ResidentHealthCareHome(dir, FacilityLayout.configured());
+        homes.add(home);
+        return home;
+    }
+}
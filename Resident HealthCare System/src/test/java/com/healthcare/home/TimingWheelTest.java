@@ -0,0 +1,50 @@
+package com.healthcare.home;
+
+import com.healthcare.home.scheduler.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+    @Test
+    void firesEveryPendingTimerOnTimeAndSkipsCancelled() {
+        long start = 1_700_000_000_000L;
+        TimingWheel<Long> wheel = new TimingWheel<>(1000, start);
+        Random random = new Random(42);
+        List<TimingWheel.Timer<Long>> timers = new ArrayList<>();
+
+        // 200k reminders spread over ten days, a few far beyond the wheel span
+        for (int i = 0; i < 200_000; i++) {
+            long due = start + (long) (random.nextDouble() * 10 * 24 * 3600 * 1000L);
+            timers.add(wheel.scheduling(due, due));
+        }
+        long farDue = start + 400L * 24 * 3600 * 1000L;
+        wheel.scheduling(farDue, farDue);
+
+        int cancelled = 0;
+        for (int i = 0; i < timers.size(); i += 2) {
+            assertTrue(timers.get(i).cancel());
+            cancelled++;
+        }
+        assertFalse(timers.get(0).cancel());
+        assertEquals(200_001 - cancelled, wheel.size());
+
+        int fired = 0;
+        for (long now = start; now <= start + 11L * 24 * 3600 * 1000L; now += 37 * 60 * 1000L) {
+            for (Long due : wheel.advanceTo(now)) {
+                assertTrue(due <= now, "fired early");
+                assertTrue(now - due < 37 * 60 * 1000L + 1000, "fired late");
+                fired++;
+            }
+        }
+        assertEquals(200_000 - cancelled, fired);
+
+        List<Long> last = wheel.advanceTo(farDue + 1000);
+        assertEquals(List.of(farDue), last);
+        assertEquals(0, wheel.size());
+    }
+}
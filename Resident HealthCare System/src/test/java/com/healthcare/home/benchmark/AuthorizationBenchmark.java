@@ -0,0 +1,68 @@
+package com.healthcare.home.benchmark;
+
+import com.healthcare.home.auth.AuthAccess;
+import com.healthcare.home.auth.AuthService;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.scheduler.Scheduler;
+import com.healthcare.home.staff.Manager;
+import com.healthcare.home.staff.Nurse;
+import com.healthcare.home.staff.Staff;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+
+/**
+ * AuthorizationBenchmark compares the former reflective authorization with the permission table check
+ */
+public class AuthorizationBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = 200_000;
+        Scheduler scheduler = new Scheduler();
+        Staff manager = new Manager("Manager", "manager", "pwd");
+        Staff nurse = new Nurse("Nurse", "nurse", "pwd");
+        scheduler.assigningShiftToStaff(nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(7)));
+
+        double legacy = BenchmarkSupport.measuring("reflective authorizeOrThrow (before)", iterations, () -> {
+            legacyAuthorizeOrThrow(nurse, AuthAccess.MOVE_RESIDENT);
+            legacyAuthorizeOrThrow(manager, AuthAccess.DISCHARGE_RESIDENT);
+            return 1;
+        });
+        double table = BenchmarkSupport.measuring("permission table authorizeOrThrow (after)", iterations, () -> {
+            AuthService.authorizeOrThrow(nurse, AuthAccess.MOVE_RESIDENT, scheduler);
+            AuthService.authorizeOrThrow(manager, AuthAccess.DISCHARGE_RESIDENT, scheduler);
+            return 1;
+        });
+        System.out.printf("speed-up x%.1f%n", legacy / table);
+    }
+
+    /**
+     * legacyAuthorizeOrThrow reproduces the previous implementation: an || chain and two reflective
+     * lookups that throw NoSuchMethodException on every call
+     *
+     * @param staff
+     * @param access
+     */
+    private static void legacyAuthorizeOrThrow(Staff staff, AuthAccess access) {
+        boolean allowed = switch (staff.getRole()) {
+            case MANAGER -> access == AuthAccess.ADD_STAFF || access == AuthAccess.UPDATE_STAFF ||
+                    access == AuthAccess.VIEW_RESIDENT || access == AuthAccess.ADD_RESIDENT ||
+                    access == AuthAccess.DISCHARGE_RESIDENT || access == AuthAccess.SHIFT_ASSIGNMENT;
+            case DOCTOR -> access == AuthAccess.VIEW_RESIDENT || access == AuthAccess.WRITE_PRESCRIPTION;
+            case NURSE -> access == AuthAccess.VIEW_RESIDENT || access == AuthAccess.MOVE_RESIDENT ||
+                    access == AuthAccess.ADMINISTER_MEDICATION || access == AuthAccess.UPDATE_PRESCRIPTION;
+        };
+        if (!allowed) throw new SecurityException("Not authorized for action: " + access);
+        try {
+            Method method = staff.getClass().getMethod("isRosteredAt", LocalDateTime.class);
+            method.invoke(staff, LocalDateTime.now());
+            return;
+        } catch (ReflectiveOperationException ignored) {
+        }
+        try {
+            Method method = staff.getClass().getMethod("isRosteredNow");
+            method.invoke(staff);
+        } catch (ReflectiveOperationException ignored) {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.healthcare.home.benchmark;
+
+import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.entities.Bed;
+import com.healthcare.home.entities.Gender;
+import com.healthcare.home.entities.Prescription;
+import com.healthcare.home.entities.Resident;
+import com.healthcare.home.entities.Role;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.staff.Doctor;
+import com.healthcare.home.staff.Manager;
+import com.healthcare.home.staff.Nurse;
+import com.healthcare.home.views.BedBoard;
+import com.healthcare.home.views.BedSummary;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BedBoardBenchmark moves a resident between two beds of a 2,000 bed home with every other bed occupied, then
+ * brings a nurse dashboard up to date: once rebuilding every row the way refreshBeds did, once through the
+ * nurse board, which re-reads the two beds of the move event
+ */
+public class BedBoardBenchmark {
+
+    public static void main(String[] args) {
+        ResidentHealthCareHome home = new ResidentHealthCareHome();
+        List<Bed> extra = new ArrayList<>();
+        for (int i = home.getBedList().size(); i < 2_000; i++) {
+            int n = extra.size();
+            extra.add(new Bed("W" + (n / 500 + 3) + "-R" + (n / 4 + 1) + "-B" + (n % 4 + 1)));
+        }
+        home.registeringBeds(extra);
+
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        Doctor doctor = new Doctor(home.getIdAllocator(), "D", "d", "pwd");
+        Shift shift = new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(8));
+        home.assigningShift(manager, nurse, shift);
+        home.assigningShift(manager, doctor, shift);
+        List<String> bedIds = new ArrayList<>(home.getTopology().bedIds());
+        for (int i = 0; i < bedIds.size(); i += 2) {
+            Resident resident = new Resident(home.getIdAllocator(), "Resident " + i, Gender.FEMALE, false, null);
+            home.assigningResidentToBed(manager, bedIds.get(i), resident);
+            home.writingPrescription(doctor, bedIds.get(i), List.of(
+                    new Prescription(home.getIdAllocator(), doctor.getId(), "Aspirin", "1", List.of("Morning", "Evening")),
+                    new Prescription(home.getIdAllocator(), doctor.getId(), "Insulin", "2", List.of("08:00"))));
+        }
+        BedBoard board = home.boardFor(Role.NURSE);
+        home.getEventBus().flushing(Duration.ofSeconds(30));
+        String residentId = home.getResidentInBed(bedIds.get(0)).getId();
+        String[] targets = {bedIds.get(1), bedIds.get(0)};
+        int[] move = {0};
+
+        double rebuilding = BenchmarkSupport.measuring("move, rebuild every row (before)", 200, () -> {
+            home.movingResidentById(nurse, residentId, targets[move[0]++ % 2]);
+            List<BedSummary> rows = new ArrayList<>();
+            for (Bed bed : home.getBedList().values()) {
+                Resident resident = bed.getResident();
+                if (resident == null) {
+                    rows.add(BedSummary.vacant(bed.getId(), bed.getVersion()));
+                    continue;
+                }
+                rows.add(new BedSummary(bed.getId(), bed.getVersion(), resident.getId(), resident.getName(), resident.getGender(),
+                        resident.getVersion(), resident.getPrescriptionList().stream().map(BedSummary::describing).toList(),
+                        home.nextDueDose(resident.getId(), LocalDateTime.now())));
+            }
+            return rows.size();
+        });
+        double following = BenchmarkSupport.measuring("move, nurse board follows the event (after)", 200, () -> {
+            home.movingResidentById(nurse, residentId, targets[move[0]++ % 2]);
+            home.getEventBus().flushing(Duration.ofSeconds(5));
+            return board.row(targets[0]).bedVersion();
+        });
+        System.out.printf("speed-up x%.1f%n", rebuilding / following);
+        home.getEventBus().closing(Duration.ofSeconds(5));
+    }
+}
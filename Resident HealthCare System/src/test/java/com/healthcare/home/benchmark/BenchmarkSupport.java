@@ -0,0 +1,36 @@
+package com.healthcare.home.benchmark;
+
+import java.util.function.LongSupplier;
+
+/**
+ * BenchmarkSupport is a tiny timing harness for the main-method benchmarks in this package.
+ * Run them after mvn test-compile with
+ * java -cp target/classes:target/test-classes com.healthcare.home.benchmark.ClassName
+ */
+final class BenchmarkSupport {
+    private static volatile long sink;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * measuring warms the operation up, then prints and returns the average nanoseconds per call
+     *
+     * @param label
+     * @param iterations
+     * @param operation returns a value that is consumed so the JIT cannot drop the work
+     * @return
+     */
+    static double measuring(String label, int iterations, LongSupplier operation) {
+        for (int i = 0; i < iterations; i++) sink += operation.getAsLong();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) sink += operation.getAsLong();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double nanosPerOp = (double) best / iterations;
+        System.out.printf("%-45s %12.1f ns/op%n", label, nanosPerOp);
+        return nanosPerOp;
+    }
+}
@@ -0,0 +1,46 @@
+package com.healthcare.home.benchmark;
+
+import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.entities.Bed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HomeViewBenchmark renders a bed table the way MainDashboard does, one getBedList().get per cell,
+ * once with the former Map.copyOf accessor and once with the read-only view
+ */
+public class HomeViewBenchmark {
+
+    public static void main(String[] args) {
+        for (int beds : new int[]{1_000, 5_000}) {
+            ResidentHealthCareHome home = new ResidentHealthCareHome();
+            // extra wards W3 onwards, 500 beds each, next to the built-in W1 and W2
+            List<Bed> extra = new ArrayList<>();
+            for (int i = home.getBedList().size(); i < beds; i++) {
+                int n = extra.size();
+                extra.add(new Bed("W" + (n / 500 + 3) + "-R" + (n / 4 + 1) + "-B" + (n % 4 + 1)));
+            }
+            home.registeringBeds(extra);
+            List<String> rows = new ArrayList<>(home.getBedList().keySet());
+
+            double copying = BenchmarkSupport.measuring("render " + beds + " beds, Map.copyOf (before)", 3, () -> {
+                long vacant = 0;
+                for (String bedId : rows) {
+                    Map<String, Bed> copy = Map.copyOf(home.getBedList());
+                    if (copy.get(bedId).isVacant()) vacant++;
+                }
+                return vacant;
+            });
+            double viewing = BenchmarkSupport.measuring("render " + beds + " beds, read-only view (after)", 200, () -> {
+                long vacant = 0;
+                for (String bedId : rows) {
+                    if (home.getBedList().get(bedId).isVacant()) vacant++;
+                }
+                return vacant;
+            });
+            System.out.printf("speed-up x%.1f%n", copying / viewing);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.healthcare.home.benchmark;
+
+import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.facility.FacilityLayout;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * LayoutStartupBenchmark measures parsing a large layout, creating a home from it,
+ * and re-applying a layout that differs in a single room
+ */
+public class LayoutStartupBenchmark {
+
+    public static void main(String[] args) {
+        // the home constructor hashes the default manager password, keep that out of the numbers
+        System.setProperty("healthcare.password.cost", "1");
+        for (int beds : new int[]{1_000, 10_000}) {
+            String layoutText = layoutOf(beds, false);
+            String changedText = layoutOf(beds, true);
+
+            BenchmarkSupport.measuring("parse " + beds + " bed layout", 20, () -> parsing(layoutText).size());
+            List<FacilityLayout.BedSpec> layout = parsing(layoutText);
+            BenchmarkSupport.measuring("create home with " + beds + " beds", 20,
+                    () -> new ResidentHealthCareHome(layout).getBedList().size());
+
+            List<FacilityLayout.BedSpec> changed = parsing(changedText);
+            ResidentHealthCareHome home = new ResidentHealthCareHome(layout);
+            BenchmarkSupport.measuring("re-apply " + beds + " bed layout, one room changed", 20, () -> {
+                home.applyingLayout(changed);
+                return home.applyingLayout(layout).updated().size();
+            });
+        }
+    }
+
+    /**
+     * layoutOf writes a layout of wards with 50 rooms of 4 beds, optionally turning the first room into isolation
+     *
+     * @param beds
+     * @param changed
+     * @return
+     */
+    private static String layoutOf(int beds, boolean changed) {
+        StringBuilder text = new StringBuilder();
+        for (int room = 0; room < beds / 4; room++) {
+            int ward = room / 50 + 1;
+            text.append('W').append(ward).append("-R").append(ward * 100 + room % 50).append(" beds=4");
+            if (changed && room == 0) text.append(" isolated");
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static List<FacilityLayout.BedSpec> parsing(String text) {
+        try {
+            return FacilityLayout.reading(new StringReader(text));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.healthcare.home.benchmark;
+
+import com.healthcare.home.entities.IdAllocator;
+import com.healthcare.home.entities.Prescription;
+import com.healthcare.home.facility.FacilityTopology;
+import com.healthcare.home.scheduler.MedicationRoundIndex;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * MedicationRoundBenchmark plans the next hour's round of one ward among 20 wards of 50 residents with
+ * 4 prescriptions each, once scanning every prescription and parsing its times and once through the round index
+ */
+public class MedicationRoundBenchmark {
+    private static final String[] TIMES = {"Morning", "Noon", "Afternoon", "Evening", "Night", "06:00", "10:30", "16:00", "22:00"};
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        IdAllocator ids = new IdAllocator();
+        MedicationRoundIndex index = new MedicationRoundIndex();
+        // bed id -> prescriptions of its resident
+        Map<String, List<Prescription>> beds = new LinkedHashMap<>();
+        for (int ward = 1; ward <= 20; ward++) {
+            for (int resident = 0; resident < 50; resident++) {
+                String bedId = "W" + ward + "-R" + (ward * 100 + resident / 2) + "-B" + (resident % 2 + 1);
+                List<Prescription> prescriptions = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    Prescription prescription = new Prescription(ids, "DOC", "Medicine" + i, "1",
+                            List.of(TIMES[random.nextInt(TIMES.length)], TIMES[random.nextInt(TIMES.length)]));
+                    prescriptions.add(prescription);
+                    index.scheduling(prescription, "RES-" + bedId, bedId, null);
+                }
+                beds.put(bedId, prescriptions);
+            }
+        }
+        FacilityTopology topology = FacilityTopology.fromBedIds(beds.keySet());
+        LocalDateTime now = LocalDate.now().atTime(7, 30);
+        LocalDateTime from = now.minus(Duration.ofHours(12));
+        LocalDateTime to = now.plus(Duration.ofHours(1));
+
+        double scanning = BenchmarkSupport.measuring("round of W7, scanning every prescription (before)", 2_000, () -> {
+            List<String> due = new ArrayList<>();
+            for (Map.Entry<String, List<Prescription>> bed : beds.entrySet()) {
+                if (!FacilityTopology.wardOf(bed.getKey()).equals("W7")) continue;
+                for (Prescription prescription : bed.getValue()) {
+                    for (LocalDate date = from.toLocalDate(); !date.isAfter(to.toLocalDate()); date = date.plusDays(1)) {
+                        for (LocalTime time : prescription.dueTimesOfDay()) {
+                            LocalDateTime dueAt = date.atTime(time);
+                            if (!dueAt.isBefore(from) && !dueAt.isAfter(to)) due.add(prescription.getId());
+                        }
+                    }
+                }
+            }
+            return due.size();
+        });
+        double indexed = BenchmarkSupport.measuring("round of W7, round index (after)", 2_000,
+                () -> index.planning("W7", now, Duration.ofHours(12), Duration.ofHours(1), topology::bedIndexOf).size());
+        System.out.printf("speed-up x%.1f%n", scanning / indexed);
+    }
+}
@@ -0,0 +1,47 @@
+package com.healthcare.home.benchmark;
+
+import com.healthcare.home.search.ResidentSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ResidentSearchBenchmark types a name letter by letter against 500 current and 10,000 archived residents,
+ * once scanning every name the way the bed table had to be searched by eye and once through the search index
+ */
+public class ResidentSearchBenchmark {
+    private static final String[] FIRST = {"John", "Joan", "Mary", "Maria", "Peter", "Paul", "Anne", "Ahmed", "Li", "Sofia"};
+    private static final String[] LAST = {"Smith", "Smythe", "Brown", "Nguyen", "Khan", "Garcia", "Taylor", "Wilson", "Martin", "Lee"};
+
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        ResidentSearchIndex index = new ResidentSearchIndex();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10_500; i++) {
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + i;
+            names.add(name);
+            if (i < 500) index.indexing(String.format("RES-%05d", i), name, "W1-R" + (i / 4 + 1) + "-B" + (i % 4 + 1));
+            else index.indexingArchived(String.format("RES-%05d", i), name);
+        }
+        String[] keystrokes = {"m", "ma", "mar", "mart", "marti", "martin 4", "martni"};
+
+        double scanning = BenchmarkSupport.measuring("type-ahead, scanning all names (before)", 2_000, () -> {
+            long hits = 0;
+            for (String typed : keystrokes) {
+                int found = 0;
+                for (String name : names) {
+                    if (found < 20 && name.toLowerCase().contains(typed)) found++;
+                }
+                hits += found;
+            }
+            return hits;
+        });
+        double indexed = BenchmarkSupport.measuring("type-ahead, search index (after)", 2_000, () -> {
+            long hits = 0;
+            for (String typed : keystrokes) hits += index.searching(typed, 20, true).size();
+            return hits;
+        });
+        System.out.printf("speed-up x%.1f%n", scanning / indexed);
+    }
+}
@@ -0,0 +1,64 @@
+package com.healthcare.home.controllers;
+
+import com.healthcare.home.core.ResidentHealthCareHome;
+import com.healthcare.home.entities.Bed;
+import com.healthcare.home.entities.BedRow;
+import com.healthcare.home.entities.Gender;
+import com.healthcare.home.entities.Resident;
+import com.healthcare.home.entities.Role;
+import com.healthcare.home.entities.Shift;
+import com.healthcare.home.facility.FacilityLayout;
+import com.healthcare.home.staff.Manager;
+import com.healthcare.home.staff.Nurse;
+import com.healthcare.home.views.BedSummary;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MainDashboardTest {
+    @Test
+    void rowsFollowTheBoardAcrossLayoutChanges(@TempDir Path dir) {
+        ResidentHealthCareHome home = new ResidentHealthCareHome(dir, FacilityLayout.configured());
+        Manager manager = new Manager(home.getIdAllocator(), "M", "mgr", "pwd");
+        Nurse nurse = new Nurse(home.getIdAllocator(), "N", "n", "pwd");
+        home.assigningShift(manager, nurse, new Shift(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(4)));
+        MainDashboard dashboard = new MainDashboard() {
+        };
+        dashboard.setHome(home);
+        dashboard.board = home.boardFor(Role.NURSE);
+        List<List<BedSummary>> changes = new CopyOnWriteArrayList<>();
+        dashboard.board.subscribing(changes::add);
+
+        ObservableList<BedRow> rows = dashboard.showingBoard();
+        assertEquals(home.getBedList().size(), rows.size());
+
+        home.assigningResidentToBed(manager, "W1-R101-B1", new Resident(home.getIdAllocator(), "Ann", Gender.FEMALE, false, null));
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        changes.forEach(dashboard::replacingRows);
+        assertEquals("Ann", rows.get(0).getResidentName());
+
+        // a bed added by a layout change appears although only the touched beds are handed over
+        changes.clear();
+        home.registeringBed(new Bed("W3-R301-B1"));
+        home.movingResidentToNewBed(nurse, "W1-R101-B1", "W1-R102-B1");
+        assertTrue(home.getEventBus().flushing(Duration.ofSeconds(5)));
+        changes.forEach(dashboard::replacingRows);
+        assertEquals(home.getBedList().size(), rows.size());
+        assertTrue(rows.stream().anyMatch(row -> row.getBedId().equals("W3-R301-B1")));
+        assertEquals("Ann", rows.stream().filter(row -> row.getBedId().equals("W1-R102-B1")).findFirst().orElseThrow().getResidentName());
+
+        // the rows of a search stay filtered while the layout is unchanged
+        rows = dashboard.showingBeds(List.of("W1-R102-B1"));
+        dashboard.replacingRows(List.of(dashboard.board.row("W1-R101-B1")));
+        assertEquals(1, rows.size());
+        home.getEventBus().closing(Duration.ofSeconds(5));
+    }
+}